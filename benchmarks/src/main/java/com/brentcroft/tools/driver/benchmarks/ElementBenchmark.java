@@ -0,0 +1,48 @@
+package com.brentcroft.tools.driver.benchmarks;
+
+import com.brentcroft.tools.driver.ModelItem;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class ElementBenchmark
+{
+    @Param( { "1", "1000" } )
+    public int matches;
+
+    @Param( { "false", "true" } )
+    public boolean cacheElements;
+
+    private ModelItem item;
+
+    @Setup
+    public void setUp()
+    {
+        item = Models.deepItem( Models.newPageModel( matches ), 3, null );
+        item.getBrowser().setCacheElements( cacheElements );
+    }
+
+    @Benchmark
+    public String getText()
+    {
+        return item.getText();
+    }
+
+    @Benchmark
+    public boolean exists()
+    {
+        return item.exists();
+    }
+
+    @Benchmark
+    public int count()
+    {
+        return item.count();
+    }
+}
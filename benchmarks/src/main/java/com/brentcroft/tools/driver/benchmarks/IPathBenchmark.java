@@ -0,0 +1,39 @@
+package com.brentcroft.tools.driver.benchmarks;
+
+import com.brentcroft.tools.driver.IPath;
+import com.brentcroft.tools.driver.ModelItem;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class IPathBenchmark
+{
+    @Param( { "1", "10", "30" } )
+    public int depth;
+
+    private ModelItem leaf;
+
+    @Setup
+    public void setUp()
+    {
+        leaf = Models.deepItem( Models.newPageModel( 1 ), depth, null );
+    }
+
+    @Benchmark
+    public IPath newIPath()
+    {
+        return new IPath( leaf );
+    }
+
+    @Benchmark
+    public IPath cachedIPath()
+    {
+        return leaf.getIPath();
+    }
+}
@@ -0,0 +1,71 @@
+package com.brentcroft.tools.driver.benchmarks;
+
+import com.brentcroft.tools.driver.Downloads;
+import com.brentcroft.tools.driver.PageModel;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading the test sites, with and without the site model cache,
+ * and detecting an already downloaded file.
+ * <p>
+ * The sites directory defaults to the el-driver test resources,
+ * and can be set with <code>-Dsites.dir=...</code>.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class LoadBenchmark
+{
+    @Param( { "brentcroft-games.json", "brentcroft-site.xml" } )
+    public String site;
+
+    @Param( { "false", "true" } )
+    public boolean siteCache;
+
+    private Path sites;
+    private Downloads downloads;
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        sites = Paths.get( System.getProperty( "sites.dir", "../src/test/resources/sites" ) );
+
+        Path directory = Files.createTempDirectory( "benchmark-downloads" );
+        Files.write( directory.resolve( "report.csv" ), "a,b,c\n".getBytes() );
+        downloads = new Downloads();
+        downloads.setDirectory( directory.toFile() );
+    }
+
+    @Benchmark
+    public PageModel loadFromFile()
+    {
+        PageModel pageModel = new PageModel();
+        pageModel.setCurrentDirectory( sites );
+        pageModel.put( "$siteCache", String.valueOf( siteCache ) );
+        return pageModel.loadFromFile( site );
+    }
+
+    @Benchmark
+    public void detect()
+    {
+        downloads.detect( "report.csv", 1000 );
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        File directory = downloads.getDirectory();
+        new File( directory, "report.csv" ).delete();
+        directory.delete();
+    }
+}
@@ -0,0 +1,50 @@
+package com.brentcroft.tools.driver.benchmarks;
+
+import com.brentcroft.tools.driver.Browser;
+import com.brentcroft.tools.driver.ModelItem;
+import com.brentcroft.tools.driver.PageModel;
+
+import static java.lang.String.format;
+
+/**
+ * Page models for benchmarks, on a Browser with a stub driver.
+ */
+class Models
+{
+    private Models()
+    {
+    }
+
+    static PageModel newPageModel( int matches )
+    {
+        Browser browser = new Browser();
+        browser.setWebDriver( StubDriver.newDriver( matches ) );
+        return browser.getPageModel();
+    }
+
+    /**
+     * A chain of nested items, each with the given extra entry (e.g. <code>'$frame': '//iframe'</code>),
+     * returning the innermost.
+     */
+    static ModelItem deepItem( PageModel pageModel, int depth, String extra )
+    {
+        StringBuilder json = new StringBuilder();
+        for ( int i = 0; i < depth; i++ )
+        {
+            json.append( format( "{ '$xpath': '//div[ @id = \"level-%s\" ]', %s 'child': ", i, extra == null ? "" : extra + "," ) );
+        }
+        json.append( "{ '$xpath': '//input' }" );
+        for ( int i = 0; i < depth; i++ )
+        {
+            json.append( " }" );
+        }
+        pageModel.appendFromJson( format( "{ 'root': %s }", json ) );
+
+        ModelItem item = ( ModelItem ) pageModel.get( "root" );
+        while ( item.containsKey( "child" ) )
+        {
+            item = ( ModelItem ) item.get( "child" );
+        }
+        return item;
+    }
+}
@@ -0,0 +1,48 @@
+package com.brentcroft.tools.driver.benchmarks;
+
+import com.brentcroft.tools.driver.ModelItem;
+import org.openjdk.jmh.annotations.*;
+import org.openqa.selenium.SearchContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Frame switching and shadow root navigation for deeply nested items,
+ * alternating between two leaves so every switch moves the navigator.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class ResolutionBenchmark
+{
+    @Param( { "1", "5" } )
+    public int depth;
+
+    private ModelItem framed;
+    private ModelItem unframed;
+    private ModelItem shadowed;
+
+    @Setup
+    public void setUp()
+    {
+        framed = Models.deepItem( Models.newPageModel( 1 ), depth, "'$frame': '//iframe'" );
+        unframed = ( ModelItem ) framed.getRoot().get( "root" );
+        shadowed = Models.deepItem( Models.newPageModel( 1 ), depth, "'$shadow': true" );
+    }
+
+    @Benchmark
+    public void switchFrame()
+    {
+        framed.switchFrame();
+        unframed.switchFrame();
+    }
+
+    @Benchmark
+    public SearchContext navigateShadows()
+    {
+        return shadowed.navigateShadows();
+    }
+}
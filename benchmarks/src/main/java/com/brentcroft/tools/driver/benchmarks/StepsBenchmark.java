@@ -0,0 +1,49 @@
+package com.brentcroft.tools.driver.benchmarks;
+
+import com.brentcroft.tools.driver.ModelItem;
+import com.brentcroft.tools.driver.PageModel;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * EL compilation and evaluation through the shared JstlTemplateManager.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class StepsBenchmark
+{
+    private static final String STEPS = "$local.total = 0; $local.total = total + 1; $local.total = total * 2";
+
+    private PageModel pageModel;
+    private int sequence;
+
+    @Setup
+    public void setUp()
+    {
+        pageModel = Models.newPageModel( 1 );
+    }
+
+    @Benchmark
+    public Object evaluate()
+    {
+        return ModelItem.getJstl().eval( "1 + 2 * 3", pageModel.newContainer() );
+    }
+
+    @Benchmark
+    public Object steps()
+    {
+        return pageModel.steps( STEPS );
+    }
+
+    @Benchmark
+    public Object uncachedSteps()
+    {
+        // distinct text every time, so never a cache hit
+        return pageModel.steps( STEPS + "; $local.n = " + ( sequence++ ) );
+    }
+}
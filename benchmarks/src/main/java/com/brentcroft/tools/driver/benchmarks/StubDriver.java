@@ -0,0 +1,160 @@
+package com.brentcroft.tools.driver.benchmarks;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.SearchContext;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An in-process WebDriver that finds a fixed number of elements for any locator,
+ * answers the driver's own scripts with canned results,
+ * and otherwise does nothing, so benchmarks measure only el-driver itself.
+ */
+public class StubDriver implements InvocationHandler
+{
+    private final int matches;
+    private final WebDriver driver;
+    private final List< WebElement > elements;
+    private final Map< String, Object > snapshot = new HashMap<>();
+
+    public static WebDriver newDriver( int matches )
+    {
+        return new StubDriver( matches ).driver;
+    }
+
+    private StubDriver( int matches )
+    {
+        this.matches = matches;
+        this.driver = ( WebDriver ) Proxy.newProxyInstance(
+                getClass().getClassLoader(),
+                new Class< ? >[]{ WebDriver.class, JavascriptExecutor.class },
+                this );
+
+        List< WebElement > found = new ArrayList<>();
+        for ( int i = 0; i < matches; i++ )
+        {
+            found.add( newElement() );
+        }
+        this.elements = Collections.unmodifiableList( found );
+
+        snapshot.put( "tagName", "input" );
+        snapshot.put( "value", "value" );
+        snapshot.put( "text", "" );
+        snapshot.put( "displayed", true );
+        snapshot.put( "enabled", true );
+        snapshot.put( "selected", false );
+        snapshot.put( "attributes", Collections.emptyMap() );
+    }
+
+    private < T > T newProxy( Class< T > type, InvocationHandler handler )
+    {
+        return type.cast( Proxy.newProxyInstance( getClass().getClassLoader(), new Class< ? >[]{ type }, handler ) );
+    }
+
+    private WebElement newElement()
+    {
+        SearchContext shadowRoot = newProxy( SearchContext.class, this::search );
+        return newProxy( WebElement.class, ( proxy, method, args ) -> {
+            switch ( method.getName() )
+            {
+                case "getShadowRoot":
+                    return shadowRoot;
+                case "getTagName":
+                    return "input";
+                case "getAttribute":
+                case "getText":
+                    return "value";
+                case "isDisplayed":
+                case "isEnabled":
+                    return true;
+                case "hashCode":
+                    return System.identityHashCode( proxy );
+                case "equals":
+                    return proxy == args[ 0 ];
+                default:
+                    return search( proxy, method, args );
+            }
+        } );
+    }
+
+    private Object search( Object proxy, Method method, Object[] args )
+    {
+        switch ( method.getName() )
+        {
+            case "findElements":
+                return elements;
+            case "findElement":
+                return elements.get( 0 );
+            default:
+                return defaultValue( method.getReturnType() );
+        }
+    }
+
+    @Override
+    public Object invoke( Object proxy, Method method, Object[] args )
+    {
+        switch ( method.getName() )
+        {
+            case "switchTo":
+                return newProxy( WebDriver.TargetLocator.class, ( p, m, a ) -> driver );
+            case "manage":
+                return newProxy( WebDriver.Options.class, ( p, m, a ) ->
+                        "timeouts".equals( m.getName() )
+                        ? newProxy( WebDriver.Timeouts.class, ( tp, tm, ta ) -> tm.getReturnType().isInstance( tp ) ? tp : null )
+                        : defaultValue( m.getReturnType() ) );
+            case "executeScript":
+                String script = ( String ) args[ 0 ];
+                if ( script.contains( "function snapshot(" ) )
+                {
+                    return snapshot;
+                }
+                if ( script.contains( "querySelector" ) )
+                {
+                    return ( long ) matches;
+                }
+                return null;
+            case "hashCode":
+                return System.identityHashCode( proxy );
+            case "equals":
+                return proxy == args[ 0 ];
+            case "toString":
+                return "StubDriver[matches=" + matches + "]";
+            default:
+                return search( proxy, method, args );
+        }
+    }
+
+    private static Object defaultValue( Class< ? > type )
+    {
+        if ( type == boolean.class )
+        {
+            return false;
+        }
+        if ( type == int.class )
+        {
+            return 0;
+        }
+        if ( type == long.class )
+        {
+            return 0L;
+        }
+        if ( type == double.class )
+        {
+            return 0.0;
+        }
+        if ( type == List.class )
+        {
+            return Collections.emptyList();
+        }
+        return null;
+    }
+}
@@ -1,24 +1,31 @@
 package com.brentcroft.tools.driver;
 
+import com.brentcroft.tools.driver.fake.FakeWebDriver;
 import com.brentcroft.tools.model.ModelEvent;
 import lombok.Getter;
 import lombok.Setter;
 import org.openqa.selenium.*;
-import org.openqa.selenium.chrome.ChromeDriver;
 import org.openqa.selenium.chrome.ChromeOptions;
-import org.openqa.selenium.edge.EdgeDriver;
+import org.openqa.selenium.chromium.ChromiumOptions;
+import org.openqa.selenium.chromium.HasCdp;
 import org.openqa.selenium.edge.EdgeOptions;
+import org.openqa.selenium.remote.Augmenter;
+import org.openqa.selenium.remote.RemoteWebDriver;
+import org.openqa.selenium.remote.service.DriverService;
 import org.openqa.selenium.safari.SafariDriver;
 import org.openqa.selenium.safari.SafariOptions;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 
 import static java.lang.String.format;
@@ -29,19 +36,43 @@ public class Browser
 {
     private static final double DEFAULT_DELAY_SECONDS = 0.1;
     private static final double DEFAULT_IMPLICIT_WAIT_SECONDS = 5;
+    private static final int DEFAULT_POOL_MAX_REUSE = 50;
+    private static final double DEFAULT_POOL_IDLE_SECONDS = 300;
+    private static final double DEFAULT_SETTLE_MAX_SECONDS = 10;
+    private static final double DEFAULT_POLL_INTERVAL_SECONDS = 0.05;
+    private static final long DEFAULT_SCRIPT_TIMEOUT_MILLIS = 30000;
     private Downloads downloads = new Downloads();
-    private static int screenshotId = 0;
     private boolean autoQuit = true;
     private boolean quitAfterAll = false;
     private boolean allowInteractive = true;
     private boolean headless = false;
-    private String screenshotDirectory = "target/screenshots";
-
-    private WebDriver webDriver;
+    private boolean cacheElements = false;
+    private boolean pooledDriver = false;
+    private RetryPolicy retryPolicy = RetryPolicy.DEFAULT;
+    private Settle settle = Settle.DEFAULT;
+    private long settleMaxMillis = Double.valueOf( DEFAULT_SETTLE_MAX_SECONDS * 1000 ).longValue();
+    private final Map< String, LongAdder > retryCounts = new ConcurrentHashMap<>();
+    private final ScreenshotWriter screenshotWriter = new ScreenshotWriter();
+    private MetricsRegistry metrics = MetricsRegistry.NONE;
+    private String metricsDirectory = "target/metrics";
+
+    private volatile WebDriver webDriver;
+    // the shared driver process this browser's session runs on, if any
+    private volatile DriverService driverService;
+    private String profileTemplate;
+    // the profile this browser's session uses, if it's from a template
+    private Path profileDirectory;
+    // the --user-data-dir of this browser's session, if known, by which its processes can be killed
+    private String userDataDirectory;
     private final PageModel pageModel = new PageModel();
+    private final AtomicLong navigationEpoch = new AtomicLong();
+    // cached handles are keyed on their frame path, so switching frames doesn't change the epoch
+    private final FrameNavigator frameNavigator = new FrameNavigator();
 
     private final Stack< Long > delayStack = new Stack<>();
     private final Stack< Long > implicitWaitStack = new Stack<>();
+    private long appliedImplicitWait = - 1;
+    private long pollIntervalMillis = Double.valueOf( DEFAULT_POLL_INTERVAL_SECONDS * 1000 ).longValue();
 
     private final Map< String, Runnable > beforeAlls = new HashMap< String, Runnable >()
     {
@@ -63,7 +94,7 @@ public class Browser
         pageModel.setBrowser( this );
     }
 
-    public void close()
+    public synchronized void close()
     {
         try
         {
@@ -94,7 +125,7 @@ public class Browser
         }
     }
 
-    public void closeCompletely()
+    public synchronized void closeCompletely()
     {
         try
         {
@@ -119,21 +150,121 @@ public class Browser
         finally
         {
             quitDriver();
+            exportMetrics();
         }
     }
 
-    public void quitDriver()
+    public void exportMetrics()
     {
+        if ( ! metrics.isEnabled() )
+        {
+            return;
+        }
+        Path directory = Paths.get( metricsDirectory );
+        String name = format( "metrics-%s", pageModel.getName() );
+        try
+        {
+            metrics.export( directory, name );
+            System.out.printf( "Exported metrics: %s%n", directory.resolve( name ) );
+        }
+        catch ( IOException e )
+        {
+            throw new IllegalArgumentException( format( "Failed to export metrics: %s", directory.resolve( name ) ), e );
+        }
+    }
+
+    public synchronized void quitDriver()
+    {
+        screenshotWriter.flush();
+
         if ( webDriver != null && ( isAutoQuit() || isHeadless() ) )
         {
-            System.out.printf( "Quitting driver: auto=%s, headless=%s, after-all=%s%n", isAutoQuit(), isHeadless(), isQuitAfterAll() );
-            webDriver.quit();
-            webDriver = null;
+            try
+            {
+                if ( pooledDriver )
+                {
+                    System.out.printf( "Releasing driver to pool: auto=%s, headless=%s, after-all=%s%n", isAutoQuit(), isHeadless(), isQuitAfterAll() );
+                    DriverPool.instance().release( webDriver );
+                }
+                else
+                {
+                    System.out.printf( "Quitting driver: auto=%s, headless=%s, after-all=%s%n", isAutoQuit(), isHeadless(), isQuitAfterAll() );
+                    try
+                    {
+                        webDriver.quit();
+                    }
+                    finally
+                    {
+                        releasing( driverService, profileDirectory ).run();
+                    }
+                }
+            }
+            finally
+            {
+                // a quit that failed, or was killed, is still done with
+                webDriver = null;
+                driverService = null;
+                profileDirectory = null;
+                userDataDirectory = null;
+                frameNavigator.reset();
+                nextNavigationEpoch();
+            }
+        }
+    }
+
+    /**
+     * Give up on the driver, without waiting for it:
+     * kill the browser's processes, if they can be told apart by its <code>--user-data-dir</code>,
+     * and stop the driver process, and every browser it started, if no other session is using it,
+     * or else have it delete just this session.
+     * <p>
+     * Not synchronized, since it's for when a close holding the lock has hung;
+     * nor does it touch the driver, which is left for the hung close to clear once its quit fails.
+     *
+     * @return true if any process was killed, or the session deleted
+     */
+    public boolean forceQuit()
+    {
+        DriverService service = driverService;
+        WebDriver driver = webDriver;
+        String userData = userDataDirectory;
+        boolean killed = userData != null && ProcessTrees.kill( null, "--user-data-dir=" + userData ) > 0;
+        String sessionId = driver instanceof RemoteWebDriver
+                           ? Objects.toString( ( ( RemoteWebDriver ) driver ).getSessionId(), null )
+                           : null;
+        if ( service != null && DriverServices.instance().kill( service, sessionId ) )
+        {
+            killed = true;
         }
+        return killed;
     }
 
-    public void open()
+    /**
+     * Release the driver service and profile, if any, once their session has quit.
+     */
+    private static Runnable releasing( DriverService service, Path profile )
     {
+        return () -> {
+            Optional.ofNullable( service ).ifPresent( DriverServices.instance()::release );
+            Optional.ofNullable( profile ).ifPresent( ProfileTemplates.instance()::release );
+        };
+    }
+
+    public synchronized void open()
+    {
+        // before starting a driver, to time its startup
+        if ( pageModel.containsKey( "$metrics" )
+                && Boolean.parseBoolean( pageModel.get( "$metrics" ).toString() )
+                && ! metrics.isEnabled() )
+        {
+            setMetrics( new HistogramMetrics() );
+        }
+        if ( pageModel.containsKey( "$metricsDirectory" ) )
+        {
+            metricsDirectory = pageModel.get( "$metricsDirectory" ).toString();
+        }
+
+        boolean started = false;
         if ( webDriver != null )
         {
         }
@@ -174,64 +305,60 @@ public class Browser
                 }
                 downloads.setDirectory( downloadFile );
             }
+            if ( pageModel.containsKey( "$downloadStable" ) )
+            {
+                double stableSeconds = Double.parseDouble( pageModel.get( "$downloadStable" ).toString() );
+                downloads.setStableMillis( Double.valueOf( stableSeconds * 1000 ).longValue() );
+            }
 
             String driverPath = ( String ) pageModel.get( "$driverPath" );
             String driverModel = ( String ) pageModel.get( "$driverModel" );
             String driverArgs = (String) pageModel.get( "$driverArgs" );
-
-            Map< String, Object > prefs = new HashMap<>();
-            prefs.put( "download.default_directory", downloads.getDownloadPath() );
-            prefs.put( "download.prompt_for_download", false );
-
-            switch ( driverModel )
+            profileTemplate = pageModel.containsKey( "$profileTemplate" )
+                              ? pageModel.get( "$profileTemplate" ).toString()
+                              : null;
+
+            DriverPool.Settings poolSettings = new DriverPool.Settings(
+                    pageModel.containsKey( "$poolSize" )
+                    ? Integer.parseInt( pageModel.get( "$poolSize" ).toString() )
+                    : 0,
+                    pageModel.containsKey( "$poolMaxReuse" )
+                    ? Integer.parseInt( pageModel.get( "$poolMaxReuse" ).toString() )
+                    : DEFAULT_POOL_MAX_REUSE,
+                    Double.valueOf( 1000 * ( pageModel.containsKey( "$poolIdleSeconds" )
+                                             ? Double.parseDouble( pageModel.get( "$poolIdleSeconds" ).toString() )
+                                             : DEFAULT_POOL_IDLE_SECONDS ) ).longValue() );
+
+            pooledDriver = poolSettings.isEnabled();
+            appliedImplicitWait = - 1;
+
+            if ( pooledDriver )
             {
-                case "chrome":
-                    ChromeOptions chromeOptions = new ChromeOptions();
-                    if (headless) {
-                        chromeOptions.addArguments( "--headless=new" );
-                    }
-                    Optional
-                            .ofNullable( driverArgs )
-                            .ifPresent( args -> {
-                                Stream
-                                        .of( args.split("\\s+") )
-                                        .map( String::trim )
-                                        .filter( arg -> !arg.isEmpty() )
-                                        .forEach( chromeOptions::addArguments );
-                            } );
-                    chromeOptions.setExperimentalOption( "prefs", prefs );
-                    System.setProperty( "webdriver.chrome.driver", driverPath );
-                    webDriver = new ChromeDriver( chromeOptions );
-                    break;
-
-                case "edge":
-                    EdgeOptions edgeOptions = new EdgeOptions();
-                    if (headless) {
-                        edgeOptions.addArguments( "--headless=new" );
-                    }
-                    Optional
-                            .ofNullable( driverArgs )
-                            .ifPresent( args -> {
-                                Stream
-                                        .of( args.split("\\s+") )
-                                        .map( String::trim )
-                                        .filter( arg -> !arg.isEmpty() )
-                                        .forEach( edgeOptions::addArguments );
-                            } );
-                    edgeOptions.setExperimentalOption( "prefs", prefs );
-                    System.setProperty( "webdriver.edge.driver", driverPath );
-                    webDriver = new EdgeDriver( edgeOptions );
-                    break;
-
-                case "safari":
-                    SafariOptions safariOptions = new SafariOptions();
-                   System.setProperty( "webdriver.safari.driver", driverPath );
-                    webDriver = new SafariDriver( safariOptions );
-                    break;
-
-                default:
-                    throw new IllegalArgumentException( "Not implemented for driver model: " + driverModel );
+                String signature = String.join( "|",
+                        driverModel,
+                        driverPath,
+                        String.valueOf( driverArgs ),
+                        String.valueOf( headless ),
+                        downloads.getDownloadPath(),
+                        String.valueOf( profileTemplate ) );
+
+                // pooled drivers outlive this browser, so release their service and profile when the pool quits them
+                webDriver = metrics.time( "startup", "driver", () -> DriverPool
+                        .instance()
+                        .acquire(
+                                signature,
+                                poolSettings,
+                                () -> newWebDriver( driverModel, driverPath, driverArgs ),
+                                () -> releasing( driverService, profileDirectory ) ) );
+                driverService = null;
+                profileDirectory = null;
+                userDataDirectory = null;
+            }
+            else
+            {
+                webDriver = metrics.time( "startup", "driver", () -> newWebDriver( driverModel, driverPath, driverArgs ) );
             }
+            started = true;
         }
 
         if ( pageModel.containsKey( "$quitAfterAll" ) )
@@ -240,7 +367,48 @@ public class Browser
         }
         if ( pageModel.containsKey( "$screenshotDirectory" ) )
         {
-            screenshotDirectory = pageModel.get( "$screenshotDirectory" ).toString();
+            screenshotWriter.setDirectory( pageModel.get( "$screenshotDirectory" ).toString() );
+        }
+        if ( pageModel.containsKey( "$screenshotFormat" ) )
+        {
+            screenshotWriter.setFormat( pageModel.get( "$screenshotFormat" ).toString() );
+        }
+        if ( pageModel.containsKey( "$screenshotQuality" ) )
+        {
+            screenshotWriter.setQuality( Float.parseFloat( pageModel.get( "$screenshotQuality" ).toString() ) );
+        }
+        if ( pageModel.containsKey( "$screenshotScale" ) )
+        {
+            screenshotWriter.setScale( Double.parseDouble( pageModel.get( "$screenshotScale" ).toString() ) );
+        }
+        if ( pageModel.containsKey( "$cacheElements" ) )
+        {
+            cacheElements = Boolean.parseBoolean( pageModel.get( "$cacheElements" ).toString() );
+        }
+        if ( pageModel.containsKey( "$retry" ) )
+        {
+            retryPolicy = RetryPolicy.parse( pageModel.get( "$retry" ).toString() );
+        }
+        if ( pageModel.containsKey( "$settle" ) )
+        {
+            settle = Settle.parse( pageModel.get( "$settle" ).toString() );
+        }
+        if ( started && settle.isNetwork() && webDriver instanceof HasCdp )
+        {
+            // count requests from the start of every document, not just from the next action
+            Map< String, Object > added = ( ( HasCdp ) webDriver ).executeCdpCommand(
+                    "Page.addScriptToEvaluateOnNewDocument",
+                    Collections.singletonMap( "source", Settle.TRACK_NETWORK ) );
+            if ( pooledDriver && added != null && added.get( "identifier" ) != null )
+            {
+                DriverPool.instance().addedScript( webDriver, added.get( "identifier" ).toString() );
+            }
+        }
+        {
+            double settleMaxSeconds = pageModel.containsKey( "$settleMax" )
+                                      ? Double.parseDouble( pageModel.get( "$settleMax" ).toString() )
+                                      : DEFAULT_SETTLE_MAX_SECONDS;
+            settleMaxMillis = Double.valueOf( settleMaxSeconds * 1000 ).longValue();
         }
 
         {
@@ -256,9 +424,29 @@ public class Browser
             setImplicitWait( Double.valueOf( implicitWaitSeconds * 1000 ).longValue() );
         }
 
-        webDriver.manage().timeouts().implicitlyWait( Duration.ofMillis( getImplicitWait() ) );
+        {
+            double pollIntervalSeconds = pageModel.containsKey( "$pollInterval" )
+                                         ? Double.parseDouble( pageModel.get( "$pollInterval" ).toString() )
+                                         : DEFAULT_POLL_INTERVAL_SECONDS;
+            pollIntervalMillis = Double.valueOf( pollIntervalSeconds * 1000 ).longValue();
+        }
+
+        applyImplicitWait();
+
+        // an in-browser settle must be able to run to its cap
+        if ( settleMaxMillis + 5000 > DEFAULT_SCRIPT_TIMEOUT_MILLIS )
+        {
+            webDriver.manage().timeouts().scriptTimeout( Duration.ofMillis( settleMaxMillis + 5000 ) );
+        }
 
-        webDriver.get( ( String ) pageModel.get( "$url" ) );
+        if ( started )
+        {
+            metrics.time( "startup", "navigate", () -> navigateTo( ( String ) pageModel.get( "$url" ) ) );
+        }
+        else
+        {
+            navigateTo( ( String ) pageModel.get( "$url" ) );
+        }
 
         if ( pageModel.containsKey( "$position" ) )
         {
@@ -283,6 +471,205 @@ public class Browser
         }
     }
 
+    public void setMetrics( MetricsRegistry metrics )
+    {
+        this.metrics = metrics;
+        downloads.setMetrics( metrics );
+    }
+
+    public void recordRetry( String path )
+    {
+        retryCounts.computeIfAbsent( path, p -> new LongAdder() ).increment();
+    }
+
+    public Map< String, Long > getRetryCounts()
+    {
+        Map< String, Long > counts = new TreeMap<>();
+        retryCounts.forEach( ( path, count ) -> counts.put( path, count.sum() ) );
+        return counts;
+    }
+
+    public long getNavigationEpoch()
+    {
+        return navigationEpoch.get();
+    }
+
+    public long nextNavigationEpoch()
+    {
+        return navigationEpoch.incrementAndGet();
+    }
+
+    public void navigateTo( String url )
+    {
+        frameNavigator.reset();
+        nextNavigationEpoch();
+        if ( pooledDriver )
+        {
+            DriverPool.instance().visited( webDriver, url );
+        }
+        webDriver.get( url );
+    }
+
+    public void switchToWindow( String nameOrHandle )
+    {
+        webDriver.switchTo().window( nameOrHandle );
+        frameNavigator.reset();
+        nextNavigationEpoch();
+    }
+
+    private WebDriver newWebDriver( String driverModel, String driverPath, String driverArgs )
+    {
+        Map< String, Object > prefs = new HashMap<>();
+        prefs.put( "download.default_directory", downloads.getDownloadPath() );
+        prefs.put( "download.prompt_for_download", false );
+
+        switch ( driverModel )
+        {
+            case "chrome":
+                return newChromiumDriver( driverModel, driverPath, driverArgs, () -> chromiumOptions( new ChromeOptions(), driverArgs, prefs ) );
+
+            case "edge":
+                return newChromiumDriver( driverModel, driverPath, driverArgs, () -> chromiumOptions( new EdgeOptions(), driverArgs, prefs ) );
+
+            case "safari":
+                SafariOptions safariOptions = new SafariOptions();
+                System.setProperty( "webdriver.safari.driver", driverPath );
+                return new SafariDriver( safariOptions );
+
+            case "fake":
+                // $driverPath is the document root for urls
+                return new FakeWebDriver( Optional
+                        .ofNullable( driverPath )
+                        .map( Paths::get )
+                        .orElse( null ) );
+
+            default:
+                throw new IllegalArgumentException( "Not implemented for driver model: " + driverModel );
+        }
+    }
+
+    private < T extends ChromiumOptions< ? > > T chromiumOptions( T options, String driverArgs, Map< String, Object > prefs )
+    {
+        if (headless) {
+            options.addArguments( "--headless=new" );
+        }
+        Optional
+                .ofNullable( driverArgs )
+                .ifPresent( args -> {
+                    Stream
+                            .of( args.split("\\s+") )
+                            .map( String::trim )
+                            .filter( arg -> !arg.isEmpty() )
+                            .forEach( options::addArguments );
+                } );
+        options.setExperimentalOption( "prefs", prefs );
+        return options;
+    }
+
+    /**
+     * A chrome or edge session, on a copy of <code>$profileTemplate</code>, if there is one.
+     */
+    private WebDriver newChromiumDriver( String driverModel, String driverPath, String driverArgs, Supplier< ChromiumOptions< ? > > newOptions )
+    {
+        ChromiumOptions< ? > options = newOptions.get();
+        Optional
+                .ofNullable( newProfileDirectory( template -> warmUp( driverModel, driverPath, newOptions.get(), template ) ) )
+                .ifPresent( profile -> options.addArguments( "--user-data-dir=" + profile ) );
+        userDataDirectory = userDataDirectory( driverArgs );
+        return newSharedServiceDriver( driverModel, driverPath, options );
+    }
+
+    /**
+     * Build a profile template in a session of its own, that only ever sees <code>about:blank</code>,
+     * so the template keeps the prefs and download directory, but no cookies or logins.
+     */
+    private void warmUp( String driverModel, String driverPath, ChromiumOptions< ? > options, Path template )
+    {
+        options.addArguments( "--user-data-dir=" + template );
+        DriverService service = DriverServices.instance().acquire( driverModel, driverPath );
+        try
+        {
+            WebDriver driver = new RemoteWebDriver( service.getUrl(), options );
+            try
+            {
+                driver.get( "about:blank" );
+            }
+            finally
+            {
+                driver.quit();
+            }
+        }
+        finally
+        {
+            DriverServices.instance().release( service );
+        }
+    }
+
+    /**
+     * A session on the shared driver service.
+     * <p>
+     * A driver created with its own service stops the service when it quits,
+     * so the session is remote, and augmented to keep browser specific features such as CDP.
+     */
+    private WebDriver newSharedServiceDriver( String driverModel, String driverPath, Capabilities options )
+    {
+        try
+        {
+            DriverService service = metrics.time( "startup", "service", () -> DriverServices.instance().acquire( driverModel, driverPath ) );
+            try
+            {
+                WebDriver driver = metrics.time( "startup", "session", () -> new Augmenter().augment( new RemoteWebDriver( service.getUrl(), options ) ) );
+                driverService = service;
+                return driver;
+            }
+            catch ( RuntimeException e )
+            {
+                DriverServices.instance().release( service );
+                throw e;
+            }
+        }
+        catch ( RuntimeException e )
+        {
+            // no session will use the profile
+            Optional.ofNullable( profileDirectory ).ifPresent( ProfileTemplates.instance()::abandon );
+            profileDirectory = null;
+            throw e;
+        }
+    }
+
+    /**
+     * A profile from <code>$profileTemplate</code>, if there is one.
+     */
+    private Path newProfileDirectory( Consumer< Path > warmUp )
+    {
+        if ( profileTemplate == null )
+        {
+            return null;
+        }
+        profileDirectory = metrics.time( "startup", "profile", () -> ProfileTemplates.instance().newProfile( Paths.get( profileTemplate ), warmUp ) );
+        return profileDirectory;
+    }
+
+    /**
+     * The profile from a template, if any, or else the <code>--user-data-dir</code> in <code>$driverArgs</code>.
+     */
+    private String userDataDirectory( String driverArgs )
+    {
+        if ( profileDirectory != null )
+        {
+            return profileDirectory.toString();
+        }
+        return Optional
+                .ofNullable( driverArgs )
+                .flatMap( args -> Stream
+                        .of( args.split( "\\s+" ) )
+                        .filter( arg -> arg.startsWith( "--user-data-dir=" ) )
+                        .map( arg -> arg.substring( "--user-data-dir=".length() ) )
+                        .filter( dir -> ! dir.isEmpty() )
+                        .reduce( ( first, last ) -> last ) )
+                .orElse( null );
+    }
+
     public void executeScript( String script, List< Object > args )
     {
         ( ( JavascriptExecutor ) webDriver ).executeScript( script, args.toArray() );
@@ -306,52 +693,70 @@ public class Browser
     public void setImplicitWait( long implicitWaitMillis )
     {
         getImplicitWaitStack().push( implicitWaitMillis );
+        applyImplicitWait();
     }
 
     public void resetImplicitWait()
     {
         getImplicitWaitStack().pop();
+        applyImplicitWait();
     }
 
     public long getImplicitWait()
     {
-        return getImplicitWaitStack().peek();
+        return getImplicitWaitStack().isEmpty()
+               ? Double.valueOf( DEFAULT_IMPLICIT_WAIT_SECONDS * 1000 ).longValue()
+               : getImplicitWaitStack().peek();
     }
 
-    public void saveScreenshot( String key )
+    /**
+     * Push the current implicit wait to the driver, unless it's already there.
+     */
+    private void applyImplicitWait()
     {
-        if ( webDriver == null )
+        long implicitWait = getImplicitWait();
+        if ( webDriver != null && implicitWait != appliedImplicitWait )
         {
-            return;
+            webDriver.manage().timeouts().implicitlyWait( Duration.ofMillis( implicitWait ) );
+            appliedImplicitWait = implicitWait;
         }
+    }
 
-        String filename = format(
-                "screenshot-%05d-%s.jpg",
-                screenshotId++,
-                key.replaceAll( " ", "-" ) );
-
-        File tempScreenshot = ( ( TakesScreenshot ) webDriver ).getScreenshotAs( OutputType.FILE );
-        Path targetScreenshot = Paths.get( screenshotDirectory, filename );
-
-        if ( ! targetScreenshot.toFile().getParentFile().mkdirs() )
+    public < T > T withImplicitWait( long implicitWaitMillis, Supplier< T > action )
+    {
+        setImplicitWait( implicitWaitMillis );
+        try
         {
-            // ignored
+            return action.get();
         }
-
-        try
+        finally
         {
-            Files.copy( tempScreenshot.toPath(), targetScreenshot, StandardCopyOption.REPLACE_EXISTING );
-
-            System.out.printf( "Saved screenshot: %s%n", targetScreenshot );
-
-            if ( ! tempScreenshot.delete() )
-            {
-                System.out.printf( "Failed to delete temp screenshot: %s%n", tempScreenshot );
-            }
+            resetImplicitWait();
         }
-        catch ( IOException e )
+    }
+
+    public void saveScreenshot( String key )
+    {
+        if ( webDriver == null )
         {
-            throw new IllegalArgumentException( format( "Failed to copy screenshot: %s", targetScreenshot ), e );
+            return;
         }
+        metrics.time( "screenshot", key, () -> writeScreenshot( key ) );
+    }
+
+    private void writeScreenshot( String key )
+    {
+        byte[] png = ( ( TakesScreenshot ) webDriver ).getScreenshotAs( OutputType.BYTES );
+        screenshotWriter.submit( key, png );
+    }
+
+    public String getScreenshotDirectory()
+    {
+        return screenshotWriter.getDirectory();
+    }
+
+    public void setScreenshotDirectory( String screenshotDirectory )
+    {
+        screenshotWriter.setDirectory( screenshotDirectory );
     }
 }
@@ -6,6 +6,7 @@ import com.brentcroft.tools.model.ModelInspectorDialog;
 
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.List;
 import java.util.Map;
 
 import static java.lang.String.format;
@@ -23,6 +24,27 @@ public class BrowserELFunctions
         el.mapFunction(
                 "newItemFromXml",
                 BrowserELFunctions.class.getMethod("newItemFromXml", String.class) );
+        el.mapFunction(
+                "readAll",
+                BrowserELFunctions.class.getMethod("readAll", ModelItem.class, List.class) );
+        el.mapFunction(
+                "compiledStepsStats",
+                BrowserELFunctions.class.getMethod("compiledStepsStats") );
+        el.mapFunction(
+                "metrics",
+                BrowserELFunctions.class.getMethod("metrics", ModelItem.class, String.class) );
+    }
+
+    public static List< Map< String, Object > > metrics(ModelItem item, String operation) {
+        return item.getBrowser().getMetrics().query( operation );
+    }
+
+    public static Map< String, Object > compiledStepsStats() {
+        return ModelItem.getCompiledSteps().getStats();
+    }
+
+    public static Map< String, Object > readAll(ModelItem item, List< String > attributes) {
+        return item.readAll( attributes );
     }
 
     public static Model newItemFromXml(String xmlFile) {
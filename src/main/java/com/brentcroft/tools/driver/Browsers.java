@@ -1,20 +1,55 @@
 package com.brentcroft.tools.driver;
 
+import lombok.Getter;
+import lombok.Setter;
+
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
-import java.util.HashMap;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
 
 import static java.lang.String.format;
 
-public class Browsers extends HashMap<String, Browser>
+/**
+ * A registry of named browsers, one registry per thread,
+ * so that scenarios running in parallel each get their own default browser
+ * and their own page models.
+ * <p>
+ * Named browsers are visible to EL by name only in evaluations on the owning thread
+ * (see {@link ModelItem#newContainer()}).
+ * <p>
+ * A registry is forgotten once it's closed completely,
+ * and registers again if its thread goes on using it.
+ */
+public class Browsers extends ConcurrentHashMap<String, Browser>
 {
-    private static final Browsers instance = new Browsers();
+    // registries are maps, so they're kept by identity
+    private static final Set< Browsers > registries = Collections.synchronizedSet( Collections.newSetFromMap( new IdentityHashMap<>() ) );
+    private static final ThreadLocal< Browsers > instance = ThreadLocal.withInitial( Browsers::new );
     private static final String DEFAULT = "default";
+    private static final long DEFAULT_SCREENSHOT_TIMEOUT_MILLIS = 10000;
+    private static final long DEFAULT_TEARDOWN_TIMEOUT_MILLIS = 15000;
+    private static final ExecutorService hooks = Executors.newCachedThreadPool( runnable -> {
+        Thread thread = new Thread( runnable, "browsers-hook" );
+        thread.setDaemon( true );
+        return thread;
+    } );
     private final Browser defaultBrowser = new Browser();
 
+    @Getter
+    @Setter
+    private long teardownTimeoutMillis = DEFAULT_TEARDOWN_TIMEOUT_MILLIS;
+
     public static Browsers instance() {
-        return instance;
+        Browsers browsers = instance.get();
+        registries.add( browsers );
+        return browsers;
+    }
+
+    static boolean isRegistered( Browsers browsers ) {
+        return registries.contains( browsers );
     }
 
     private Browsers() {
@@ -27,9 +62,6 @@ public class Browsers extends HashMap<String, Browser>
     public static PageModel newBrowser(String key) {
         Browser browser = new Browser();
         instance().put(key, browser);
-        ModelItem
-                .staticModel
-                .put( key, browser.getPageModel() );
         return browser.getPageModel();
     }
 
@@ -37,32 +69,134 @@ public class Browsers extends HashMap<String, Browser>
         return defaultBrowser;
     }
 
+    Optional< PageModel > getNamedModel( String key ) {
+        return DEFAULT.equals( key )
+               ? Optional.empty()
+               : Optional.ofNullable( get( key ) ).map( Browser::getPageModel );
+    }
+
     public void saveScreenshots(String key) {
+        saveScreenshots( key, DEFAULT_SCREENSHOT_TIMEOUT_MILLIS );
+    }
+
+    /**
+     * Take a screenshot of every open browser at once,
+     * waiting no longer than the timeout for any of them.
+     * <p>
+     * Failures, including timeouts, are thrown together once every browser is done or abandoned.
+     */
+    public void saveScreenshots(String key, long timeoutMillis) {
+        Map< String, Future< ? > > captures = new LinkedHashMap<>();
         forEach((browserKey, browser) -> {
-            browser.saveScreenshot( format("%s-%s", browserKey, key) );
+            if ( browser.getWebDriver() != null ) {
+                captures.put( browserKey, hooks.submit( () -> browser.saveScreenshot( format("%s-%s", browserKey, key) ) ) );
+            }
         });
-    }
 
-    public void close() {
-        forEach((key, browser) -> {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos( timeoutMillis );
+        Map< String, Throwable > failures = new LinkedHashMap<>();
+        for ( Map.Entry< String, Future< ? > > capture : captures.entrySet() ) {
             try {
-                System.out.printf( "Closing browser: %s%n", key);
-                browser.close();
-            } catch (Exception e) {
-                e.printStackTrace();
+                capture.getValue().get( Math.max( 0, deadline - System.nanoTime() ), TimeUnit.NANOSECONDS );
+            } catch ( ExecutionException e ) {
+                failures.put( capture.getKey(), e.getCause() );
+            } catch ( TimeoutException e ) {
+                capture.getValue().cancel( true );
+                failures.put( capture.getKey(), new TimeoutException( format( "Screenshot timed out after %s ms: %s", timeoutMillis, capture.getKey() ) ) );
+            } catch ( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                captures.values().forEach( f -> f.cancel( true ) );
+                failures.put( capture.getKey(), e );
+                break;
             }
+        }
+        if ( ! failures.isEmpty() ) {
+            IllegalStateException failed = new IllegalStateException(
+                    format( "Failed to save screenshots: %s; browsers: %s", key, new ArrayList<>( failures.keySet() ) ) );
+            failures.values().forEach( failed::addSuppressed );
+            throw failed;
+        }
+    }
 
-        });
+    /**
+     * Run afters and quit the driver of every browser at once (see {@link #teardown}).
+     */
+    public Map< String, String > close() {
+        return teardown( "Closing browser", Browser::close );
+    }
+
+    /**
+     * Run after alls and quit the driver of every browser in this registry at once, then forget the registry.
+     * <p>
+     * Pooled drivers and driver services are shared with other threads' registries,
+     * so are left running (see {@link #closeAllCompletely}).
+     */
+    public Map< String, String > closeCompletely() {
+        Map< String, String > summary = teardown( "Closing browser completely", Browser::closeCompletely );
+        registries.remove( this );
+        return summary;
     }
-    public void closeCompletely() {
-        forEach((key, browser) -> {
+
+    /**
+     * Tear down every browser at once, giving all of them no longer than <code>teardownTimeoutMillis</code>.
+     * <p>
+     * A browser still tearing down at the deadline has its driver process killed, if no other session uses it,
+     * or is otherwise abandoned.
+     * Each tear down runs with this registry bound to its thread, so after scripts still see the named browsers.
+     *
+     * @return the outcome for each browser: closed, failed, or timed out
+     */
+    private Map< String, String > teardown( String action, Consumer< Browser > closer ) {
+        Map< String, Browser > browsers = new LinkedHashMap<>( this );
+        Map< String, Future< ? > > teardowns = new LinkedHashMap<>();
+        browsers.forEach((key, browser) -> teardowns.put( key, hooks.submit( () -> {
+            instance.set( this );
             try {
-                System.out.printf( "Closing browser completely: %s%n", key);
-                browser.closeCompletely();
-            } catch (Exception e) {
-                e.printStackTrace();
+                System.out.printf( "%s: %s%n", action, key);
+                closer.accept( browser );
+            } finally {
+                instance.remove();
             }
-        });
+        } ) ) );
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos( teardownTimeoutMillis );
+        Map< String, String > summary = new LinkedHashMap<>();
+        for ( Map.Entry< String, Future< ? > > teardown : teardowns.entrySet() ) {
+            String key = teardown.getKey();
+            try {
+                teardown.getValue().get( Math.max( 0, deadline - System.nanoTime() ), TimeUnit.NANOSECONDS );
+                summary.put( key, "closed" );
+            } catch ( ExecutionException e ) {
+                e.getCause().printStackTrace();
+                summary.put( key, format( "failed: %s", e.getCause() ) );
+            } catch ( TimeoutException e ) {
+                teardown.getValue().cancel( true );
+                summary.put( key, browsers.get( key ).forceQuit() ? "timed out: killed" : "timed out: abandoned" );
+            } catch ( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                teardowns.values().forEach( f -> f.cancel( true ) );
+                summary.put( key, "interrupted" );
+                break;
+            }
+        }
+        if ( summary.values().stream().anyMatch( outcome -> ! "closed".equals( outcome ) ) ) {
+            System.out.printf( "%s: not all closed within %s ms: %s%n", action, teardownTimeoutMillis, summary );
+        }
+        return summary;
+    }
+
+    /**
+     * Close completely the browsers of every thread's registry,
+     * then quit the idle pooled drivers, and stop the driver services no longer in use.
+     */
+    public static void closeAllCompletely() {
+        List< Browsers > all;
+        synchronized ( registries ) {
+            all = new ArrayList<>( registries );
+        }
+        all.forEach( Browsers::closeCompletely );
+        DriverPool.instance().shutdown();
+        DriverServices.instance().shutdown();
     }
 
     public Object execute( String steps) {
@@ -91,7 +225,7 @@ public class Browsers extends HashMap<String, Browser>
             instance().executeFile( args[0] );
         } finally {
             instance().close();
-            instance().closeCompletely();
+            closeAllCompletely();
         }
     }
 }
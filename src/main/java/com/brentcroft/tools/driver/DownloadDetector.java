@@ -0,0 +1,234 @@
+package com.brentcroft.tools.driver;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static java.lang.String.format;
+
+/**
+ * Waits for a completed download whose name matches a pattern.
+ * <p>
+ * The pattern is a file name, or a <code>glob:</code> or <code>regex:</code> pattern of file names.
+ * Files with a browser temp suffix (<code>.crdownload</code>, <code>.part</code>, <code>.tmp</code>) never match,
+ * and a match is complete only when it has no such temp sibling and either
+ * it has replaced a temp file seen earlier or its size and modified time have been stable for <code>stableMillis</code>.
+ * <p>
+ * Directory changes are watched with a WatchService where there is one, and polled otherwise.
+ */
+public class DownloadDetector
+{
+    static final List< String > TEMP_SUFFIXES = Arrays.asList( ".crdownload", ".part", ".tmp" );
+
+    // bounds every wait, in case an event goes missing or the watch service is itself polling
+    private static final long RESCAN_MILLIS = 250;
+    private static final long POLL_MILLIS = 50;
+
+    // some file systems only keep modified times to the second
+    private static final long COARSE_MTIME_MILLIS = 1000;
+
+    private final Path directory;
+    private final String pattern;
+    private final PathMatcher matcher;
+    private final long stableMillis;
+
+    private final Set< String > renamed = new HashSet<>();
+    private final Map< Path, Observation > observations = new HashMap<>();
+
+    private static class Observation
+    {
+        private final long size;
+        private final long modified;
+        private final long since;
+
+        private Observation( long size, long modified, long since )
+        {
+            this.size = size;
+            this.modified = modified;
+            this.since = since;
+        }
+    }
+
+    public DownloadDetector( Path directory, String pattern, long stableMillis )
+    {
+        this.directory = directory;
+        this.pattern = pattern;
+        this.matcher = matcher( pattern );
+        this.stableMillis = stableMillis;
+    }
+
+    static PathMatcher matcher( String pattern )
+    {
+        if ( pattern.startsWith( "glob:" ) || pattern.startsWith( "regex:" ) )
+        {
+            return FileSystems.getDefault().getPathMatcher( pattern );
+        }
+        return path -> path.toString().equals( pattern );
+    }
+
+    static String tempSuffix( String filename )
+    {
+        return TEMP_SUFFIXES
+                .stream()
+                .filter( filename::endsWith )
+                .findFirst()
+                .orElse( null );
+    }
+
+    /**
+     * Block until a completed download matches, returning its path,
+     * or throw IllegalArgumentException after the timeout.
+     */
+    public Path await( long timeoutMillis )
+    {
+        long started = System.currentTimeMillis();
+        long deadline = started + timeoutMillis;
+
+        WatchService watcher = newWatcher();
+        try
+        {
+            while ( true )
+            {
+                Optional< Path > completed = scan();
+                if ( completed.isPresent() )
+                {
+                    return completed.get();
+                }
+                long remaining = deadline - System.currentTimeMillis();
+                if ( remaining <= 0 )
+                {
+                    throw new IllegalArgumentException( format(
+                            "Timed out waiting to detect [%s] in downloads (after %.2f seconds).",
+                            pattern,
+                            Long.valueOf( System.currentTimeMillis() - started ).doubleValue() / 1000
+                    ) );
+                }
+                // a match waiting to be stable is re-examined without an event
+                long wait = Math.min( remaining, observations.isEmpty() ? RESCAN_MILLIS : Math.min( RESCAN_MILLIS, stableMillis ) );
+                if ( watcher != null )
+                {
+                    WatchKey key = watcher.poll( Math.max( 1, wait ), TimeUnit.MILLISECONDS );
+                    if ( key != null )
+                    {
+                        key.pollEvents();
+                        key.reset();
+                    }
+                }
+                else
+                {
+                    Thread.sleep( Math.min( wait, POLL_MILLIS ) );
+                }
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalArgumentException( format( "Interrupted waiting to detect [%s] in downloads", pattern ), e );
+        }
+        finally
+        {
+            if ( watcher != null )
+            {
+                try
+                {
+                    watcher.close();
+                }
+                catch ( IOException ignored )
+                {
+                    // nothing more to watch
+                }
+            }
+        }
+    }
+
+    private WatchService newWatcher()
+    {
+        try
+        {
+            WatchService watcher = directory.getFileSystem().newWatchService();
+            directory.register(
+                    watcher,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY,
+                    StandardWatchEventKinds.ENTRY_DELETE );
+            return watcher;
+        }
+        catch ( IOException | UnsupportedOperationException e )
+        {
+            return null;
+        }
+    }
+
+    private Optional< Path > scan()
+    {
+        Set< String > names = new HashSet<>();
+        try ( Stream< Path > files = Files.list( directory ) )
+        {
+            files.forEach( file -> names.add( file.getFileName().toString() ) );
+        }
+        catch ( IOException e )
+        {
+            return Optional.empty();
+        }
+
+        // remember downloads seen in progress, to know them when they're renamed
+        names
+                .stream()
+                .filter( name -> tempSuffix( name ) != null )
+                .forEach( name -> renamed.add( name.substring( 0, name.length() - tempSuffix( name ).length() ) ) );
+
+        long now = System.currentTimeMillis();
+        for ( String name : names )
+        {
+            Path file = directory.resolve( name );
+            if ( tempSuffix( name ) != null
+                    || ! matcher.matches( file.getFileName() )
+                    || TEMP_SUFFIXES.stream().anyMatch( suffix -> names.contains( name + suffix ) ) )
+            {
+                observations.remove( file );
+                continue;
+            }
+            BasicFileAttributes attributes;
+            try
+            {
+                attributes = Files.readAttributes( file, BasicFileAttributes.class );
+            }
+            catch ( IOException e )
+            {
+                // gone again
+                continue;
+            }
+            if ( ! attributes.isRegularFile() )
+            {
+                continue;
+            }
+            if ( renamed.contains( name ) )
+            {
+                return Optional.of( file );
+            }
+            Observation last = observations.get( file );
+            long modified = attributes.lastModifiedTime().toMillis();
+            if ( last == null && now - modified >= stableMillis + COARSE_MTIME_MILLIS )
+            {
+                // untouched for long enough already
+                return Optional.of( file );
+            }
+            if ( last == null || last.size != attributes.size() || last.modified != modified )
+            {
+                observations.put( file, new Observation( attributes.size(), modified, now ) );
+                if ( stableMillis <= 0 )
+                {
+                    return Optional.of( file );
+                }
+            }
+            else if ( now - last.since >= stableMillis )
+            {
+                return Optional.of( file );
+            }
+        }
+        return Optional.empty();
+    }
+}
@@ -6,7 +6,13 @@ import lombok.Setter;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Stream;
 
 import static java.lang.String.format;
@@ -15,7 +21,16 @@ import static java.lang.String.format;
 @Setter
 public class Downloads
 {
+    private static final long DEFAULT_STABLE_MILLIS = 250;
+    private static final ExecutorService detectors = Executors.newCachedThreadPool( runnable -> {
+        Thread thread = new Thread( runnable, "download-detector" );
+        thread.setDaemon( true );
+        return thread;
+    } );
+
     private File directory;
+    private MetricsRegistry metrics = MetricsRegistry.NONE;
+    private long stableMillis = DEFAULT_STABLE_MILLIS;
 
     public String getDownloadPath()
     {
@@ -108,29 +123,71 @@ public class Downloads
         return numMoved[ 0 ];
     }
 
-    public void detect( String filename, long millisTimeout )
+    /**
+     * Wait for a completed download, named exactly or by a <code>glob:</code> or <code>regex:</code> pattern
+     * (see DownloadDetector), returning its path.
+     */
+    public Path detect( String pattern, long millisTimeout )
     {
-        long started = System.currentTimeMillis();
-        long timeoutMillis = started + millisTimeout;
-
-        while ( ! new File( directory, filename ).exists() && ( timeoutMillis > System.currentTimeMillis() ) )
+        if ( directory == null )
         {
-            try
-            {
-                Thread.sleep( 100 );
-            }
-            catch ( InterruptedException e )
-            {
-                e.printStackTrace();
-            }
+            throw new IllegalArgumentException( "directory is null" );
         }
-        if ( ! new File( directory, filename ).exists() )
+        return metrics.time(
+                "detect",
+                pattern,
+                () -> new DownloadDetector( directory.toPath(), pattern, stableMillis ).await( millisTimeout ) );
+    }
+
+    public CompletableFuture< Path > detectAsync( String pattern, long millisTimeout )
+    {
+        return CompletableFuture.supplyAsync( () -> detect( pattern, millisTimeout ), detectors );
+    }
+
+    /**
+     * A streaming verifier of a download, named relative to the downloads directory, or absolute.
+     */
+    public FileVerifier verifier( String filename )
+    {
+        if ( directory == null )
         {
-            throw new IllegalArgumentException( format(
-                    "Timed out waiting to detect [%s] in downloads (after %.2f seconds).",
-                    filename,
-                    Long.valueOf( System.currentTimeMillis() - started ).doubleValue() / 1000
-            ) );
+            throw new IllegalArgumentException( "directory is null" );
         }
+        return new FileVerifier( directory.toPath().resolve( filename ) );
+    }
+
+    public Map< String, Object > verify( String filename )
+    {
+        return verifier( filename ).summary();
+    }
+
+    public String sha256( String filename )
+    {
+        return verifier( filename ).sha256();
+    }
+
+    public String crc32( String filename )
+    {
+        return verifier( filename ).crc32();
+    }
+
+    public long lines( String filename )
+    {
+        return verifier( filename ).lines();
+    }
+
+    public long records( String filename )
+    {
+        return verifier( filename ).records();
+    }
+
+    public Map< String, Object > search( String filename, String regex )
+    {
+        return verifier( filename ).search( regex );
+    }
+
+    public List< Map< String, Object > > zipEntries( String filename )
+    {
+        return verifier( filename ).zipEntries();
     }
 }
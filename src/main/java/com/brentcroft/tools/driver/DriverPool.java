@@ -0,0 +1,319 @@
+package com.brentcroft.tools.driver;
+
+import lombok.Getter;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chromium.HasCdp;
+
+import java.net.URI;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Keeps released WebDrivers warm, per driver signature
+ * (driver model, path, arguments, headless and download directory),
+ * so the next Browser to open with the same signature can reuse one
+ * instead of paying for a cold start.
+ * <p>
+ * A released driver is reset (cookies, storage, extra windows, <code>about:blank</code>)
+ * before it is pooled, and is quit instead if the reset fails,
+ * if it has reached its maximum reuse count,
+ * or if it stays idle for longer than the idle timeout.
+ * <p>
+ * Storage is per origin, so the origins a leased driver visits are remembered
+ * (from <code>visited()</code>, and the windows open at release),
+ * and the storage of each of them is cleared on reset:
+ * with CDP <code>Storage.clearDataForOrigin</code> where there is CDP,
+ * and otherwise by visiting each origin to clear it.
+ * Scripts a lease added to every new document (see <code>addedScript()</code>) are removed, with CDP.
+ * <p>
+ * A driver made for the pool can come with what to do once it's quit for good,
+ * e.g. to release the driver service it runs on.
+ */
+public class DriverPool
+{
+    private static final String CLEAR_STORAGE_SCRIPT = ScriptId.mark( ScriptId.CLEAR_STORAGE,
+            "try { window.localStorage.clear(); window.sessionStorage.clear(); } catch ( e ) {}",
+            "try {",
+            "    window.indexedDB.databases().then( function( dbs ) {",
+            "        dbs.forEach( function( db ) { window.indexedDB.deleteDatabase( db.name ); } );",
+            "    } );",
+            "} catch ( e ) {}" );
+    private static final Runnable NOTHING = () -> {
+    };
+
+    private static final DriverPool instance = new DriverPool();
+
+    private final Map< String, Deque< Entry > > idle = new HashMap<>();
+    private final Map< WebDriver, Entry > leased = new IdentityHashMap<>();
+
+    public static DriverPool instance()
+    {
+        return instance;
+    }
+
+    private DriverPool()
+    {
+        Runtime.getRuntime().addShutdownHook( new Thread( this::shutdown, "driver-pool-shutdown" ) );
+    }
+
+    @Getter
+    public static class Settings
+    {
+        private final int poolSize;
+        private final int maxReuse;
+        private final long idleMillis;
+
+        public Settings( int poolSize, int maxReuse, long idleMillis )
+        {
+            this.poolSize = poolSize;
+            this.maxReuse = maxReuse;
+            this.idleMillis = idleMillis;
+        }
+
+        public boolean isEnabled()
+        {
+            return poolSize > 0;
+        }
+    }
+
+    private static class Entry
+    {
+        private final String signature;
+        private final Settings settings;
+        private final WebDriver driver;
+        private final Runnable onDispose;
+        private final Set< String > origins = new LinkedHashSet<>();
+        private final List< String > scripts = new ArrayList<>();
+        private int uses;
+        private long idleSince;
+
+        private Entry( String signature, Settings settings, WebDriver driver, Runnable onDispose )
+        {
+            this.signature = signature;
+            this.settings = settings;
+            this.driver = driver;
+            this.onDispose = onDispose;
+        }
+    }
+
+    public WebDriver acquire( String signature, Settings settings, Supplier< WebDriver > factory )
+    {
+        return acquire( signature, settings, factory, () -> NOTHING );
+    }
+
+    /**
+     * A pooled driver, or else a new one from the factory,
+     * along with what to do once it's quit for good, asked for just after it's made.
+     */
+    public WebDriver acquire( String signature, Settings settings, Supplier< WebDriver > factory, Supplier< Runnable > onDispose )
+    {
+        takeExpired().forEach( this::dispose );
+        Entry entry = takeIdle( signature );
+        if ( entry == null )
+        {
+            WebDriver driver = factory.get();
+            entry = new Entry( signature, settings, driver, onDispose.get() );
+        }
+        synchronized ( this )
+        {
+            leased.put( entry.driver, entry );
+        }
+        return entry.driver;
+    }
+
+    /**
+     * Remember that a leased driver has been to the url, so its origin's storage is cleared on release.
+     */
+    public synchronized void visited( WebDriver driver, String url )
+    {
+        Entry entry = leased.get( driver );
+        String origin = origin( url );
+        if ( entry != null && origin != null )
+        {
+            entry.origins.add( origin );
+        }
+    }
+
+    /**
+     * Remember the identifier of a script a leased driver has added to every new document
+     * (with CDP <code>Page.addScriptToEvaluateOnNewDocument</code>), so it's removed on release,
+     * rather than added once more by each lease.
+     */
+    public synchronized void addedScript( WebDriver driver, String identifier )
+    {
+        Entry entry = leased.get( driver );
+        if ( entry != null )
+        {
+            entry.scripts.add( identifier );
+        }
+    }
+
+    static String origin( String url )
+    {
+        try
+        {
+            URI uri = URI.create( url );
+            if ( ! "http".equals( uri.getScheme() ) && ! "https".equals( uri.getScheme() ) || uri.getHost() == null )
+            {
+                return null;
+            }
+            return uri.getPort() < 0
+                   ? uri.getScheme() + "://" + uri.getHost()
+                   : uri.getScheme() + "://" + uri.getHost() + ":" + uri.getPort();
+        }
+        catch ( IllegalArgumentException | NullPointerException e )
+        {
+            return null;
+        }
+    }
+
+    private synchronized Entry takeIdle( String signature )
+    {
+        Deque< Entry > entries = idle.get( signature );
+        return entries == null
+               ? null
+               : entries.pollFirst();
+    }
+
+    public void release( WebDriver driver )
+    {
+        Entry entry;
+        synchronized ( this )
+        {
+            entry = leased.remove( driver );
+        }
+        if ( entry == null )
+        {
+            quit( driver );
+            return;
+        }
+        entry.uses++;
+        if ( entry.uses >= entry.settings.getMaxReuse() || ! reset( driver, entry.origins, entry.scripts ) )
+        {
+            dispose( entry );
+            return;
+        }
+        entry.idleSince = System.currentTimeMillis();
+
+        List< Entry > surplus = new ArrayList<>();
+        synchronized ( this )
+        {
+            Deque< Entry > entries = idle.computeIfAbsent( entry.signature, k -> new ArrayDeque<>() );
+            entries.addFirst( entry );
+            while ( entries.size() > entry.settings.getPoolSize() )
+            {
+                surplus.add( entries.pollLast() );
+            }
+        }
+        surplus.addAll( takeExpired() );
+        surplus.forEach( this::dispose );
+    }
+
+    private synchronized List< Entry > takeExpired()
+    {
+        long now = System.currentTimeMillis();
+        List< Entry > expired = new ArrayList<>();
+        idle.values().forEach( entries -> entries.removeIf( entry -> {
+            if ( now - entry.idleSince > entry.settings.getIdleMillis() )
+            {
+                expired.add( entry );
+                return true;
+            }
+            return false;
+        } ) );
+        return expired;
+    }
+
+    public void shutdown()
+    {
+        List< Entry > entries = new ArrayList<>();
+        synchronized ( this )
+        {
+            idle.values().forEach( entries::addAll );
+            idle.clear();
+        }
+        entries.forEach( this::dispose );
+    }
+
+    private boolean reset( WebDriver driver, Set< String > origins, List< String > scripts )
+    {
+        try
+        {
+            Iterator< String > handles = driver.getWindowHandles().iterator();
+            String keep = handles.next();
+            while ( handles.hasNext() )
+            {
+                driver.switchTo().window( handles.next() );
+                Optional.ofNullable( origin( driver.getCurrentUrl() ) ).ifPresent( origins::add );
+                driver.close();
+            }
+            driver.switchTo().window( keep );
+            driver.switchTo().defaultContent();
+            Optional.ofNullable( origin( driver.getCurrentUrl() ) ).ifPresent( origins::add );
+
+            if ( driver instanceof HasCdp )
+            {
+                HasCdp cdp = ( HasCdp ) driver;
+                for ( String identifier : scripts )
+                {
+                    cdp.executeCdpCommand(
+                            "Page.removeScriptToEvaluateOnNewDocument",
+                            Collections.singletonMap( "identifier", identifier ) );
+                }
+                for ( String origin : origins )
+                {
+                    Map< String, Object > parameters = new HashMap<>();
+                    parameters.put( "origin", origin );
+                    parameters.put( "storageTypes", "all" );
+                    cdp.executeCdpCommand( "Storage.clearDataForOrigin", parameters );
+                }
+                cdp.executeCdpCommand( "Network.clearBrowserCookies", Collections.emptyMap() );
+                cdp.executeCdpCommand( "Network.clearBrowserCache", Collections.emptyMap() );
+            }
+            else
+            {
+                // storage and cookies can only be cleared from a page of their origin
+                for ( String origin : origins )
+                {
+                    driver.get( origin + "/" );
+                    ( ( JavascriptExecutor ) driver ).executeScript( CLEAR_STORAGE_SCRIPT );
+                    driver.manage().deleteAllCookies();
+                }
+            }
+            origins.clear();
+            scripts.clear();
+            driver.get( "about:blank" );
+            return true;
+        }
+        catch ( Exception e )
+        {
+            System.out.printf( "Failed to reset pooled driver: %s%n", e );
+            return false;
+        }
+    }
+
+    private void dispose( Entry entry )
+    {
+        try
+        {
+            quit( entry.driver );
+        }
+        finally
+        {
+            entry.onDispose.run();
+        }
+    }
+
+    private void quit( WebDriver driver )
+    {
+        try
+        {
+            driver.quit();
+        }
+        catch ( Exception e )
+        {
+            System.out.printf( "Failed to quit pooled driver: %s%n", e );
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package com.brentcroft.tools.driver;
+
+import org.openqa.selenium.chrome.ChromeDriverService;
+import org.openqa.selenium.edge.EdgeDriverService;
+import org.openqa.selenium.remote.service.DriverService;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+import static java.lang.String.format;
+
+/**
+ * One running driver process (chromedriver, msedgedriver) per driver model and path,
+ * shared by every Browser session that uses it,
+ * so only the first session pays for the process start and port negotiation.
+ * <p>
+ * A service is started outside the lock, so starting one doesn't hold up sessions on any other,
+ * and sessions asking for it while it starts wait for the same start.
+ * <p>
+ * A service is stopped by <code>shutdown()</code> once it has no open sessions,
+ * and every service is stopped when the JVM exits.
+ */
+public class DriverServices
+{
+    private static final int SESSION_DELETE_TIMEOUT_MILLIS = 5000;
+
+    private static final DriverServices instance = new DriverServices();
+
+    private final Map< String, Entry > services = new HashMap<>();
+
+    public static DriverServices instance()
+    {
+        return instance;
+    }
+
+    private DriverServices()
+    {
+        Runtime.getRuntime().addShutdownHook( new Thread( this::stopAll, "driver-services-shutdown" ) );
+    }
+
+    private static class Entry
+    {
+        private final String driverPath;
+        private final CompletableFuture< DriverService > started = new CompletableFuture<>();
+        private int sessions;
+
+        private Entry( String driverPath )
+        {
+            this.driverPath = driverPath;
+        }
+
+        /**
+         * The service, once it has started, or else null.
+         */
+        private DriverService service()
+        {
+            return started.isDone() && ! started.isCompletedExceptionally()
+                   ? started.join()
+                   : null;
+        }
+
+        private boolean isStopped()
+        {
+            DriverService service = service();
+            return service != null && ! service.isRunning();
+        }
+    }
+
+    /**
+     * The running service for the driver, started if need be, counting one more session on it.
+     */
+    public DriverService acquire( String driverModel, String driverPath )
+    {
+        return acquire( driverModel + ":" + driverPath, driverPath, () -> newService( driverModel, driverPath ) );
+    }
+
+    DriverService acquire( String key, String driverPath, Supplier< DriverService > newService )
+    {
+        Entry entry;
+        boolean starting = false;
+        synchronized ( this )
+        {
+            entry = services.get( key );
+            if ( entry == null || entry.isStopped() )
+            {
+                entry = new Entry( driverPath );
+                services.put( key, entry );
+                starting = true;
+            }
+            entry.sessions++;
+        }
+        if ( starting )
+        {
+            start( key, entry, newService );
+        }
+        try
+        {
+            return entry.started.join();
+        }
+        catch ( CompletionException e )
+        {
+            throw ( RuntimeException ) e.getCause();
+        }
+    }
+
+    private void start( String key, Entry entry, Supplier< DriverService > newService )
+    {
+        try
+        {
+            DriverService service = newService.get();
+            service.start();
+            System.out.printf( "Started driver service: %s at %s%n", entry.driverPath, service.getUrl() );
+            entry.started.complete( service );
+        }
+        catch ( IOException | RuntimeException e )
+        {
+            synchronized ( this )
+            {
+                services.remove( key, entry );
+            }
+            entry.started.completeExceptionally( e instanceof RuntimeException
+                                                 ? e
+                                                 : new IllegalArgumentException( format( "Failed to start driver: %s", entry.driverPath ), e ) );
+        }
+    }
+
+    /**
+     * A session on the service has quit.
+     */
+    public synchronized void release( DriverService service )
+    {
+        find( service ).ifPresent( entry -> entry.sessions = Math.max( 0, entry.sessions - 1 ) );
+    }
+
+    /**
+     * A session on the service has hung: stop the service if no other session uses it,
+     * killing the driver process, and every browser it started, first;
+     * or else ask the service to delete just the hung session, giving it no longer than a few seconds.
+     * <p>
+     * The hung session is still released by its own quit, if that ever returns.
+     *
+     * @param sessionId the hung session, if known
+     * @return true if the service was stopped, or the session deleted
+     */
+    public boolean kill( DriverService service, String sessionId )
+    {
+        Entry entry;
+        boolean shared;
+        synchronized ( this )
+        {
+            Optional< Entry > found = find( service );
+            if ( ! found.isPresent() )
+            {
+                return false;
+            }
+            entry = found.get();
+            shared = entry.sessions > 1;
+            if ( ! shared )
+            {
+                services.values().remove( entry );
+            }
+        }
+        if ( shared )
+        {
+            return sessionId != null && deleteSession( service, sessionId );
+        }
+        // stopping the service would only kill the driver, and leave its browsers running
+        ProcessTrees.kill( new File( entry.driverPath ).getName(), "--port=" + service.getUrl().getPort() );
+        stop( service );
+        return true;
+    }
+
+    private static boolean deleteSession( DriverService service, String sessionId )
+    {
+        HttpURLConnection connection = null;
+        try
+        {
+            URL url = new URL( service.getUrl(), "/session/" + sessionId );
+            connection = ( HttpURLConnection ) url.openConnection();
+            connection.setRequestMethod( "DELETE" );
+            connection.setConnectTimeout( SESSION_DELETE_TIMEOUT_MILLIS );
+            connection.setReadTimeout( SESSION_DELETE_TIMEOUT_MILLIS );
+            int status = connection.getResponseCode();
+            System.out.printf( "Deleting hung session: %s; status=%s%n", url, status );
+            return status >= 200 && status < 300;
+        }
+        catch ( IOException e )
+        {
+            System.out.printf( "Failed to delete hung session: %s; %s%n", sessionId, e );
+            return false;
+        }
+        finally
+        {
+            Optional.ofNullable( connection ).ifPresent( HttpURLConnection::disconnect );
+        }
+    }
+
+    /**
+     * Stop every service without open sessions.
+     */
+    public void shutdown()
+    {
+        List< DriverService > stopping = new ArrayList<>();
+        synchronized ( this )
+        {
+            services.values().removeIf( entry -> {
+                if ( entry.sessions > 0 || entry.service() == null )
+                {
+                    return false;
+                }
+                stopping.add( entry.service() );
+                return true;
+            } );
+        }
+        stopping.forEach( this::stop );
+    }
+
+    private void stopAll()
+    {
+        List< DriverService > stopping = new ArrayList<>();
+        synchronized ( this )
+        {
+            services
+                    .values()
+                    .stream()
+                    .map( Entry::service )
+                    .filter( Objects::nonNull )
+                    .forEach( stopping::add );
+            services.clear();
+        }
+        stopping.forEach( this::stop );
+    }
+
+    private Optional< Entry > find( DriverService service )
+    {
+        return services
+                .values()
+                .stream()
+                .filter( entry -> entry.service() == service )
+                .findFirst();
+    }
+
+    private void stop( DriverService service )
+    {
+        try
+        {
+            System.out.printf( "Stopping driver service: %s%n", service.getUrl() );
+            service.stop();
+        }
+        catch ( Exception e )
+        {
+            System.out.printf( "Failed to stop driver service: %s%n", e );
+        }
+    }
+
+    private static DriverService newService( String driverModel, String driverPath )
+    {
+        switch ( driverModel )
+        {
+            case "chrome":
+                return new ChromeDriverService.Builder()
+                        .usingDriverExecutable( new File( driverPath ) )
+                        .usingAnyFreePort()
+                        .build();
+
+            case "edge":
+                return new EdgeDriverService.Builder()
+                        .usingDriverExecutable( new File( driverPath ) )
+                        .usingAnyFreePort()
+                        .build();
+
+            default:
+                throw new IllegalArgumentException( "No driver service for driver model: " + driverModel );
+        }
+    }
+}
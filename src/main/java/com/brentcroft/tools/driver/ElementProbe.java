@@ -0,0 +1,126 @@
+package com.brentcroft.tools.driver;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Objects.nonNull;
+
+/**
+ * Tests existence, or counts matches, of a ModelElement's locator in the browser,
+ * returning only a number rather than a reference for every matching element.
+ * <p>
+ * Frames are switched, and shadow hosts resolved, as for <code>getWebElement()</code>.
+ */
+public class ElementProbe
+{
+    static final String SCRIPT = ScriptId.mark( ScriptId.PROBE,
+            "var host = arguments[ 0 ], l = arguments[ 1 ], first = arguments[ 2 ];",
+            "var root = host ? host.shadowRoot : document;",
+            "if ( !root ) return -1;",
+            "if ( l.type === 'xpath' ) {",
+            "    var doc = root.ownerDocument || root;",
+            "    if ( first ) {",
+            "        return doc.evaluate( l.value, root, null, XPathResult.FIRST_ORDERED_NODE_TYPE, null ).singleNodeValue ? 1 : 0;",
+            "    }",
+            "    return doc.evaluate( l.value, root, null, XPathResult.ORDERED_NODE_SNAPSHOT_TYPE, null ).snapshotLength;",
+            "}",
+            "var css = l.type === 'css' ? l.value : ( l.type === 'id' ? '#' : '.' ) + CSS.escape( l.value );",
+            "return first",
+            "    ? ( root.querySelector( css ) ? 1 : 0 )",
+            "    : root.querySelectorAll( css ).length;" );
+
+    private ElementProbe()
+    {
+    }
+
+    public static boolean exists( ModelElement element )
+    {
+        return probe( element, true ) > 0;
+    }
+
+    public static int count( ModelElement element )
+    {
+        return probe( element, false );
+    }
+
+    static Map< String, Object > locator( IPath ipath )
+    {
+        Map< String, Object > locator = new HashMap<>();
+        if ( nonNull( ipath.xpath() ) )
+        {
+            locator.put( "type", "xpath" );
+            locator.put( "value", ipath.xpath() );
+        }
+        else if ( nonNull( ipath.cssSelector() ) )
+        {
+            locator.put( "type", "css" );
+            locator.put( "value", ipath.cssSelector() );
+        }
+        else if ( nonNull( ipath.id() ) )
+        {
+            locator.put( "type", "id" );
+            locator.put( "value", ipath.id() );
+        }
+        else
+        {
+            locator.put( "type", "className" );
+            locator.put( "value", ipath.className() );
+        }
+        locator.put( "index", ipath.index() );
+        return locator;
+    }
+
+    private static int probe( ModelElement element, boolean first )
+    {
+        WebDriver driver = element.getWebDriver();
+        if ( driver instanceof JavascriptExecutor )
+        {
+            int found;
+            try
+            {
+                found = runScript( ( JavascriptExecutor ) driver, element, first );
+            }
+            catch ( StaleElementReferenceException e )
+            {
+                // a cached host has gone: re-resolve the hosts once
+                List< ModelItem > hosts = element.getShadowHosts();
+                if ( hosts.isEmpty() )
+                {
+                    throw e;
+                }
+                hosts.forEach( host -> {
+                    host.evictShadowRoot();
+                    host.evictWebElement();
+                } );
+                found = runScript( ( JavascriptExecutor ) driver, element, first );
+            }
+            if ( found >= 0 )
+            {
+                return found;
+            }
+            // no open shadow root to search: let selenium resolve it
+        }
+        return element
+                .getBrowser()
+                .withImplicitWait( 0, () -> element.getWebElements().size() );
+    }
+
+    private static int runScript( JavascriptExecutor executor, ModelElement element, boolean first )
+    {
+        List< ModelItem > hosts = element.getShadowHosts();
+        WebElement hostElement = hosts.isEmpty()
+                                 ? null
+                                 : hosts.get( hosts.size() - 1 ).getWebElement();
+        element.switchFrame();
+        Object result = executor.executeScript( SCRIPT, hostElement, locator( element.getIPath() ), first );
+        return result instanceof Number
+               ? ( ( Number ) result ).intValue()
+               : 0;
+    }
+}
@@ -0,0 +1,176 @@
+package com.brentcroft.tools.driver;
+
+import lombok.Getter;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.support.ui.Select;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static java.lang.String.format;
+
+/**
+ * The state of a WebElement read in a single browser round trip.
+ */
+@Getter
+public class ElementSnapshot
+{
+    static final String FUNCTION = String.join( "\n",
+            "function snapshot( e, names ) {",
+            "    var tag = e.tagName.toLowerCase();",
+            "    var style = window.getComputedStyle( e );",
+            "    var displayed = !!( e.offsetWidth || e.offsetHeight || e.getClientRects().length )",
+            "        && style.visibility !== 'hidden' && style.display !== 'none';",
+            "    var value = ( e.value !== undefined && e.value !== null ) ? String( e.value ) : e.getAttribute( 'value' );",
+            "    var text = displayed ? ( ( e.innerText === undefined ? e.textContent : e.innerText ) || '' ).trim() : '';",
+            "    var selectedText = null;",
+            "    if ( tag === 'select' ) {",
+            "        var o = e.options[ e.selectedIndex ];",
+            "        selectedText = o ? ( o.innerText || o.text || '' ).trim() : null;",
+            "    }",
+            "    var attributes = {};",
+            "    for ( var i = 0; i < ( names || [] ).length; i++ ) {",
+            "        attributes[ names[ i ] ] = e.getAttribute( names[ i ] );",
+            "    }",
+            "    return {",
+            "        tagName: tag, value: value, text: text, selectedText: selectedText,",
+            "        displayed: displayed, enabled: !e.disabled, selected: !!( e.selected || e.checked ),",
+            "        attributes: attributes",
+            "    };",
+            "}" );
+
+    static final String SCRIPT = ScriptId.mark( ScriptId.SNAPSHOT, FUNCTION, "return snapshot( arguments[ 0 ], arguments[ 1 ] );" );
+
+    private final String tagName;
+    private final String value;
+    private final String visibleText;
+    private final String selectedText;
+    private final boolean displayed;
+    private final boolean enabled;
+    private final boolean selected;
+    private final Map< String, String > attributes;
+
+    private ElementSnapshot( String tagName, String value, String visibleText, String selectedText, boolean displayed, boolean enabled, boolean selected, Map< String, String > attributes )
+    {
+        this.tagName = tagName;
+        this.value = value;
+        this.visibleText = visibleText;
+        this.selectedText = selectedText;
+        this.displayed = displayed;
+        this.enabled = enabled;
+        this.selected = selected;
+        this.attributes = Collections.unmodifiableMap( attributes );
+    }
+
+    public static ElementSnapshot of( WebDriver driver, WebElement element, String... names )
+    {
+        if ( driver instanceof JavascriptExecutor )
+        {
+            Object result = ( ( JavascriptExecutor ) driver )
+                    .executeScript( SCRIPT, element, Arrays.asList( names ) );
+
+            if ( result instanceof Map )
+            {
+                return fromScript( ( Map< ?, ? > ) result );
+            }
+        }
+        return fromElement( element, names );
+    }
+
+    static ElementSnapshot fromScript( Map< ?, ? > state )
+    {
+        Map< String, String > attributes = new LinkedHashMap<>();
+        Optional
+                .ofNullable( state.get( "attributes" ) )
+                .filter( a -> a instanceof Map )
+                .map( a -> ( Map< ?, ? > ) a )
+                .ifPresent( a -> a.forEach( ( k, v ) -> attributes.put( String.valueOf( k ), v == null ? null : v.toString() ) ) );
+
+        return new ElementSnapshot(
+                asString( state.get( "tagName" ) ),
+                asString( state.get( "value" ) ),
+                asString( state.get( "text" ) ),
+                asString( state.get( "selectedText" ) ),
+                Boolean.TRUE.equals( state.get( "displayed" ) ),
+                Boolean.TRUE.equals( state.get( "enabled" ) ),
+                Boolean.TRUE.equals( state.get( "selected" ) ),
+                attributes );
+    }
+
+    private static ElementSnapshot fromElement( WebElement element, String... names )
+    {
+        String tagName = element.getTagName().toLowerCase();
+        String selectedText = null;
+        if ( "select".equals( tagName ) )
+        {
+            try
+            {
+                selectedText = new Select( element ).getFirstSelectedOption().getText();
+            }
+            catch ( NoSuchElementException ignored )
+            {
+            }
+        }
+        Map< String, String > attributes = new LinkedHashMap<>();
+        for ( String name : names )
+        {
+            attributes.put( name, element.getAttribute( name ) );
+        }
+        return new ElementSnapshot(
+                tagName,
+                element.getAttribute( "value" ),
+                element.getText(),
+                selectedText,
+                element.isDisplayed(),
+                element.isEnabled(),
+                element.isSelected(),
+                attributes );
+    }
+
+    private static String asString( Object value )
+    {
+        return value == null ? null : value.toString();
+    }
+
+    /**
+     * The text as previously read by <code>ModelElement.getText()</code>:
+     * the selected option of a select, the visible text of a button,
+     * otherwise the value if there is one, else the visible text.
+     */
+    public String getText()
+    {
+        switch ( tagName )
+        {
+            case "select":
+                return selectedText;
+            case "button":
+                return visibleText;
+            default:
+                return value != null
+                       ? value
+                       : visibleText;
+        }
+    }
+
+    public boolean isClickable()
+    {
+        return displayed && enabled;
+    }
+
+    public String getAttribute( String name )
+    {
+        return attributes.get( name );
+    }
+
+    public String toString()
+    {
+        return format( "<%s> text=[%s], displayed=%s, enabled=%s, selected=%s, attributes=%s",
+                tagName, getText(), displayed, enabled, selected, attributes );
+    }
+}
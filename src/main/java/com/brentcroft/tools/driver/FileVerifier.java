@@ -0,0 +1,388 @@
+package com.brentcroft.tools.driver;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static java.lang.String.format;
+
+/**
+ * Checks the content of (possibly very large) files a block or a line at a time,
+ * so that no file is ever held in memory whole:
+ * checksums, line and CSV record counts, regex search, and the entries of a ZIP.
+ * <p>
+ * A line is searched only up to its first <code>MAX_LINE_CHARS</code> characters,
+ * so that a file with very long lines, or none, is never held whole either.
+ */
+public class FileVerifier
+{
+    static final int BLOCK_SIZE = 1 << 20;
+    static final int MAX_LINE_CHARS = 1 << 16;
+    private static final int MAX_LISTED_ENTRIES = 100;
+
+    private final Path path;
+
+    public FileVerifier( Path path )
+    {
+        if ( ! Files.isRegularFile( path ) )
+        {
+            throw new IllegalArgumentException( format( "Not a file: %s", path ) );
+        }
+        this.path = path;
+    }
+
+    /**
+     * Pass every block of the file, in order, to each consumer.
+     */
+    @SafeVarargs
+    private final void readBlocks( Consumer< ByteBuffer >... consumers )
+    {
+        ByteBuffer buffer = ByteBuffer.allocateDirect( BLOCK_SIZE );
+        try ( FileChannel channel = FileChannel.open( path, StandardOpenOption.READ ) )
+        {
+            while ( channel.read( buffer ) >= 0 )
+            {
+                buffer.flip();
+                for ( Consumer< ByteBuffer > consumer : consumers )
+                {
+                    consumer.accept( buffer.duplicate() );
+                }
+                buffer.clear();
+            }
+        }
+        catch ( IOException e )
+        {
+            throw new IllegalArgumentException( format( "Failed to read: %s", path ), e );
+        }
+    }
+
+    private static MessageDigest newSha256()
+    {
+        try
+        {
+            return MessageDigest.getInstance( "SHA-256" );
+        }
+        catch ( NoSuchAlgorithmException e )
+        {
+            throw new IllegalStateException( e );
+        }
+    }
+
+    private static String hex( byte[] bytes )
+    {
+        StringBuilder hex = new StringBuilder();
+        for ( byte b : bytes )
+        {
+            hex.append( format( "%02x", b ) );
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Counts lines, including a last line without a line end.
+     */
+    private static class LineCounter implements Consumer< ByteBuffer >
+    {
+        private long lines;
+        private byte last = '\n';
+
+        @Override
+        public void accept( ByteBuffer buffer )
+        {
+            while ( buffer.hasRemaining() )
+            {
+                last = buffer.get();
+                if ( last == '\n' )
+                {
+                    lines++;
+                }
+            }
+        }
+
+        private long count()
+        {
+            return last == '\n' ? lines : lines + 1;
+        }
+    }
+
+    /**
+     * Counts non-empty CSV records, where a quoted value may hold line ends.
+     */
+    private static class RecordCounter implements Consumer< ByteBuffer >
+    {
+        private long records;
+        private boolean quoted;
+        private byte last = '\n';
+
+        @Override
+        public void accept( ByteBuffer buffer )
+        {
+            while ( buffer.hasRemaining() )
+            {
+                byte b = buffer.get();
+                if ( b == '"' )
+                {
+                    quoted = ! quoted;
+                }
+                else if ( b == '\n' && ! quoted && last != '\n' )
+                {
+                    records++;
+                }
+                if ( b != '\r' )
+                {
+                    last = quoted && b == '\n' ? ( byte ) ' ' : b;
+                }
+            }
+        }
+
+        private long count()
+        {
+            return last == '\n' ? records : records + 1;
+        }
+    }
+
+    /**
+     * Reads lines of at most <code>MAX_LINE_CHARS</code>, skipping the rest of a longer line.
+     */
+    private static class BoundedLineReader
+    {
+        private final Reader reader;
+        private final char[] chunk = new char[ 8192 ];
+        private final StringBuilder line = new StringBuilder();
+        private int position;
+        private int limit;
+        private boolean truncated;
+
+        private BoundedLineReader( Reader reader )
+        {
+            this.reader = reader;
+        }
+
+        /**
+         * The next line, without its line end, or null at the end of the input.
+         */
+        private String readLine() throws IOException
+        {
+            line.setLength( 0 );
+            truncated = false;
+            boolean read = false;
+            while ( true )
+            {
+                if ( position >= limit )
+                {
+                    limit = reader.read( chunk );
+                    position = 0;
+                    if ( limit < 0 )
+                    {
+                        limit = 0;
+                        return read ? line.toString() : null;
+                    }
+                }
+                read = true;
+                int start = position;
+                while ( position < limit && chunk[ position ] != '\n' )
+                {
+                    position++;
+                }
+                int keep = Math.min( position - start, MAX_LINE_CHARS - line.length() );
+                line.append( chunk, start, keep );
+                truncated |= keep < position - start;
+                if ( position < limit )
+                {
+                    position++;
+                    int end = line.length();
+                    if ( end > 0 && line.charAt( end - 1 ) == '\r' )
+                    {
+                        line.setLength( end - 1 );
+                    }
+                    return line.toString();
+                }
+            }
+        }
+    }
+
+    public String sha256()
+    {
+        MessageDigest digest = newSha256();
+        readBlocks( digest::update );
+        return hex( digest.digest() );
+    }
+
+    public String crc32()
+    {
+        CRC32 crc = new CRC32();
+        readBlocks( crc::update );
+        return format( "%08x", crc.getValue() );
+    }
+
+    public long lines()
+    {
+        LineCounter counter = new LineCounter();
+        readBlocks( counter );
+        return counter.count();
+    }
+
+    /**
+     * CSV records, including any header.
+     */
+    public long records()
+    {
+        RecordCounter counter = new RecordCounter();
+        readBlocks( counter );
+        return counter.count();
+    }
+
+    /**
+     * The count of lines matching the regex, with the number and text of the first,
+     * and the count of lines too long to be searched whole.
+     */
+    public Map< String, Object > search( String regex )
+    {
+        Pattern pattern = Pattern.compile( regex );
+        long count = 0;
+        long lineNumber = 0;
+        Map< String, Object > result = new LinkedHashMap<>();
+        result.put( "pattern", regex );
+        result.put( "firstLine", null );
+        result.put( "first", null );
+        long truncated = 0;
+        // malformed input is replaced rather than failing the search
+        try ( Reader input = new InputStreamReader( Files.newInputStream( path ), StandardCharsets.UTF_8 ) )
+        {
+            BoundedLineReader reader = new BoundedLineReader( input );
+            String line;
+            while ( ( line = reader.readLine() ) != null )
+            {
+                lineNumber++;
+                if ( reader.truncated )
+                {
+                    truncated++;
+                }
+                if ( pattern.matcher( line ).find() )
+                {
+                    if ( count++ == 0 )
+                    {
+                        result.put( "firstLine", lineNumber );
+                        result.put( "first", line );
+                    }
+                }
+            }
+        }
+        catch ( IOException e )
+        {
+            throw new IllegalArgumentException( format( "Failed to read: %s", path ), e );
+        }
+        result.put( "count", count );
+        result.put( "truncated", truncated );
+        return result;
+    }
+
+    /**
+     * The entries of a ZIP, read from its central directory without extracting anything.
+     */
+    public List< Map< String, Object > > zipEntries()
+    {
+        List< Map< String, Object > > entries = new ArrayList<>();
+        try ( ZipFile zip = new ZipFile( path.toFile() ) )
+        {
+            Enumeration< ? extends ZipEntry > e = zip.entries();
+            while ( e.hasMoreElements() )
+            {
+                ZipEntry entry = e.nextElement();
+                Map< String, Object > item = new LinkedHashMap<>();
+                item.put( "name", entry.getName() );
+                item.put( "size", entry.getSize() );
+                item.put( "compressedSize", entry.getCompressedSize() );
+                item.put( "crc32", entry.getCrc() < 0 ? null : format( "%08x", entry.getCrc() ) );
+                item.put( "directory", entry.isDirectory() );
+                entries.add( item );
+            }
+        }
+        catch ( IOException e )
+        {
+            throw new IllegalArgumentException( format( "Not a readable zip: %s", path ), e );
+        }
+        return entries;
+    }
+
+    /**
+     * Size and checksums, plus record counts for a CSV, line counts for other text,
+     * or the entries (names listed up to a hundred) for a ZIP.
+     */
+    public Map< String, Object > summary()
+    {
+        String name = path.getFileName().toString();
+        String extension = name.contains( "." )
+                           ? name.substring( name.lastIndexOf( '.' ) + 1 ).toLowerCase( Locale.ROOT )
+                           : "";
+
+        Map< String, Object > summary = new LinkedHashMap<>();
+        summary.put( "name", name );
+        try
+        {
+            summary.put( "size", Files.size( path ) );
+        }
+        catch ( IOException e )
+        {
+            throw new IllegalArgumentException( format( "Failed to read: %s", path ), e );
+        }
+        boolean zip = Arrays.asList( "zip", "jar", "xlsx", "docx" ).contains( extension );
+        boolean csv = "csv".equals( extension );
+        boolean text = csv || Arrays.asList( "txt", "tsv", "json", "xml", "log" ).contains( extension );
+
+        // one pass for checksums and counts
+        MessageDigest digest = newSha256();
+        CRC32 crc = new CRC32();
+        LineCounter lines = new LineCounter();
+        RecordCounter records = new RecordCounter();
+        List< Consumer< ByteBuffer > > consumers = new ArrayList<>();
+        consumers.add( digest::update );
+        consumers.add( crc::update );
+        if ( text )
+        {
+            consumers.add( lines );
+        }
+        if ( csv )
+        {
+            consumers.add( records );
+        }
+        @SuppressWarnings( "unchecked" )
+        Consumer< ByteBuffer >[] array = consumers.toArray( new Consumer[ 0 ] );
+        readBlocks( array );
+
+        summary.put( "sha256", hex( digest.digest() ) );
+        summary.put( "crc32", format( "%08x", crc.getValue() ) );
+        if ( text )
+        {
+            summary.put( "lines", lines.count() );
+        }
+        if ( csv )
+        {
+            summary.put( "records", records.count() );
+        }
+        if ( zip )
+        {
+            List< Map< String, Object > > entries = zipEntries();
+            summary.put( "entries", entries.size() );
+            summary.put( "uncompressedSize", entries.stream().mapToLong( e -> ( Long ) e.get( "size" ) ).filter( size -> size > 0 ).sum() );
+            List< Object > names = new ArrayList<>();
+            entries.stream().limit( MAX_LISTED_ENTRIES ).forEach( e -> names.add( e.get( "name" ) ) );
+            summary.put( "names", names );
+        }
+        return summary;
+    }
+}
@@ -0,0 +1,111 @@
+package com.brentcroft.tools.driver;
+
+import org.openqa.selenium.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Tracks the full frame path the WebDriver is currently switched into,
+ * and moves to a target frame path with the fewest switches:
+ * up to the common ancestor with <code>parentFrame()</code>, then down.
+ * <p>
+ * Frame elements found during the current navigation are remembered,
+ * and reused on re-entry, until the navigator is reset
+ * (e.g. on page load) or a remembered element turns out to be stale.
+ */
+public class FrameNavigator
+{
+    private final List< String > currentFrames = new ArrayList<>();
+    private final Map< List< String >, WebElement > frameElements = new HashMap<>();
+    private boolean known = false;
+
+    public synchronized void reset()
+    {
+        currentFrames.clear();
+        frameElements.clear();
+        known = false;
+    }
+
+    public synchronized List< String > getCurrentFrames()
+    {
+        return Collections.unmodifiableList( new ArrayList<>( currentFrames ) );
+    }
+
+    public synchronized boolean isAt( List< String > targetFrames )
+    {
+        return known && currentFrames.equals( targetFrames );
+    }
+
+    public synchronized void navigate( WebDriver driver, List< String > targetFrames, Consumer< String > frameNotFound )
+    {
+        if ( isAt( targetFrames ) )
+        {
+            return;
+        }
+        try
+        {
+            moveTo( driver, targetFrames, frameNotFound );
+        }
+        catch ( StaleElementReferenceException | NoSuchFrameException | NoSuchWindowException e )
+        {
+            // the page changed under us: start again from the top
+            reset();
+            moveTo( driver, targetFrames, frameNotFound );
+        }
+    }
+
+    private void moveTo( WebDriver driver, List< String > targetFrames, Consumer< String > frameNotFound )
+    {
+        int common = 0;
+
+        if ( known )
+        {
+            int max = Math.min( currentFrames.size(), targetFrames.size() );
+            while ( common < max && currentFrames.get( common ).equals( targetFrames.get( common ) ) )
+            {
+                common++;
+            }
+            while ( currentFrames.size() > common )
+            {
+                driver.switchTo().parentFrame();
+                currentFrames.remove( currentFrames.size() - 1 );
+            }
+        }
+        else
+        {
+            driver.switchTo().defaultContent();
+            currentFrames.clear();
+            known = true;
+        }
+
+        for ( int i = common; i < targetFrames.size(); i++ )
+        {
+            String frame = targetFrames.get( i );
+            List< String > framePath = new ArrayList<>( targetFrames.subList( 0, i + 1 ) );
+            WebElement frameElement = frameElements.get( framePath );
+
+            if ( frameElement == null )
+            {
+                List< WebElement > frames = driver.findElements( By.xpath( frame ) );
+                if ( frames.isEmpty() )
+                {
+                    frameNotFound.accept( frame );
+                    return;
+                }
+                frameElement = frames.get( 0 );
+                frameElements.put( framePath, frameElement );
+            }
+
+            // mark unknown while switching so a failure forces a reset
+            known = false;
+            driver.switchTo().frame( frameElement );
+            currentFrames.add( frame );
+            known = true;
+        }
+    }
+}
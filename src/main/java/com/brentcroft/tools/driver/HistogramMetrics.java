@@ -0,0 +1,108 @@
+package com.brentcroft.tools.driver;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A MetricsRegistry keeping a log-scaled latency histogram
+ * per operation, and per operation and model path.
+ * <p>
+ * Percentiles are reported as the upper bound of the bucket they fall in,
+ * so are within a factor of two of the true value.
+ */
+public class HistogramMetrics implements MetricsRegistry
+{
+    private static final String ALL_PATHS = "*";
+
+    private final Map< String, Map< String, Histogram > > histograms = new ConcurrentHashMap<>();
+
+    static class Histogram
+    {
+        // bucket i holds latencies of less than 2^i micros
+        private final AtomicLongArray buckets = new AtomicLongArray( 64 );
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        void record( long nanos )
+        {
+            long micros = Math.max( 0, nanos / 1000 );
+            buckets.incrementAndGet( 64 - Long.numberOfLeadingZeros( micros ) );
+            count.increment();
+            totalNanos.add( nanos );
+            maxNanos.accumulateAndGet( nanos, Math::max );
+        }
+
+        double percentileMillis( double percentile )
+        {
+            long total = count.sum();
+            if ( total == 0 )
+            {
+                return 0;
+            }
+            long rank = ( long ) Math.ceil( percentile * total );
+            long seen = 0;
+            for ( int i = 0; i < buckets.length(); i++ )
+            {
+                seen += buckets.get( i );
+                if ( seen >= rank )
+                {
+                    double upperMillis = ( double ) ( 1L << i ) / 1000;
+                    return Math.min( upperMillis, maxNanos.get() / 1e6 );
+                }
+            }
+            return maxNanos.get() / 1e6;
+        }
+
+        Map< String, Object > row( String operation, String path )
+        {
+            long n = count.sum();
+            double total = totalNanos.sum() / 1e6;
+            Map< String, Object > row = new LinkedHashMap<>();
+            row.put( "operation", operation );
+            row.put( "path", path );
+            row.put( "count", n );
+            row.put( "totalMillis", round( total ) );
+            row.put( "meanMillis", round( n == 0 ? 0 : total / n ) );
+            row.put( "p50Millis", round( percentileMillis( 0.5 ) ) );
+            row.put( "p90Millis", round( percentileMillis( 0.9 ) ) );
+            row.put( "p99Millis", round( percentileMillis( 0.99 ) ) );
+            row.put( "maxMillis", round( maxNanos.get() / 1e6 ) );
+            return row;
+        }
+
+        private static double round( double millis )
+        {
+            return Math.round( millis * 1000 ) / 1000.0;
+        }
+    }
+
+    @Override
+    public void record( String operation, String path, long nanos )
+    {
+        Map< String, Histogram > byPath = histograms.computeIfAbsent( operation, o -> new ConcurrentHashMap<>() );
+        byPath.computeIfAbsent( ALL_PATHS, p -> new Histogram() ).record( nanos );
+        if ( path != null )
+        {
+            byPath.computeIfAbsent( path, p -> new Histogram() ).record( nanos );
+        }
+    }
+
+    @Override
+    public List< Map< String, Object > > rows()
+    {
+        List< Map< String, Object > > rows = new ArrayList<>();
+        new TreeMap<>( histograms )
+                .forEach( ( operation, byPath ) -> new TreeMap<>( byPath )
+                        .forEach( ( path, histogram ) -> rows.add( histogram.row( operation, path ) ) ) );
+        return rows;
+    }
+
+    public void clear()
+    {
+        histograms.clear();
+    }
+}
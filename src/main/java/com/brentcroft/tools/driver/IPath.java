@@ -4,6 +4,7 @@ import com.brentcroft.tools.model.Model;
 import org.openqa.selenium.By;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,13 +15,14 @@ import static java.util.Objects.nonNull;
 public class IPath
 {
     private final List<String> frames;
-    private String xpath;
-    private int index;
-    private String cssSelector;
-    private String id;
-    private String className;
-
-    private List<String> getFrames( Model model) {
+    private final String xpath;
+    private final int index;
+    private final String cssSelector;
+    private final String id;
+    private final String className;
+    private final By by;
+
+    private static List<String> getFrames( Model model) {
         List<String> frames = Optional
                 .ofNullable( model.getParent() )
                 .filter( p -> p instanceof Model)
@@ -33,45 +35,58 @@ public class IPath
         return frames;
     }
 
+    /**
+     * True if the model has a locator (xpath, cssSelector, id or className) to make an IPath from.
+     */
+    public static boolean isLocated( Model model) {
+        return model.containsKey("$xpath")
+               || model.containsKey("$cssSelector")
+               || model.containsKey("$id")
+               || model.containsKey("$className");
+    }
+
     public IPath( Model model) {
-        frames = getFrames(model);
-        if ( model.containsKey("$id") ) {
-            id = (String)model.get("$id");
-        }
-        if ( model.containsKey("$className") ) {
-            className = (String)model.get("$className");
-        }
-        if ( model.containsKey("$cssSelector") ) {
-            cssSelector = (String)model.get("$cssSelector");
-        }
-        if ( model.containsKey("$index") ) {
-            index = Integer.parseInt((String)model.get("$index")) - 1;
-        }
-        if ( model.containsKey("$xpath") ) {
-            xpath = Optional
-                    .ofNullable(model.get("$xpath"))
-                    .map(Object::toString)
-                    .map( path -> {
-                        int indexStart = path.lastIndexOf( '[' );
-                        int indexEnd = path.lastIndexOf( ']' );
-                        if (indexStart > -1 && indexEnd > indexStart && indexEnd == path.length() - 1) {
-                            String indexText = path.substring( indexStart + 1, indexEnd ).trim();
-                            try {
-                                index = Integer.parseInt(indexText) - 1;
-                                return path.substring( 0, indexStart ).trim();
-                            } catch (Exception ignored ) {
-                            }
-                        }
-                        return path;
-                    })
-                    .orElse(null);
+        frames = Collections.unmodifiableList( getFrames(model) );
+        id = model.containsKey("$id")
+             ? (String)model.get("$id")
+             : null;
+        className = model.containsKey("$className")
+                    ? (String)model.get("$className")
+                    : null;
+        cssSelector = model.containsKey("$cssSelector")
+                      ? (String)model.get("$cssSelector")
+                      : null;
+
+        int candidateIndex = model.containsKey("$index")
+                             ? Integer.parseInt((String)model.get("$index")) - 1
+                             : 0;
+        String candidateXpath = Optional
+                .ofNullable(model.get("$xpath"))
+                .map(Object::toString)
+                .orElse(null);
+
+        if ( nonNull( candidateXpath ) ) {
+            int indexStart = candidateXpath.lastIndexOf( '[' );
+            int indexEnd = candidateXpath.lastIndexOf( ']' );
+            if (indexStart > -1 && indexEnd > indexStart && indexEnd == candidateXpath.length() - 1) {
+                String indexText = candidateXpath.substring( indexStart + 1, indexEnd ).trim();
+                try {
+                    candidateIndex = Integer.parseInt(indexText) - 1;
+                    candidateXpath = candidateXpath.substring( 0, indexStart ).trim();
+                } catch (Exception ignored ) {
+                }
+            }
         }
+        xpath = candidateXpath;
+        index = candidateIndex;
+
         if (isNull(xpath) && isNull(cssSelector) && isNull( id ) && isNull( className )) {
             throw new IllegalArgumentException(format("IPath has no value for: xpath, cssSelector, id, className: item=%s", model.path()) );
         }
+        by = newBy();
     }
 
-    public By by() {
+    private By newBy() {
         if (nonNull(xpath)) {
             return By.xpath( xpath );
 
@@ -82,11 +97,15 @@ public class IPath
             return By.id( id );
 
         } else if (nonNull(className)) {
-            return By.id( className );
+            return By.className( className );
         }
         throw new IllegalArgumentException("IPath has no value for: xpath, cssSelector, id, className");
     }
 
+    public By by() {
+        return by;
+    }
+
     public List<String> frames() {
         return frames;
     }
@@ -0,0 +1,108 @@
+package com.brentcroft.tools.driver;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import static java.lang.String.format;
+
+/**
+ * A bounded, thread-safe, least-recently-used cache that counts hits, misses and evictions.
+ * <p>
+ * Values are computed outside the lock, so a slow computation doesn't block other readers;
+ * two threads missing on the same key may both compute it, and the first to finish wins.
+ */
+public class LruCache< K, V >
+{
+    private final LinkedHashMap< K, V > entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private volatile int maximumSize;
+
+    public LruCache( int maximumSize )
+    {
+        setMaximumSize( maximumSize );
+        this.entries = new LinkedHashMap< K, V >( 16, 0.75f, true )
+        {
+            @Override
+            protected boolean removeEldestEntry( Map.Entry< K, V > eldest )
+            {
+                if ( size() > LruCache.this.maximumSize )
+                {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public V get( K key, Supplier< V > supplier )
+    {
+        synchronized ( entries )
+        {
+            V value = entries.get( key );
+            if ( value != null )
+            {
+                hits.increment();
+                return value;
+            }
+        }
+        misses.increment();
+        V value = supplier.get();
+        if ( value == null )
+        {
+            return null;
+        }
+        synchronized ( entries )
+        {
+            V existing = entries.putIfAbsent( key, value );
+            return existing == null
+                   ? value
+                   : existing;
+        }
+    }
+
+    public void setMaximumSize( int maximumSize )
+    {
+        if ( maximumSize < 1 )
+        {
+            throw new IllegalArgumentException( format( "Cache size must be at least 1: %s", maximumSize ) );
+        }
+        this.maximumSize = maximumSize;
+    }
+
+    public int size()
+    {
+        synchronized ( entries )
+        {
+            return entries.size();
+        }
+    }
+
+    public void clear()
+    {
+        synchronized ( entries )
+        {
+            entries.clear();
+        }
+    }
+
+    public Map< String, Object > getStats()
+    {
+        Map< String, Object > stats = new LinkedHashMap<>();
+        stats.put( "size", size() );
+        stats.put( "maximumSize", maximumSize );
+        stats.put( "hits", hits.sum() );
+        stats.put( "misses", misses.sum() );
+        stats.put( "evictions", evictions.sum() );
+        return stats;
+    }
+
+    public String toString()
+    {
+        return getStats().toString();
+    }
+}
@@ -0,0 +1,133 @@
+package com.brentcroft.tools.driver;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static java.lang.String.format;
+
+/**
+ * Records the latency of driver operations (find, click, setText, getText, switchFrame,
+ * navigateShadows, screenshot, detect), per operation and per model path,
+ * and the phases of starting a driver (operation <code>startup</code>: profile, service, session, driver, navigate).
+ * <p>
+ * A Browser uses {@link #NONE} unless <code>$metrics</code> is true on its page model.
+ */
+public interface MetricsRegistry
+{
+    MetricsRegistry NONE = new MetricsRegistry()
+    {
+        @Override
+        public boolean isEnabled()
+        {
+            return false;
+        }
+
+        @Override
+        public void record( String operation, String path, long nanos )
+        {
+        }
+
+        @Override
+        public List< Map< String, Object > > rows()
+        {
+            return Collections.emptyList();
+        }
+    };
+
+    default boolean isEnabled()
+    {
+        return true;
+    }
+
+    void record( String operation, String path, long nanos );
+
+    /**
+     * One row per operation (with path <code>*</code>), and one per operation and path,
+     * each with: operation, path, count, totalMillis, meanMillis, p50Millis, p90Millis, p99Millis, maxMillis.
+     */
+    List< Map< String, Object > > rows();
+
+    default < T > T time( String operation, String path, Supplier< T > action )
+    {
+        if ( ! isEnabled() )
+        {
+            return action.get();
+        }
+        long started = System.nanoTime();
+        try
+        {
+            return action.get();
+        }
+        finally
+        {
+            record( operation, path, System.nanoTime() - started );
+        }
+    }
+
+    default void time( String operation, String path, Runnable action )
+    {
+        time( operation, path, () -> {
+            action.run();
+            return null;
+        } );
+    }
+
+    /**
+     * Rows for the given operation, or for every operation if null.
+     */
+    default List< Map< String, Object > > query( String operation )
+    {
+        return rows()
+                .stream()
+                .filter( row -> operation == null || operation.equals( row.get( "operation" ) ) )
+                .collect( Collectors.toList() );
+    }
+
+    default void export( Path directory, String name ) throws IOException
+    {
+        List< Map< String, Object > > rows = rows();
+        Files.createDirectories( directory );
+
+        StringBuilder json = new StringBuilder( "[" );
+        StringBuilder csv = new StringBuilder();
+        for ( Map< String, Object > row : rows )
+        {
+            if ( csv.length() == 0 )
+            {
+                csv.append( String.join( ",", row.keySet() ) ).append( "\n" );
+            }
+            csv
+                    .append( row
+                            .values()
+                            .stream()
+                            .map( value -> value instanceof String
+                                           ? format( "\"%s\"", value.toString().replace( "\"", "\"\"" ) )
+                                           : String.valueOf( value ) )
+                            .collect( Collectors.joining( "," ) ) )
+                    .append( "\n" );
+
+            json
+                    .append( json.length() > 1 ? ",\n  " : "\n  " )
+                    .append( row
+                            .entrySet()
+                            .stream()
+                            .map( e -> format( "\"%s\": %s",
+                                    e.getKey(),
+                                    e.getValue() instanceof String
+                                    ? format( "\"%s\"", e.getValue().toString().replace( "\\", "\\\\" ).replace( "\"", "\\\"" ) )
+                                    : String.valueOf( e.getValue() ) ) )
+                            .collect( Collectors.joining( ", ", "{ ", " }" ) ) );
+        }
+        json.append( "\n]\n" );
+
+        Files.write( directory.resolve( name + ".json" ), json.toString().getBytes( StandardCharsets.UTF_8 ) );
+        Files.write( directory.resolve( name + ".csv" ), csv.toString().getBytes( StandardCharsets.UTF_8 ) );
+    }
+}
@@ -11,6 +11,7 @@ import java.util.Optional;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.regex.Pattern;
 
 import static java.lang.String.format;
@@ -36,99 +37,110 @@ public interface ModelElement
         return getIPath().xpath();
     }
 
+    default < T > T timed( String operation, Supplier< T > action )
+    {
+        MetricsRegistry metrics = getBrowser().getMetrics();
+        return metrics.isEnabled()
+               ? metrics.time( operation, getSelf().path(), action )
+               : action.get();
+    }
+
+    default RetryPolicy getRetryPolicy()
+    {
+        Model item = getSelf();
+        return item.containsKey( "$retry" )
+               ? RetryPolicy.parse( item.get( "$retry" ).toString() )
+               : getBrowser().getRetryPolicy();
+    }
+
     default void volatileElement( BiConsumer< Model, WebElement > consumer )
     {
-        int retries = VOLATILE_RETRIES;
-        while ( true )
-        {
-            try
-            {
-                consumer.accept( getSelf(), getWebElement() );
-                break;
-            }
-            catch ( StaleElementReferenceException e )
-            {
-                retries--;
-                if ( retries < 1 )
-                {
-                    throw new VolatileElementException( this, VOLATILE_RETRIES );
-                }
-                System.out.printf( "stale element: %s; retries=%s%n", this, retries );
-                getSelf().maybeDelay();
-            }
-        }
+        volatileValue( ( i, e ) -> {
+            consumer.accept( i, e );
+            return null;
+        } );
     }
 
     default < V > V volatileValue( BiFunction< Model, WebElement, V > consumer )
     {
-        int retries = VOLATILE_RETRIES;
+        RetryPolicy policy = getRetryPolicy();
+        long started = System.currentTimeMillis();
+        int attempts = 0;
         while ( true )
         {
             try
             {
                 return consumer.apply( getSelf(), getWebElement() );
             }
-            catch ( StaleElementReferenceException e )
+            catch ( WebDriverException e )
             {
-                retries--;
-                if ( retries < 1 )
+                if ( ! policy.isRetryable( e ) )
+                {
+                    throw e;
+                }
+                attempts++;
+                long delay = policy.delayBefore( attempts );
+                if ( policy.isExhausted( attempts, System.currentTimeMillis() - started, delay ) )
+                {
+                    throw new VolatileElementException( this, attempts, e );
+                }
+                Model item = getSelf();
+                getBrowser().recordRetry( item.path() );
+                item
+                        .notifyModelEvent(
+                                ModelEvent
+                                        .EventType
+                                        .MESSAGE
+                                        .newEvent( item, format( "retrying: %s; attempts=%s, delay=%s, cause=%s", item.path(), attempts, delay, e.getClass().getSimpleName() ) ) );
+                evictWebElement();
+                if ( delay < 0 )
                 {
-                    throw new VolatileElementException( this, VOLATILE_RETRIES );
+                    item.maybeDelay();
+                }
+                else if ( delay > 0 )
+                {
+                    try
+                    {
+                        Thread.sleep( delay );
+                    }
+                    catch ( InterruptedException ie )
+                    {
+                        Thread.currentThread().interrupt();
+                        VolatileElementException interrupted = new VolatileElementException( this, attempts, ie );
+                        interrupted.addSuppressed( e );
+                        throw interrupted;
+                    }
                 }
-                System.out.printf( "stale element: %s; retries=%s%n", this, retries );
-                getSelf().maybeDelay();
             }
         }
     }
 
+    default void evictWebElement()
+    {
+    }
+
     default void switchFrame()
     {
         Model item = getSelf();
-        Model root = item.getRoot();
-        IPath ipath = getIPath();
-        final String currentFrameKey = "$currentFrame";
-        String currentFrame = ( String ) root.get( currentFrameKey );
-        if ( currentFrame != null && currentFrame.equals( ipath.innerFrame() ) )
-        {
-            return;
-        }
-        WebDriver driver = getWebDriver();
-
-        driver.switchTo().defaultContent();
-
-        if ( ipath == null || ".".equals( ipath.innerFrame() ) )
-        {
-            root.remove( currentFrameKey );
-        }
-        else
-        {
-            SearchContext[] frameElement = { driver };
-            ipath
-                    .frames()
-                    .forEach( frame -> {
-                        List< WebElement > frames = frameElement[ 0 ].findElements( By.xpath( frame ) );
-                        if ( frames.size() > 0 )
-                        {
-                            frameElement[ 0 ] = frames.get( 0 );
-                            driver.switchTo().frame( frames.get( 0 ) );
-                            root.put( currentFrameKey, frame );
-
-                        }
-                        else
-                        {
-                            String msg = format( "'%s' -> frame not found: %s; current=%s", item.path(), frame, currentFrame );
-                            getSelf()
-                                    .notifyModelEvent(
-                                            ModelEvent
-                                                    .EventType
-                                                    .MESSAGE
-                                                    .newEvent( getSelf(), msg ) );
-                        }
+        FrameNavigator navigator = getBrowser().getFrameNavigator();
+        timed( "switchFrame", () -> {
+            navigator.navigate(
+                    getWebDriver(),
+                    getIPath().frames(),
+                    frame -> {
+                        String msg = format( "'%s' -> frame not found: %s; current=%s", item.path(), frame, navigator.getCurrentFrames() );
+                        item
+                                .notifyModelEvent(
+                                        ModelEvent
+                                                .EventType
+                                                .MESSAGE
+                                                .newEvent( item, msg ) );
                     } );
-        }
+            return null;
+        } );
     }
 
-    default SearchContext navigateShadows()
+    default List< ModelItem > getShadowHosts()
     {
         Function< Model, Model > pf = ( model ) -> ( Model ) Optional
                 .ofNullable( model.getParent() )
@@ -145,12 +157,29 @@ public interface ModelElement
             }
             parentModel = pf.apply( parentModel );
         }
-        SearchContext context = getWebDriver();
-        for ( ModelItem host : hosts )
+        return hosts;
+    }
+
+    default SearchContext navigateShadows()
+    {
+        List< ModelItem > hosts = getShadowHosts();
+        if ( hosts.isEmpty() )
         {
-            context = host.getWebElement( context ).getShadowRoot();
+            return getWebDriver();
         }
-        return context;
+        return timed( "navigateShadows", () -> {
+            SearchContext context = getWebDriver();
+            for ( ModelItem host : hosts )
+            {
+                context = host.getShadowRoot( context );
+            }
+            return context;
+        } );
+    }
+
+    default void evictShadows()
+    {
+        getShadowHosts().forEach( ModelItem::evictShadowRoot );
     }
 
     default boolean hasShadowRoot()
@@ -160,7 +189,21 @@ public interface ModelElement
 
     default WebElement getWebElement()
     {
-        return getWebElement( navigateShadows() );
+        try
+        {
+            return getWebElement( navigateShadows() );
+        }
+        catch ( StaleElementReferenceException | NoSuchShadowRootException e )
+        {
+            // a cached shadow root may have gone: re-resolve the hosts once
+            List< ModelItem > hosts = getShadowHosts();
+            if ( hosts.isEmpty() )
+            {
+                throw e;
+            }
+            hosts.forEach( ModelItem::evictShadowRoot );
+            return getWebElement( navigateShadows() );
+        }
     }
 
     default WebElement getWebElement( SearchContext context )
@@ -169,7 +212,7 @@ public interface ModelElement
         IPath ipath = getIPath();
         try
         {
-            List< WebElement > elements = context.findElements( ipath.by() );
+            List< WebElement > elements = timed( "find", () -> context.findElements( ipath.by() ) );
             if ( elements.size() > ipath.index() )
             {
                 return elements.get( ipath.index() );
@@ -185,31 +228,29 @@ public interface ModelElement
 
     default List< WebElement > getWebElements()
     {
-        return getWebElements( navigateShadows() );
-    }
-
-    default List< WebElement > getWebElements( SearchContext context )
-    {
-        switchFrame();
-        IPath ipath = getIPath();
         try
         {
-            return context.findElements( ipath.by() );
+            return getWebElements( navigateShadows() );
         }
-        catch ( NoSuchElementException e )
+        catch ( StaleElementReferenceException | NoSuchShadowRootException e )
         {
-            throw new NoSuchElementException(
-                    format( "%s -> %s", getSelf().path(), ipath ), e );
+            List< ModelItem > hosts = getShadowHosts();
+            if ( hosts.isEmpty() )
+            {
+                throw e;
+            }
+            hosts.forEach( ModelItem::evictShadowRoot );
+            return getWebElements( navigateShadows() );
         }
     }
 
-    default int count()
+    default List< WebElement > getWebElements( SearchContext context )
     {
         switchFrame();
         IPath ipath = getIPath();
         try
         {
-            return getWebDriver().findElements( ipath.by() ).size();
+            return timed( "find", () -> context.findElements( ipath.by() ) );
         }
         catch ( NoSuchElementException e )
         {
@@ -218,6 +259,16 @@ public interface ModelElement
         }
     }
 
+    /**
+     * Counted in the browser; waits up to the implicit wait for at least one match.
+     */
+    default int count()
+    {
+        int[] count = { 0 };
+        pollUntil( getBrowser().getImplicitWait(), () -> ( count[ 0 ] = ElementProbe.count( this ) ) > 0 );
+        return count[ 0 ];
+    }
+
     default boolean isDisplayed()
     {
         return volatileValue( ( i, e ) -> e.isDisplayed() );
@@ -235,17 +286,70 @@ public interface ModelElement
 
     default boolean isClickable()
     {
-        return volatileValue( ( i, e ) -> e.isDisplayed() && e.isEnabled() );
+        return snapshot().isClickable();
     }
 
+    default ElementSnapshot snapshot( String... attributes )
+    {
+        return volatileValue( ( i, e ) -> ElementSnapshot.of( getWebDriver(), e, attributes ) );
+    }
+
+    /**
+     * Waits up to the implicit wait for a first match.
+     */
     default boolean exists()
     {
-        return getWebElements().size() > 0;
+        return existsWithin( getBrowser().getImplicitWait() );
     }
 
+    /**
+     * Probe once, without waiting.
+     */
     default boolean notExists()
     {
-        return getWebElements().size() == 0;
+        return ! ElementProbe.exists( this );
+    }
+
+    /**
+     * Poll, probing without implicit waits, until the element exists or the timeout expires.
+     */
+    default boolean existsWithin( long timeoutMillis )
+    {
+        return pollUntil( timeoutMillis, () -> ElementProbe.exists( this ) );
+    }
+
+    /**
+     * Poll, probing without implicit waits, until the element does not exist or the timeout expires.
+     */
+    default boolean notExistsWithin( long timeoutMillis )
+    {
+        return pollUntil( timeoutMillis, () -> ! ElementProbe.exists( this ) );
+    }
+
+    default boolean pollUntil( long timeoutMillis, Supplier< Boolean > condition )
+    {
+        Browser browser = getBrowser();
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while ( true )
+        {
+            if ( condition.get() )
+            {
+                return true;
+            }
+            if ( System.currentTimeMillis() >= deadline )
+            {
+                return false;
+            }
+            try
+            {
+                Thread.sleep( browser.getPollIntervalMillis() );
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
     }
 
     default boolean assertExists()
@@ -259,7 +363,7 @@ public interface ModelElement
 
     default boolean assertNotExists()
     {
-        if ( notExists() )
+        if ( notExistsWithin( getBrowser().getImplicitWait() ) )
         {
             return true;
         }
@@ -272,19 +376,7 @@ public interface ModelElement
 
     default String getText()
     {
-        return volatileValue( ( i, e ) -> {
-            switch ( e.getTagName().toLowerCase() )
-            {
-                case "select":
-                    return new Select( e ).getFirstSelectedOption().getText();
-                case "button":
-                    return e.getText();
-                default:
-                    return Optional
-                            .ofNullable( e.getAttribute( "value" ) )
-                            .orElseGet( e::getText );
-            }
-        } );
+        return timed( "getText", () -> snapshot().getText() );
     }
 
     default boolean containsText( String text )
@@ -342,87 +434,106 @@ public interface ModelElement
         throw new AssertionError( format( "Element '%s' does not match regex: %s", item.path(), regex ) );
     }
 
+    default Settle getSettle()
+    {
+        Model item = getSelf();
+        return item.containsKey( "$settle" )
+               ? Settle.parse( item.get( "$settle" ).toString() )
+               : getBrowser().getSettle();
+    }
+
+    default void settle()
+    {
+        getSettle().await( this );
+    }
+
+    /**
+     * Run the action between preparing to settle and settling.
+     */
+    default void settled( Runnable action )
+    {
+        Settle settle = getSettle();
+        settle.prepare( this );
+        action.run();
+        settle.await( this );
+    }
+
     default ModelElement click()
     {
-        volatileElement( ( i, e ) -> e.click() );
-        getSelf().maybeDelay();
-        return this;
+        return timed( "click", () -> {
+            settled( () -> volatileElement( ( i, e ) -> e.click() ) );
+            return this;
+        } );
     }
 
     default ModelElement setText( CharSequence... keys )
     {
-        volatileElement( ( i, e ) -> {
-            e.sendKeys( Keys.chord( Keys.CONTROL, "a" ) );
-            e.sendKeys( Keys.DELETE );
-            if ( keys != null && keys.length > 0 )
-            {
-                e.sendKeys( keys );
-            }
+        return timed( "setText", () -> {
+            settled( () -> volatileElement( ( i, e ) -> {
+                e.sendKeys( Keys.chord( Keys.CONTROL, "a" ) );
+                e.sendKeys( Keys.DELETE );
+                if ( keys != null && keys.length > 0 )
+                {
+                    e.sendKeys( keys );
+                }
+            } ) );
+            return this;
         } );
-        getSelf().maybeDelay();
-        return this;
     }
 
     default ModelElement sendKeys( CharSequence... keys )
     {
-        volatileElement( ( i, e ) -> e.sendKeys( keys ) );
-        getSelf().maybeDelay();
+        settled( () -> volatileElement( ( i, e ) -> e.sendKeys( keys ) ) );
         return this;
     }
 
     default ModelElement tab()
     {
-        volatileElement( ( i, e ) -> e.sendKeys( Keys.TAB ) );
-        getSelf().maybeDelay();
+        settled( () -> volatileElement( ( i, e ) -> e.sendKeys( Keys.TAB ) ) );
         return this;
     }
 
     default ModelElement enter()
     {
-        volatileElement( ( i, e ) -> e.sendKeys( Keys.ENTER ) );
-        getSelf().maybeDelay();
+        settled( () -> volatileElement( ( i, e ) -> e.sendKeys( Keys.ENTER ) ) );
         return this;
     }
 
     default ModelElement space()
     {
-        volatileElement( ( i, e ) -> e.sendKeys( Keys.SPACE ) );
-        getSelf().maybeDelay();
+        settled( () -> volatileElement( ( i, e ) -> e.sendKeys( Keys.SPACE ) ) );
         return this;
     }
 
     default ModelElement selectByText( String text )
     {
-        volatileElement( ( i, e ) -> new Select( e ).selectByVisibleText( text ) );
-        getSelf().maybeDelay();
+        settled( () -> volatileElement( ( i, e ) -> new Select( e ).selectByVisibleText( text ) ) );
         return this;
     }
 
     default ModelElement selectByValue( String text )
     {
-        volatileElement( ( i, e ) -> new Select( e ).selectByValue( text ) );
-        getSelf().maybeDelay();
+        settled( () -> volatileElement( ( i, e ) -> new Select( e ).selectByValue( text ) ) );
         return this;
     }
 
     default ModelElement selectByIndex( int index )
     {
-        volatileElement( ( i, e ) -> new Select( e ).selectByIndex( index ) );
-        getSelf().maybeDelay();
+        settled( () -> volatileElement( ( i, e ) -> new Select( e ).selectByIndex( index ) ) );
         return this;
     }
 
     default ModelElement setAttribute( String key, Object value )
     {
         String script = format( "arguments[0].setAttribute( '%s', '%s' )", key, value );
-        ( ( JavascriptExecutor ) getWebDriver() ).executeScript( script, getWebElement() );
+        volatileElement( ( i, e ) -> ( ( JavascriptExecutor ) getWebDriver() ).executeScript( script, e ) );
         return this;
     }
 
     default ModelElement setStyleAttribute( String key, Object value )
     {
         String script = format( "arguments[0].style.%s = '%s'", key, value );
-        ( ( JavascriptExecutor ) getWebDriver() ).executeScript( script, getWebElement() );
+        volatileElement( ( i, e ) -> ( ( JavascriptExecutor ) getWebDriver() ).executeScript( script, e ) );
         return this;
     }
 }
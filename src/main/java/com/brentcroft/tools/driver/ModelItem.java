@@ -11,12 +11,25 @@ import org.openqa.selenium.*;
 import org.openqa.selenium.interactions.Actions;
 
 import java.io.File;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
 
 import static java.lang.String.format;
 
@@ -24,6 +37,28 @@ public class ModelItem extends AbstractModelItem implements ModelElement, Parent
 {
     protected static final JstlTemplateManager jstl = new JstlTemplateManager();
 
+    public static final String LAZY = "$lazy";
+
+    private static final Set< String > LOCATOR_KEYS = Collections.unmodifiableSet( new HashSet<>( Arrays.asList(
+            "$xpath", "$cssSelector", "$id", "$className", "$index", "$frame", "$shadow" ) ) );
+
+    private static final AtomicLongFieldUpdater< ModelItem > GENERATION = AtomicLongFieldUpdater.newUpdater( ModelItem.class, "generation" );
+
+    // compiled step scripts, by text, shared by every item
+    private static final LruCache< String, Object > compiledSteps = new LruCache<>( 1024 );
+
+    // the directories of the files being included on this thread, innermost first
+    private static final ThreadLocal< Deque< Path > > includingDirectories = ThreadLocal.withInitial( ArrayDeque::new );
+
+    // bumped whenever one of this item's locator keys, or one of its children, might have changed
+    private transient volatile long generation;
+    private transient volatile ResolvedPath resolvedPath;
+    private transient volatile ResolvedShadowRoot shadowRoot;
+    private transient volatile CachedElement cachedElement;
+    private transient volatile boolean lazyPending;
+    private transient volatile Path lazyFile;
+    private transient volatile Thread lazyLoader;
+
     static
     {
         try
@@ -76,12 +111,51 @@ public class ModelItem extends AbstractModelItem implements ModelElement, Parent
     @Override
     public Map< String, Object > newContainer()
     {
-        MapBindings bindings = new MapBindings( this );
+        MapBindings bindings = new NamedModelBindings( this, Browsers.instance() );
         bindings.put( "$self", this );
         bindings.put( "$parent", getParent() );
         return bindings;
     }
 
+    /**
+     * Bindings that see the named browsers of the registry they were created with,
+     * including browsers created during the evaluation they belong to.
+     */
+    private static class NamedModelBindings extends MapBindings
+    {
+        private final Browsers browsers;
+
+        private NamedModelBindings( ModelItem root, Browsers browsers )
+        {
+            super( root );
+            this.browsers = browsers;
+        }
+
+        @Override
+        public boolean containsKey( Object key )
+        {
+            bindNamedModel( key );
+            return super.containsKey( key );
+        }
+
+        @Override
+        public Object get( Object key )
+        {
+            bindNamedModel( key );
+            return super.get( key );
+        }
+
+        private void bindNamedModel( Object key )
+        {
+            if ( key instanceof String && ! super.containsKey( key ) )
+            {
+                browsers
+                        .getNamedModel( ( String ) key )
+                        .ifPresent( model -> put( ( String ) key, model ) );
+            }
+        }
+    }
+
     public static JstlTemplateManager getJstl()
     {
         return jstl;
@@ -107,7 +181,437 @@ public class ModelItem extends AbstractModelItem implements ModelElement, Parent
     @Override
     public ELCompiler getELCompiler()
     {
-        return jstl::compile;
+        // every evaluation has a new scope (see newContainer()), bound when it evaluates
+        return ( expression, scope ) -> compiled( expression, () -> jstl.compile( expression, Collections.emptyMap() ) );
+    }
+
+    /**
+     * Compiled against an empty scope, so the compiled form holds nothing of any caller's scope,
+     * and can be reused by text alone.
+     */
+    @SuppressWarnings( "unchecked" )
+    static < V > V compiled( String expression, Supplier< V > compiler )
+    {
+        return ( V ) compiledSteps.get( expression, compiler::get );
+    }
+
+    public static LruCache< String, Object > getCompiledSteps()
+    {
+        return compiledSteps;
+    }
+
+    @Override
+    public IPath getIPath()
+    {
+        ResolvedPath resolved = resolvedPath;
+        if ( resolved == null || ! resolved.lineage.isCurrent( this ) )
+        {
+            // taken first, so a change while resolving is seen next time
+            Lineage lineage = new Lineage( this );
+            resolved = new ResolvedPath( new IPath( this ), lineage );
+            resolvedPath = resolved;
+        }
+        return resolved.ipath;
+    }
+
+    /**
+     * The shadow root of this item's element, reused while the same driver is on the same page,
+     * and the item is in the same frame.
+     */
+    public SearchContext getShadowRoot( SearchContext context )
+    {
+        Browser browser = getBrowser();
+        WebDriver driver = browser.getWebDriver();
+        long epoch = browser.getNavigationEpoch();
+        ResolvedShadowRoot resolved = shadowRoot;
+        if ( resolved == null
+                || resolved.driver != driver
+                || resolved.epoch != epoch
+                || ! resolved.lineage.isCurrent( this )
+                || ! resolved.frames.equals( getIPath().frames() ) )
+        {
+            Lineage lineage = new Lineage( this );
+            SearchContext root = getWebElement( context ).getShadowRoot();
+            resolved = new ResolvedShadowRoot( root, driver, epoch, browser.getFrameNavigator().getCurrentFrames(), lineage );
+            shadowRoot = resolved;
+        }
+        return resolved.root;
+    }
+
+    public void evictShadowRoot()
+    {
+        shadowRoot = null;
+    }
+
+    /**
+     * A new, empty item of the same name, to receive a copy of this item's entries.
+     */
+    public ModelItem newCopy()
+    {
+        ModelItem copy = new ModelItem();
+        copy.setName( getName() );
+        return copy;
+    }
+
+    public Map< String, Object > readAll()
+    {
+        return readAll( Collections.emptyList() );
+    }
+
+    public Map< String, Object > readAll( List< String > attributes )
+    {
+        return new SubtreeReader( this, attributes ).read();
+    }
+
+    public boolean isCacheElements()
+    {
+        return containsKey( "$cacheElements" )
+               ? Boolean.parseBoolean( get( "$cacheElements" ).toString() )
+               : getBrowser().isCacheElements();
+    }
+
+    @Override
+    public WebElement getWebElement()
+    {
+        if ( ! isCacheElements() )
+        {
+            return ModelElement.super.getWebElement();
+        }
+        Browser browser = getBrowser();
+
+        switchFrame();
+
+        // a handle stays good in its own frame, however often frames are switched
+        FrameNavigator navigator = browser.getFrameNavigator();
+        CachedElement cached = cachedElement;
+        if ( cached != null
+                && cached.driver == browser.getWebDriver()
+                && cached.epoch == browser.getNavigationEpoch()
+                && cached.lineage.isCurrent( this )
+                && navigator.isAt( cached.frames ) )
+        {
+            return cached.element;
+        }
+        WebDriver driver = browser.getWebDriver();
+        long epoch = browser.getNavigationEpoch();
+        Lineage lineage = new Lineage( this );
+        WebElement element = ModelElement.super.getWebElement();
+        cachedElement = new CachedElement( element, driver, epoch, navigator.getCurrentFrames(), lineage );
+        return element;
+    }
+
+    @Override
+    public void evictWebElement()
+    {
+        cachedElement = null;
+    }
+
+    private static boolean isLocatorChange( Object key, Object value )
+    {
+        return LOCATOR_KEYS.contains( key ) || value instanceof Map;
+    }
+
+    @Override
+    public Object put( String key, Object value )
+    {
+        Path included = SiteModelCache.INCLUDES.contains( key ) && value instanceof String
+                        ? resolveIncluded( ( String ) value )
+                        : null;
+        boolean nested = included != null && ( "$json".equals( key ) || "$xml".equals( key ) );
+        if ( included != null )
+        {
+            // fingerprinted before it's read
+            SiteModelCache.included( included );
+        }
+        if ( nested )
+        {
+            includingDirectories.get().push( included.getParent() );
+        }
+        if ( LAZY.equals( key ) && value != null )
+        {
+            // resolved where it's declared, not where it's loaded
+            lazyFile = resolveIncluded( value.toString() );
+        }
+        try
+        {
+            return super.put( key, value );
+        }
+        finally
+        {
+            if ( nested )
+            {
+                includingDirectories.get().pop();
+            }
+            if ( LAZY.equals( key ) && value != null )
+            {
+                lazyPending = true;
+            }
+            if ( isLocatorChange( key, value ) )
+            {
+                nextGeneration();
+            }
+        }
+    }
+
+    private void nextGeneration()
+    {
+        GENERATION.incrementAndGet( this );
+    }
+
+    /**
+     * The file, against the directory of the file being included on this thread, if any,
+     * or else against the current directory.
+     */
+    private Path resolveIncluded( String file )
+    {
+        Path directory = Optional
+                .ofNullable( includingDirectories.get().peek() )
+                .orElseGet( this::getCurrentDirectory );
+        return ( directory == null
+                 ? Paths.get( file )
+                 : directory.resolve( file ) ).toAbsolutePath().normalize();
+    }
+
+    public boolean isLazyPending()
+    {
+        return lazyPending;
+    }
+
+    /**
+     * Take the <code>$lazy</code> file of the source, as resolved where the source declared it.
+     */
+    void copyLazyFile( ModelItem source )
+    {
+        if ( source.lazyFile != null )
+        {
+            lazyFile = source.lazyFile;
+        }
+    }
+
+    /**
+     * Load the sub-file named by <code>$lazy</code> into this item, if not yet loaded.
+     * <p>
+     * Other threads wait for the load to finish;
+     * the loading thread itself reads and writes the item as it stands.
+     */
+    public void materialize()
+    {
+        if ( ! lazyPending || lazyLoader == Thread.currentThread() )
+        {
+            return;
+        }
+        synchronized ( this )
+        {
+            if ( ! lazyPending )
+            {
+                return;
+            }
+            lazyLoader = Thread.currentThread();
+            try
+            {
+                Path file = lazyFile != null
+                            ? lazyFile
+                            : resolveIncluded( super.get( LAZY ).toString() );
+                String type = file.toString().endsWith( ".xml" )
+                              ? "$xml"
+                              : "$json";
+                appendFromJson( format( "{'%s': '%s'}", type, file.toString().replace( '\\', '/' ) ) );
+                // only now is the load published
+                lazyPending = false;
+            }
+            finally
+            {
+                lazyLoader = null;
+            }
+        }
+    }
+
+    /**
+     * A pending item answers for every <code>$</code> key without loading:
+     * locators and settings are declared alongside <code>$lazy</code>, not in the sub-file.
+     */
+    private void materializeFor( Object key )
+    {
+        if ( lazyPending && ! ( key instanceof String && ( ( String ) key ).startsWith( "$" ) ) )
+        {
+            materialize();
+        }
+    }
+
+    @Override
+    public Object get( Object key )
+    {
+        materializeFor( key );
+        return super.get( key );
+    }
+
+    @Override
+    public boolean containsKey( Object key )
+    {
+        materializeFor( key );
+        return super.containsKey( key );
+    }
+
+    @Override
+    public Set< Map.Entry< String, Object > > entrySet()
+    {
+        materialize();
+        return super.entrySet();
+    }
+
+    @Override
+    public Set< String > keySet()
+    {
+        materialize();
+        return super.keySet();
+    }
+
+    @Override
+    public Collection< Object > values()
+    {
+        materialize();
+        return super.values();
+    }
+
+    @Override
+    public int size()
+    {
+        materialize();
+        return super.size();
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        materialize();
+        return super.isEmpty();
+    }
+
+    @Override
+    public void forEach( BiConsumer< ? super String, ? super Object > action )
+    {
+        materialize();
+        super.forEach( action );
+    }
+
+    /**
+     * The entries as held, without loading a pending <code>$lazy</code> sub-file.
+     */
+    Set< Map.Entry< String, Object > > heldEntrySet()
+    {
+        return super.entrySet();
+    }
+
+    @Override
+    public void putAll( Map< ? extends String, ? > map )
+    {
+        super.putAll( map );
+        nextGeneration();
+    }
+
+    @Override
+    public Object remove( Object key )
+    {
+        Object removed = super.remove( key );
+        if ( isLocatorChange( key, removed ) )
+        {
+            nextGeneration();
+        }
+        return removed;
+    }
+
+    @Override
+    public void clear()
+    {
+        super.clear();
+        nextGeneration();
+    }
+
+    /**
+     * An item and each of its ancestors, with their generations, as they were when something was resolved,
+     * since a locator depends on the <code>$frame</code> and <code>$shadow</code> keys of every ancestor.
+     */
+    private static class Lineage
+    {
+        private final ModelItem[] items;
+        private final long[] generations;
+
+        private Lineage( ModelItem item )
+        {
+            List< ModelItem > chain = new ArrayList<>();
+            for ( Object current = item; current instanceof ModelItem; current = ( ( ModelItem ) current ).getParent() )
+            {
+                chain.add( ( ModelItem ) current );
+            }
+            items = chain.toArray( new ModelItem[ 0 ] );
+            generations = new long[ items.length ];
+            for ( int i = 0; i < items.length; i++ )
+            {
+                generations[ i ] = items[ i ].generation;
+            }
+        }
+
+        private boolean isCurrent( ModelItem item )
+        {
+            Object current = item;
+            for ( int i = 0; i < items.length; i++ )
+            {
+                if ( current != items[ i ] || items[ i ].generation != generations[ i ] )
+                {
+                    return false;
+                }
+                current = items[ i ].getParent();
+            }
+            return ! ( current instanceof ModelItem );
+        }
+    }
+
+    private static class ResolvedPath
+    {
+        private final IPath ipath;
+        private final Lineage lineage;
+
+        private ResolvedPath( IPath ipath, Lineage lineage )
+        {
+            this.ipath = ipath;
+            this.lineage = lineage;
+        }
+    }
+
+    private static class ResolvedShadowRoot
+    {
+        private final SearchContext root;
+        private final WebDriver driver;
+        private final long epoch;
+        private final List< String > frames;
+        private final Lineage lineage;
+
+        private ResolvedShadowRoot( SearchContext root, WebDriver driver, long epoch, List< String > frames, Lineage lineage )
+        {
+            this.root = root;
+            this.driver = driver;
+            this.epoch = epoch;
+            this.frames = frames;
+            this.lineage = lineage;
+        }
+    }
+
+    private static class CachedElement
+    {
+        private final WebElement element;
+        private final WebDriver driver;
+        private final long epoch;
+        private final List< String > frames;
+        private final Lineage lineage;
+
+        private CachedElement( WebElement element, WebDriver driver, long epoch, List< String > frames, Lineage lineage )
+        {
+            this.element = element;
+            this.driver = driver;
+            this.epoch = epoch;
+            this.frames = frames;
+            this.lineage = lineage;
+        }
     }
 
     @Override
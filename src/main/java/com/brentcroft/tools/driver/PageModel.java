@@ -3,6 +3,10 @@ package com.brentcroft.tools.driver;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Optional;
+
 import static java.lang.String.format;
 
 @Getter
@@ -21,19 +25,29 @@ public class PageModel extends ModelItem
     }
 
     public PageModel loadFromFile(String siteFile) {
-        if (siteFile.endsWith( ".json" )) {
+        if (!siteFile.endsWith( ".json" ) && !siteFile.endsWith( ".xml" )) {
+            throw new IllegalArgumentException(format("Site file does not have a JSON or XML extension: %s", siteFile));
+        }
+        if ( isSiteCache() ) {
+            Path path = Optional
+                    .ofNullable( getCurrentDirectory() )
+                    .map( dir -> dir.resolve( siteFile ) )
+                    .orElseGet( () -> Paths.get( siteFile ) );
+            SiteModelCache.instance().load( path, this );
+        }
+        else if (siteFile.endsWith( ".json" )) {
             appendFromJson(format("{'$json': '%s'}", siteFile));
         }
-        else if (siteFile.endsWith( ".xml" )) {
+        else {
             appendFromJson(format("{'$xml': '%s'}", siteFile));
         }
-        else
-        {
-            throw new IllegalArgumentException(format("Site file does not have a JSON or XML extension: %s", siteFile));
-        }
         return this;
     }
 
+    public boolean isSiteCache() {
+        return containsKey( "$siteCache" ) && Boolean.parseBoolean( get( "$siteCache" ).toString() );
+    }
+
     public PageModel openFromFile(String siteFile) {
         loadFromFile( siteFile );
         browser.open();
@@ -0,0 +1,298 @@
+package com.brentcroft.tools.driver;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.Charset;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Kills processes, with all their descendants, picked by their command line.
+ * <p>
+ * Only processes of the current user (on Windows, of the current session),
+ * descended from this JVM, are ever picked,
+ * and then only if their command line has each of the given arguments as a whole argument.
+ * <p>
+ * Java 8 can't see the children of a process (e.g. the browsers a chromedriver started),
+ * and can't see a process it didn't start at all,
+ * so the processes are listed, and killed, by the OS's own commands:
+ * <code>ps</code> and <code>kill</code>, or <code>Win32_Process</code> and <code>taskkill /T /F</code>.
+ */
+public class ProcessTrees
+{
+    private static final long COMMAND_TIMEOUT_SECONDS = 10;
+    private static final boolean WINDOWS = System
+            .getProperty( "os.name", "" )
+            .toLowerCase()
+            .startsWith( "windows" );
+
+    // options whose values are paths, compared once normalised
+    private static final List< String > PATH_OPTIONS = Collections.singletonList( "--user-data-dir=" );
+
+    private ProcessTrees()
+    {
+    }
+
+    private static class OsProcess
+    {
+        private final String pid;
+        private final String parent;
+        private final String commandLine;
+
+        private OsProcess( String pid, String parent, String commandLine )
+        {
+            this.pid = pid;
+            this.parent = parent;
+            this.commandLine = commandLine;
+        }
+    }
+
+    /**
+     * Kill every process of this JVM's whose command line has all the arguments, and all their descendants.
+     *
+     * @param executable the file name of the process's executable, or null for any
+     * @return the number of processes killed
+     */
+    public static int kill( String executable, String... arguments )
+    {
+        List< OsProcess > processes = list();
+        Map< String, String > parents = new HashMap<>();
+        processes.forEach( process -> parents.put( process.pid, process.parent ) );
+        String self = selfPid();
+
+        Set< String > killing = new LinkedHashSet<>();
+        processes
+                .stream()
+                .filter( process -> matches( process.commandLine, executable, arguments ) )
+                .filter( process -> self == null || descends( process.pid, self, parents ) )
+                .forEach( process -> killing.add( process.pid ) );
+        if ( killing.isEmpty() )
+        {
+            return 0;
+        }
+        if ( WINDOWS )
+        {
+            List< String > command = new ArrayList<>( Arrays.asList( "taskkill", "/T", "/F" ) );
+            killing.forEach( pid -> command.addAll( Arrays.asList( "/PID", pid ) ) );
+            run( command );
+        }
+        else
+        {
+            // find every descendant before killing any, since the children of a killed process are reparented out of sight
+            for ( int found = 0; found != killing.size(); )
+            {
+                found = killing.size();
+                processes
+                        .stream()
+                        .filter( process -> killing.contains( process.parent ) )
+                        .forEach( process -> killing.add( process.pid ) );
+            }
+            List< String > command = new ArrayList<>( Arrays.asList( "kill", "-KILL" ) );
+            command.addAll( killing );
+            run( command );
+        }
+        System.out.printf( "Killed process trees: %s %s %s%n", executable, Arrays.toString( arguments ), killing );
+        return killing.size();
+    }
+
+    /**
+     * True if the command line runs the executable (if any), and has each of the arguments as a whole argument:
+     * so <code>--port=4444</code> isn't found in <code>--port=44441</code>.
+     */
+    static boolean matches( String commandLine, String executable, String... arguments )
+    {
+        List< String > actual = arguments( commandLine );
+        if ( actual.isEmpty() )
+        {
+            return false;
+        }
+        if ( executable != null && ! executable.equals( new File( actual.get( 0 ) ).getName() ) )
+        {
+            return false;
+        }
+        return Arrays
+                .stream( arguments )
+                .allMatch( argument -> actual
+                        .stream()
+                        .skip( 1 )
+                        .anyMatch( candidate -> sameArgument( argument, candidate ) ) );
+    }
+
+    /**
+     * The command line split into its arguments, at whitespace outside double quotes, with the quotes removed.
+     * <p>
+     * <code>ps</code> doesn't quote arguments, so an argument of its containing whitespace is split.
+     */
+    static List< String > arguments( String commandLine )
+    {
+        List< String > arguments = new ArrayList<>();
+        StringBuilder argument = new StringBuilder();
+        boolean quoted = false;
+        boolean started = false;
+        for ( char c : commandLine.toCharArray() )
+        {
+            if ( c == '"' )
+            {
+                quoted = ! quoted;
+                started = true;
+            }
+            else if ( Character.isWhitespace( c ) && ! quoted )
+            {
+                if ( started )
+                {
+                    arguments.add( argument.toString() );
+                    argument.setLength( 0 );
+                    started = false;
+                }
+            }
+            else
+            {
+                argument.append( c );
+                started = true;
+            }
+        }
+        if ( started )
+        {
+            arguments.add( argument.toString() );
+        }
+        return arguments;
+    }
+
+    private static boolean sameArgument( String expected, String actual )
+    {
+        if ( expected.equals( actual ) )
+        {
+            return true;
+        }
+        return PATH_OPTIONS
+                .stream()
+                .filter( option -> expected.startsWith( option ) && actual.startsWith( option ) )
+                .anyMatch( option -> samePath( expected.substring( option.length() ), actual.substring( option.length() ) ) );
+    }
+
+    private static boolean samePath( String expected, String actual )
+    {
+        try
+        {
+            return Paths
+                    .get( expected )
+                    .toAbsolutePath()
+                    .normalize()
+                    .equals( Paths
+                            .get( actual )
+                            .toAbsolutePath()
+                            .normalize() );
+        }
+        catch ( InvalidPathException e )
+        {
+            return false;
+        }
+    }
+
+    /**
+     * True if the process is a descendant of the ancestor, by following parents until there are none, or one repeats.
+     */
+    static boolean descends( String pid, String ancestor, Map< String, String > parents )
+    {
+        Set< String > seen = new HashSet<>();
+        for ( String parent = parents.get( pid ); parent != null && seen.add( parent ); parent = parents.get( parent ) )
+        {
+            if ( parent.equals( ancestor ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * This JVM's process id, if its runtime name is the usual <code>pid@host</code>, or else null.
+     */
+    private static String selfPid()
+    {
+        String name = ManagementFactory.getRuntimeMXBean().getName();
+        int at = name.indexOf( '@' );
+        return at > 0 && name.substring( 0, at ).chars().allMatch( Character::isDigit )
+               ? name.substring( 0, at )
+               : null;
+    }
+
+    private static List< OsProcess > list()
+    {
+        List< String > command = WINDOWS
+                                 ? Arrays.asList(
+                "powershell", "-NoProfile", "-NonInteractive", "-Command",
+                "Get-CimInstance Win32_Process -Filter ( 'SessionId = ' + ( Get-Process -Id $PID ).SessionId )"
+                        + " | ForEach-Object { '{0} {1} {2}' -f $_.ProcessId, $_.ParentProcessId, $_.CommandLine }" )
+                                 : Arrays.asList( "ps", "-u", System.getProperty( "user.name" ), "-o", "pid=", "-o", "ppid=", "-o", "args=" );
+
+        List< OsProcess > processes = new ArrayList<>();
+        for ( String line : run( command ) )
+        {
+            String[] fields = line.trim().split( "\\s+", 3 );
+            if ( fields.length == 3 )
+            {
+                processes.add( new OsProcess( fields[ 0 ], fields[ 1 ], fields[ 2 ] ) );
+            }
+        }
+        return processes;
+    }
+
+    /**
+     * The output of the command, or nothing if it fails or doesn't finish in time.
+     */
+    private static List< String > run( List< String > command )
+    {
+        List< String > output = new ArrayList<>();
+        try
+        {
+            Process process = new ProcessBuilder( command )
+                    .redirectErrorStream( true )
+                    .start();
+            Thread reader = new Thread( () -> {
+                try ( BufferedReader lines = new BufferedReader( new InputStreamReader( process.getInputStream(), Charset.defaultCharset() ) ) )
+                {
+                    String line;
+                    while ( ( line = lines.readLine() ) != null )
+                    {
+                        synchronized ( output )
+                        {
+                            output.add( line );
+                        }
+                    }
+                }
+                catch ( IOException ignored )
+                {
+                }
+            }, "process-trees-reader" );
+            reader.setDaemon( true );
+            reader.start();
+            if ( ! process.waitFor( COMMAND_TIMEOUT_SECONDS, TimeUnit.SECONDS ) )
+            {
+                process.destroyForcibly();
+                System.out.printf( "Gave up on command: %s%n", command );
+                return Collections.emptyList();
+            }
+            reader.join( TimeUnit.SECONDS.toMillis( COMMAND_TIMEOUT_SECONDS ) );
+        }
+        catch ( IOException e )
+        {
+            System.out.printf( "Failed to run command: %s; %s%n", command, e );
+            return Collections.emptyList();
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            return Collections.emptyList();
+        }
+        synchronized ( output )
+        {
+            return new ArrayList<>( output );
+        }
+    }
+}
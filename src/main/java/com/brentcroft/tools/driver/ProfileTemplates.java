@@ -0,0 +1,214 @@
+package com.brentcroft.tools.driver;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.function.Consumer;
+
+import static java.lang.String.format;
+
+/**
+ * Browser profiles (user data directories) cloned from a template,
+ * so each session starts with a profile that has already been through first-run initialization,
+ * component updates and cache warmup.
+ * <p>
+ * The first session to ask for a template that isn't ready yet has it built in place,
+ * by a warm-up session of its own that only ever sees <code>about:blank</code>,
+ * and once that has quit the template is marked ready.
+ * Sessions asking while it's being built get an empty profile.
+ * Every session gets its own copy of the template, in a temp directory,
+ * without the lock files of the browser that built it, nor any cookies or web storage,
+ * and the copy is deleted when the session quits.
+ * Copies still in use are deleted when the JVM exits.
+ */
+public class ProfileTemplates
+{
+    static final String READY = ".profile-template";
+    // cookies and web storage, which would otherwise be shared by every copy
+    static final Set< String > SESSION_STATE = new HashSet<>( Arrays.asList(
+            "Cookies", "Cookies-journal", "Local Storage", "Session Storage", "IndexedDB" ) );
+
+    private static final ProfileTemplates instance = new ProfileTemplates();
+
+    private final Set< Path > building = new HashSet<>();
+    private final Set< Path > copies = new HashSet<>();
+
+    public static ProfileTemplates instance()
+    {
+        return instance;
+    }
+
+    ProfileTemplates()
+    {
+        Runtime.getRuntime().addShutdownHook( new Thread( this::deleteAll, "profile-templates-shutdown" ) );
+    }
+
+    /**
+     * A profile for a new session: a new copy of the template,
+     * which is built first, if need be, by passing it to the warm-up,
+     * or else an empty profile while it's being built.
+     */
+    public Path newProfile( Path template, Consumer< Path > warmUp )
+    {
+        Path source = template.toAbsolutePath().normalize();
+        boolean build;
+        synchronized ( this )
+        {
+            build = ! Files.exists( source.resolve( READY ) ) && building.add( source );
+        }
+        if ( build )
+        {
+            build( source, warmUp );
+        }
+        Path copy;
+        try
+        {
+            copy = Files.createTempDirectory( "profile-" );
+            if ( Files.exists( source.resolve( READY ) ) )
+            {
+                copy( source, copy );
+            }
+        }
+        catch ( IOException e )
+        {
+            throw new IllegalArgumentException( format( "Failed to copy profile template: %s", source ), e );
+        }
+        synchronized ( this )
+        {
+            copies.add( copy );
+        }
+        return copy;
+    }
+
+    private void build( Path template, Consumer< Path > warmUp )
+    {
+        System.out.printf( "Building profile template: %s%n", template );
+        try
+        {
+            Files.createDirectories( template );
+            warmUp.accept( template );
+            Files.write( template.resolve( READY ), new byte[ 0 ] );
+        }
+        catch ( IOException | RuntimeException e )
+        {
+            abandon( template );
+            throw new IllegalArgumentException( format( "Failed to build profile template: %s", template ), e );
+        }
+        synchronized ( this )
+        {
+            building.remove( template );
+        }
+        System.out.printf( "Built profile template: %s%n", template );
+    }
+
+    /**
+     * The session using the profile has quit: delete the copy.
+     */
+    public void release( Path profile )
+    {
+        synchronized ( this )
+        {
+            if ( ! copies.remove( profile ) )
+            {
+                return;
+            }
+        }
+        delete( profile );
+    }
+
+    /**
+     * The session for the profile never started: delete a copy,
+     * or give up on a template being built, without marking it ready, so the next session builds it again.
+     */
+    public void abandon( Path profile )
+    {
+        boolean built;
+        synchronized ( this )
+        {
+            built = building.remove( profile );
+        }
+        if ( built )
+        {
+            System.out.printf( "Abandoned profile template: %s%n", profile );
+        }
+        else
+        {
+            release( profile );
+        }
+    }
+
+    static boolean isLockFile( String filename )
+    {
+        return filename.startsWith( "Singleton" ) || "lockfile".equals( filename );
+    }
+
+    private static void copy( Path source, Path target ) throws IOException
+    {
+        Files.walkFileTree( source, new SimpleFileVisitor< Path >()
+        {
+            @Override
+            public FileVisitResult preVisitDirectory( Path dir, BasicFileAttributes attrs ) throws IOException
+            {
+                if ( ! dir.equals( source ) && SESSION_STATE.contains( dir.getFileName().toString() ) )
+                {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                Files.createDirectories( target.resolve( source.relativize( dir ).toString() ) );
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile( Path file, BasicFileAttributes attrs ) throws IOException
+            {
+                String filename = file.getFileName().toString();
+                if ( attrs.isRegularFile()
+                        && ! isLockFile( filename )
+                        && ! READY.equals( filename )
+                        && ! SESSION_STATE.contains( filename ) )
+                {
+                    Files.copy( file, target.resolve( source.relativize( file ).toString() ), StandardCopyOption.COPY_ATTRIBUTES );
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        } );
+    }
+
+    private static void delete( Path profile )
+    {
+        try
+        {
+            Files.walkFileTree( profile, new SimpleFileVisitor< Path >()
+            {
+                @Override
+                public FileVisitResult visitFile( Path file, BasicFileAttributes attrs ) throws IOException
+                {
+                    Files.delete( file );
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory( Path dir, IOException e ) throws IOException
+                {
+                    Files.delete( dir );
+                    return FileVisitResult.CONTINUE;
+                }
+            } );
+        }
+        catch ( IOException e )
+        {
+            System.out.printf( "Failed to delete profile: %s; %s%n", profile, e );
+        }
+    }
+
+    private void deleteAll()
+    {
+        List< Path > remaining;
+        synchronized ( this )
+        {
+            remaining = new ArrayList<>( copies );
+            copies.clear();
+        }
+        remaining.forEach( ProfileTemplates::delete );
+    }
+}
@@ -0,0 +1,162 @@
+package com.brentcroft.tools.driver;
+
+import lombok.Getter;
+import org.openqa.selenium.ElementClickInterceptedException;
+import org.openqa.selenium.ElementNotInteractableException;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.WebDriverException;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.lang.String.format;
+
+/**
+ * How ModelElement retries an action that failed with a retryable exception.
+ * <p>
+ * A policy can be given as text, on the page model or on an item, via <code>$retry</code>, e.g.:
+ * <pre>
+ *     attempts=8, delay=50, multiplier=2, maxDelay=2000, jitter=0.2, budget=10000, on=stale|intercepted
+ * </pre>
+ * Delays are in milliseconds. A negative delay (the default) means use the item's own delay.
+ * A budget of zero means no overall time limit.
+ */
+@Getter
+public class RetryPolicy
+{
+    private static final Map< String, Class< ? extends WebDriverException > > RETRYABLES = new LinkedHashMap<>();
+
+    static
+    {
+        RETRYABLES.put( "stale", StaleElementReferenceException.class );
+        RETRYABLES.put( "intercepted", ElementClickInterceptedException.class );
+        RETRYABLES.put( "notInteractable", ElementNotInteractableException.class );
+    }
+
+    public static final RetryPolicy DEFAULT = new RetryPolicy(
+            ModelElement.VOLATILE_RETRIES,
+            - 1,
+            1,
+            0,
+            0,
+            0,
+            Collections.singleton( "stale" ) );
+
+    private static final Map< String, RetryPolicy > parsed = new ConcurrentHashMap<>();
+
+    private final int maxAttempts;
+    private final long delayMillis;
+    private final double multiplier;
+    private final long maxDelayMillis;
+    private final double jitter;
+    private final long budgetMillis;
+    private final Set< String > retryOn;
+
+    public RetryPolicy( int maxAttempts, long delayMillis, double multiplier, long maxDelayMillis, double jitter, long budgetMillis, Set< String > retryOn )
+    {
+        if ( maxAttempts < 1 )
+        {
+            throw new IllegalArgumentException( format( "Retry attempts must be at least 1: %s", maxAttempts ) );
+        }
+        if ( jitter < 0 || jitter > 1 )
+        {
+            throw new IllegalArgumentException( format( "Retry jitter must be between 0 and 1: %s", jitter ) );
+        }
+        retryOn
+                .stream()
+                .filter( name -> ! RETRYABLES.containsKey( name ) )
+                .findFirst()
+                .ifPresent( name -> {
+                    throw new IllegalArgumentException( format( "Unknown retryable: %s; expected one of %s", name, RETRYABLES.keySet() ) );
+                } );
+        this.maxAttempts = maxAttempts;
+        this.delayMillis = delayMillis;
+        this.multiplier = multiplier;
+        this.maxDelayMillis = maxDelayMillis;
+        this.jitter = jitter;
+        this.budgetMillis = budgetMillis;
+        this.retryOn = Collections.unmodifiableSet( new LinkedHashSet<>( retryOn ) );
+    }
+
+    public static RetryPolicy parse( String text )
+    {
+        return parsed.computeIfAbsent( text, RetryPolicy::newPolicy );
+    }
+
+    private static RetryPolicy newPolicy( String text )
+    {
+        Map< String, String > values = Stream
+                .of( text.split( "\\s*,\\s*" ) )
+                .map( String::trim )
+                .filter( entry -> ! entry.isEmpty() )
+                .map( entry -> entry.split( "\\s*=\\s*", 2 ) )
+                .peek( kv -> {
+                    if ( kv.length < 2 )
+                    {
+                        throw new IllegalArgumentException( format( "Retry entry is not key=value: '%s' in: %s", kv[ 0 ], text ) );
+                    }
+                } )
+                .collect( Collectors.toMap( kv -> kv[ 0 ], kv -> kv[ 1 ] ) );
+
+        return new RetryPolicy(
+                Integer.parseInt( values.getOrDefault( "attempts", String.valueOf( DEFAULT.maxAttempts ) ) ),
+                Long.parseLong( values.getOrDefault( "delay", String.valueOf( DEFAULT.delayMillis ) ) ),
+                Double.parseDouble( values.getOrDefault( "multiplier", String.valueOf( DEFAULT.multiplier ) ) ),
+                Long.parseLong( values.getOrDefault( "maxDelay", String.valueOf( DEFAULT.maxDelayMillis ) ) ),
+                Double.parseDouble( values.getOrDefault( "jitter", String.valueOf( DEFAULT.jitter ) ) ),
+                Long.parseLong( values.getOrDefault( "budget", String.valueOf( DEFAULT.budgetMillis ) ) ),
+                Optional
+                        .ofNullable( values.get( "on" ) )
+                        .map( on -> Stream
+                                .of( on.split( "\\s*\\|\\s*" ) )
+                                .map( String::trim )
+                                .filter( name -> ! name.isEmpty() )
+                                .collect( Collectors.toCollection( LinkedHashSet::new ) ) )
+                        .orElseGet( () -> new LinkedHashSet<>( DEFAULT.retryOn ) ) );
+    }
+
+    public boolean isRetryable( Throwable e )
+    {
+        return retryOn
+                .stream()
+                .map( RETRYABLES::get )
+                .anyMatch( type -> type.isInstance( e ) );
+    }
+
+    /**
+     * The delay before the given retry (counting from 1),
+     * or a negative value to use the item's own delay.
+     */
+    public long delayBefore( int retry )
+    {
+        if ( delayMillis < 0 )
+        {
+            return delayMillis;
+        }
+        double delay = delayMillis * Math.pow( multiplier, Math.max( 0, retry - 1 ) );
+        if ( maxDelayMillis > 0 )
+        {
+            delay = Math.min( delay, maxDelayMillis );
+        }
+        if ( jitter > 0 )
+        {
+            delay = delay * ( 1 - jitter + 2 * jitter * ThreadLocalRandom.current().nextDouble() );
+        }
+        return Math.round( delay );
+    }
+
+    public boolean isExhausted( int attempts, long elapsedMillis, long nextDelayMillis )
+    {
+        return attempts >= maxAttempts
+                || ( budgetMillis > 0 && elapsedMillis + Math.max( 0, nextDelayMillis ) > budgetMillis );
+    }
+
+    public String toString()
+    {
+        return format( "attempts=%s, delay=%s, multiplier=%s, maxDelay=%s, jitter=%s, budget=%s, on=%s",
+                maxAttempts, delayMillis, multiplier, maxDelayMillis, jitter, budgetMillis, String.join( "|", retryOn ) );
+    }
+}
@@ -0,0 +1,250 @@
+package com.brentcroft.tools.driver;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.lang.String.format;
+
+/**
+ * Encodes and writes screenshots on a background thread.
+ * <p>
+ * Screenshots are taken as PNG bytes, then written as <code>jpg</code> (the default), <code>png</code>,
+ * or <code>webp</code> when an ImageIO plugin for it is present, at the given quality and scale,
+ * with no temporary files.
+ * <p>
+ * At most <code>maxPending</code> screenshots wait to be written:
+ * beyond that the caller writes its own, so a slow disk slows the run rather than filling memory.
+ * <code>flush()</code> (and <code>close()</code>) wait until every screenshot submitted is written.
+ */
+public class ScreenshotWriter implements AutoCloseable
+{
+    private static final AtomicInteger sequence = new AtomicInteger();
+    private static final int DEFAULT_MAX_PENDING = 16;
+
+    @Getter
+    @Setter
+    private String directory = "target/screenshots";
+    @Getter
+    private String format = "jpg";
+    @Getter
+    private float quality = 0.8f;
+    @Getter
+    private double scale = 1.0;
+
+    private final ThreadPoolExecutor executor;
+    private final Object lock = new Object();
+    private int pending;
+
+    public ScreenshotWriter()
+    {
+        this( DEFAULT_MAX_PENDING );
+    }
+
+    public ScreenshotWriter( int maxPending )
+    {
+        executor = new ThreadPoolExecutor(
+                1, 1,
+                30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>( maxPending ),
+                runnable -> {
+                    Thread thread = new Thread( runnable, "screenshot-writer" );
+                    thread.setDaemon( true );
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy() );
+        executor.allowCoreThreadTimeOut( true );
+    }
+
+    public void setFormat( String format )
+    {
+        String name = format.toLowerCase( Locale.ROOT );
+        if ( "jpeg".equals( name ) )
+        {
+            name = "jpg";
+        }
+        if ( ! ImageIO.getImageWritersByFormatName( name ).hasNext() )
+        {
+            if ( ! "webp".equals( name ) )
+            {
+                throw new IllegalArgumentException( format( "No image writer for screenshot format: %s", format ) );
+            }
+            System.out.printf( "No image writer for webp: writing screenshots as jpg%n" );
+            name = "jpg";
+        }
+        this.format = name;
+    }
+
+    public void setQuality( float quality )
+    {
+        if ( quality <= 0 || quality > 1 )
+        {
+            throw new IllegalArgumentException( format( "Screenshot quality must be greater than 0 and at most 1: %s", quality ) );
+        }
+        this.quality = quality;
+    }
+
+    public void setScale( double scale )
+    {
+        if ( scale <= 0 || scale > 1 )
+        {
+            throw new IllegalArgumentException( format( "Screenshot scale must be greater than 0 and at most 1: %s", scale ) );
+        }
+        this.scale = scale;
+    }
+
+    /**
+     * Queue a PNG screenshot to be written, returning the path it will be written to.
+     */
+    public Path submit( String key, byte[] png )
+    {
+        Path target = Paths.get(
+                directory,
+                format( "screenshot-%05d-%s.%s", sequence.getAndIncrement(), key.replaceAll( "[\\s/\\\\:]", "-" ), format ) );
+
+        // settings are read now, not when written
+        String imageFormat = format;
+        float imageQuality = quality;
+        double imageScale = scale;
+
+        synchronized ( lock )
+        {
+            pending++;
+        }
+        executor.execute( () -> {
+            try
+            {
+                write( target, encode( png, imageFormat, imageQuality, imageScale ) );
+                System.out.printf( "Saved screenshot: %s%n", target );
+            }
+            catch ( Exception e )
+            {
+                System.out.printf( "Failed to write screenshot: %s; %s%n", target, e );
+            }
+            finally
+            {
+                synchronized ( lock )
+                {
+                    pending--;
+                    lock.notifyAll();
+                }
+            }
+        } );
+        return target;
+    }
+
+    public void flush()
+    {
+        synchronized ( lock )
+        {
+            while ( pending > 0 )
+            {
+                try
+                {
+                    lock.wait();
+                }
+                catch ( InterruptedException e )
+                {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        flush();
+    }
+
+    private static void write( Path target, byte[] bytes ) throws IOException
+    {
+        Path parent = target.toAbsolutePath().getParent();
+        if ( parent != null )
+        {
+            Files.createDirectories( parent );
+        }
+        Files.write( target, bytes );
+    }
+
+    static byte[] encode( byte[] png, String format, float quality, double scale ) throws IOException
+    {
+        if ( "png".equals( format ) && scale == 1.0 )
+        {
+            return png;
+        }
+        BufferedImage image = ImageIO.read( new ByteArrayInputStream( png ) );
+        if ( image == null )
+        {
+            throw new IOException( "Not an image" );
+        }
+
+        int width = Math.max( 1, ( int ) Math.round( image.getWidth() * scale ) );
+        int height = Math.max( 1, ( int ) Math.round( image.getHeight() * scale ) );
+
+        // jpg has no alpha channel
+        BufferedImage output = new BufferedImage(
+                width,
+                height,
+                "png".equals( format ) ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB );
+        Graphics2D graphics = output.createGraphics();
+        try
+        {
+            graphics.setRenderingHint( RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR );
+            graphics.drawImage( image, 0, 0, width, height, null );
+        }
+        finally
+        {
+            graphics.dispose();
+        }
+
+        Iterator< ImageWriter > writers = ImageIO.getImageWritersByFormatName( format );
+        if ( ! writers.hasNext() )
+        {
+            throw new IOException( format( "No image writer for: %s", format ) );
+        }
+        ImageWriter writer = writers.next();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try ( MemoryCacheImageOutputStream stream = new MemoryCacheImageOutputStream( bytes ) )
+        {
+            writer.setOutput( stream );
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if ( param.canWriteCompressed() )
+            {
+                param.setCompressionMode( ImageWriteParam.MODE_EXPLICIT );
+                if ( param.getCompressionType() == null && param.getCompressionTypes().length > 0 )
+                {
+                    param.setCompressionType( param.getCompressionTypes()[ 0 ] );
+                }
+                param.setCompressionQuality( quality );
+            }
+            writer.write( null, new IIOImage( output, null, null ), param );
+        }
+        finally
+        {
+            writer.dispose();
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,41 @@
+package com.brentcroft.tools.driver;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The scripts el-driver injects each start with a marker comment giving their id,
+ * e.g. <code>/&#42; el-driver:probe &#42;/</code>,
+ * so that a script can be recognised (e.g. by FakeWebDriver) by what it is, rather than by its exact text.
+ */
+public final class ScriptId
+{
+    public static final String SNAPSHOT = "snapshot";
+    public static final String SUBTREE = "subtree";
+    public static final String PROBE = "probe";
+    public static final String CLEAR_STORAGE = "clear-storage";
+    public static final String TRACK_NETWORK = "track-network";
+    public static final String SETTLE = "settle";
+
+    private static final Pattern MARKER = Pattern.compile( "^\\s*/\\* el-driver:([\\w-]+) \\*/" );
+
+    private ScriptId()
+    {
+    }
+
+    static String mark( String id, String... lines )
+    {
+        return "/* el-driver:" + id + " */\n" + String.join( "\n", lines );
+    }
+
+    /**
+     * The id of an injected script, or null for any other script.
+     */
+    public static String of( String script )
+    {
+        Matcher matcher = MARKER.matcher( script );
+        return matcher.find()
+               ? matcher.group( 1 )
+               : null;
+    }
+}
@@ -0,0 +1,273 @@
+package com.brentcroft.tools.driver;
+
+import com.brentcroft.tools.model.Model;
+import com.brentcroft.tools.model.ModelEvent;
+import lombok.Getter;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.ScriptTimeoutException;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import static java.lang.String.format;
+
+/**
+ * What a ModelElement waits for after an action.
+ * <p>
+ * Given as text, on the page model or on an item, via <code>$settle</code>,
+ * as a comma separated list of conditions:
+ * <ul>
+ *     <li><code>delay</code> - the item's fixed delay (the default)</li>
+ *     <li><code>ready</code> - <code>document.readyState</code> is complete</li>
+ *     <li><code>dom</code> or <code>dom:150</code> - no DOM mutations for the given millis (default 100)</li>
+ *     <li><code>network</code> - no fetch/XHR in flight (counted from just before the action)</li>
+ *     <li><code>script</code> - the JavaScript expression in <code>$settleScript</code> is truthy</li>
+ *     <li><code>strict</code> - a settle that times out fails the action, rather than raising a message</li>
+ * </ul>
+ * Browser conditions are awaited together in the browser, and never for longer than <code>$settleMax</code> seconds.
+ * <p>
+ * Fetch/XHR tracking is installed by <code>prepare()</code>, before the action,
+ * so requests the action itself starts are counted;
+ * with CDP it's also installed in every new document (see <code>Browser.open()</code>).
+ */
+@Getter
+public class Settle
+{
+    public static final Settle DEFAULT = new Settle( true, false, - 1, false, false, false );
+
+    private static final long DEFAULT_DOM_IDLE_MILLIS = 100;
+
+    private static final Map< String, Settle > parsed = new ConcurrentHashMap<>();
+
+    static final String TRACK_NETWORK = ScriptId.mark( ScriptId.TRACK_NETWORK,
+            "( function( w ) {",
+            "if ( w.__elDriverInflight === undefined ) {",
+            "    w.__elDriverInflight = 0;",
+            "    if ( w.fetch ) {",
+            "        var f = w.fetch;",
+            "        w.fetch = function() {",
+            "            w.__elDriverInflight++;",
+            "            return f.apply( this, arguments ).finally( function() { w.__elDriverInflight--; } );",
+            "        };",
+            "    }",
+            "    var send = XMLHttpRequest.prototype.send;",
+            "    XMLHttpRequest.prototype.send = function() {",
+            "        w.__elDriverInflight++;",
+            "        this.addEventListener( 'loadend', function() { w.__elDriverInflight--; } );",
+            "        return send.apply( this, arguments );",
+            "    };",
+            "}",
+            "} )( window );" );
+
+    private static final String AWAIT = String.join( "\n",
+            "var started = Date.now(), lastMutation = Date.now(), observer = null;",
+            "if ( opts.domIdle >= 0 ) {",
+            "    observer = new MutationObserver( function() { lastMutation = Date.now(); } );",
+            "    observer.observe( document, { childList: true, subtree: true, attributes: true, characterData: true } );",
+            "}",
+            "function settled() {",
+            "    if ( opts.ready && document.readyState !== 'complete' ) return false;",
+            "    if ( opts.network && w.__elDriverInflight > 0 ) return false;",
+            "    if ( observer && Date.now() - lastMutation < opts.domIdle ) return false;",
+            "    try { if ( !custom() ) return false; } catch ( e ) { return false; }",
+            "    return true;",
+            "}",
+            "( function poll() {",
+            "    var ok = settled();",
+            "    if ( ok || Date.now() - started >= opts.max ) {",
+            "        if ( observer ) observer.disconnect();",
+            "        done( ok );",
+            "        return;",
+            "    }",
+            "    setTimeout( poll, 25 );",
+            "} )();" );
+
+    private final boolean delay;
+    private final boolean ready;
+    private final long domIdleMillis;
+    private final boolean network;
+    private final boolean script;
+    private final boolean strict;
+
+    public Settle( boolean delay, boolean ready, long domIdleMillis, boolean network, boolean script, boolean strict )
+    {
+        this.delay = delay;
+        this.ready = ready;
+        this.domIdleMillis = domIdleMillis;
+        this.network = network;
+        this.script = script;
+        this.strict = strict;
+    }
+
+    public static Settle parse( String text )
+    {
+        return parsed.computeIfAbsent( text, Settle::newSettle );
+    }
+
+    private static Settle newSettle( String text )
+    {
+        boolean[] flags = new boolean[ 5 ];
+        long[] domIdle = { - 1 };
+        Stream
+                .of( text.split( "\\s*,\\s*" ) )
+                .map( String::trim )
+                .filter( condition -> ! condition.isEmpty() )
+                .forEach( condition -> {
+                    String[] parts = condition.split( "\\s*:\\s*", 2 );
+                    switch ( parts[ 0 ] )
+                    {
+                        case "delay":
+                            flags[ 0 ] = true;
+                            break;
+                        case "ready":
+                            flags[ 1 ] = true;
+                            break;
+                        case "network":
+                            flags[ 2 ] = true;
+                            break;
+                        case "script":
+                            flags[ 3 ] = true;
+                            break;
+                        case "strict":
+                            flags[ 4 ] = true;
+                            break;
+                        case "dom":
+                            domIdle[ 0 ] = parts.length > 1
+                                           ? Long.parseLong( parts[ 1 ] )
+                                           : DEFAULT_DOM_IDLE_MILLIS;
+                            break;
+                        default:
+                            throw new IllegalArgumentException( format( "Unknown settle condition: '%s' in: %s", condition, text ) );
+                    }
+                } );
+        return new Settle( flags[ 0 ], flags[ 1 ], domIdle[ 0 ], flags[ 2 ], flags[ 3 ], flags[ 4 ] );
+    }
+
+    public boolean isBrowserWait()
+    {
+        return ready || network || script || domIdleMillis >= 0;
+    }
+
+    /**
+     * Before the action: start counting fetch/XHR requests, if network is awaited.
+     */
+    public void prepare( ModelElement element )
+    {
+        if ( ! network )
+        {
+            return;
+        }
+        WebDriver driver = element.getWebDriver();
+        if ( driver instanceof JavascriptExecutor )
+        {
+            try
+            {
+                ( ( JavascriptExecutor ) driver ).executeScript( TRACK_NETWORK );
+            }
+            catch ( WebDriverException e )
+            {
+                Model item = element.getSelf();
+                item
+                        .notifyModelEvent(
+                                ModelEvent
+                                        .EventType
+                                        .MESSAGE
+                                        .newEvent( item, format( "settle not tracking network: %s; %s", item.path(), e.getClass().getSimpleName() ) ) );
+            }
+        }
+    }
+
+    public void await( ModelElement element )
+    {
+        Model item = element.getSelf();
+        if ( delay )
+        {
+            item.maybeDelay();
+        }
+        if ( ! isBrowserWait() )
+        {
+            return;
+        }
+        WebDriver driver = element.getWebDriver();
+        if ( ! ( driver instanceof JavascriptExecutor ) )
+        {
+            return;
+        }
+
+        String custom = "true";
+        if ( script )
+        {
+            Object settleScript = item.containsKey( "$settleScript" )
+                                  ? item.get( "$settleScript" )
+                                  : element.getBrowser().getPageModel().get( "$settleScript" );
+            if ( settleScript == null )
+            {
+                throw new IllegalArgumentException( format( "Settle condition 'script' requires $settleScript: %s", item.path() ) );
+            }
+            custom = settleScript.toString();
+        }
+
+        Map< String, Object > opts = new HashMap<>();
+        opts.put( "ready", ready );
+        opts.put( "network", network );
+        opts.put( "domIdle", domIdleMillis );
+        opts.put( "max", element.getBrowser().getSettleMaxMillis() );
+
+        String awaitScript = ScriptId.mark( ScriptId.SETTLE,
+                "var opts = arguments[ 0 ], done = arguments[ arguments.length - 1 ], w = window;",
+                "function custom() { return ( " + custom + " ); }",
+                // the action may have loaded a new document: count from now, at least
+                "if ( opts.network ) " + TRACK_NETWORK,
+                AWAIT );
+        Object settled;
+        try
+        {
+            settled = ( ( JavascriptExecutor ) driver ).executeAsyncScript( awaitScript, opts );
+        }
+        catch ( ScriptTimeoutException e )
+        {
+            timedOut( item, e );
+            return;
+        }
+        catch ( WebDriverException e )
+        {
+            // e.g. the action navigated away and unloaded the document
+            item
+                    .notifyModelEvent(
+                            ModelEvent
+                                    .EventType
+                                    .MESSAGE
+                                    .newEvent( item, format( "settle interrupted: %s; %s", item.path(), e.getClass().getSimpleName() ) ) );
+            return;
+        }
+        if ( Boolean.FALSE.equals( settled ) )
+        {
+            timedOut( item, null );
+        }
+    }
+
+    private void timedOut( Model item, WebDriverException cause )
+    {
+        String msg = format( "settle timed out: %s; %s", item.path(), this );
+        if ( strict )
+        {
+            throw new TimeoutException( msg, cause );
+        }
+        item
+                .notifyModelEvent(
+                        ModelEvent
+                                .EventType
+                                .MESSAGE
+                                .newEvent( item, msg ) );
+    }
+
+    public String toString()
+    {
+        return format( "delay=%s, ready=%s, dom=%s, network=%s, script=%s, strict=%s", delay, ready, domIdleMillis, network, script, strict );
+    }
+}
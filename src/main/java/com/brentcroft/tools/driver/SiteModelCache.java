@@ -0,0 +1,289 @@
+package com.brentcroft.tools.driver;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static java.lang.String.format;
+
+/**
+ * Keeps the ModelItem tree built from each site file for the lifetime of the JVM,
+ * so that loading the same site again is a deep copy rather than a re-parse.
+ * Used only by page models that opt in with <code>$siteCache</code>.
+ * <p>
+ * An entry is valid while the modification time and size of the site file,
+ * and of every file it references (<code>properties</code>, <code>$properties</code>,
+ * <code>$json</code> and <code>$xml</code>, transitively), are unchanged:
+ * both the references found in the files and those actually included during the load are fingerprinted.
+ * <p>
+ * The tree is built in a PageModel of its own, seeded with the scalar <code>$</code> settings
+ * of the page model loading it, so EL run during the load sees the same root settings;
+ * an entry is only reused by a page model with the same settings.
+ */
+public class SiteModelCache
+{
+    private static final SiteModelCache instance = new SiteModelCache();
+
+    private static final Pattern REFERENCE = Pattern.compile(
+            "[\"']?\\$?(?:properties|json|xml)[\"']?\\s*[=:]\\s*[\"']([^\"'$]+)[\"']" );
+
+    static final Set< String > INCLUDES = Collections.unmodifiableSet( new HashSet<>( Arrays.asList(
+            "$json", "$xml", "$properties", "properties" ) ) );
+
+    // the files included by the load in progress on this thread, if any
+    private static final ThreadLocal< Map< Path, Fingerprint > > included = new ThreadLocal<>();
+
+    private final Map< Path, Entry > entries = new ConcurrentHashMap<>();
+
+    public static SiteModelCache instance()
+    {
+        return instance;
+    }
+
+    private SiteModelCache()
+    {
+    }
+
+    private static class Fingerprint
+    {
+        private final Path file;
+        private final long modified;
+        private final long size;
+
+        private Fingerprint( Path file ) throws IOException
+        {
+            BasicFileAttributes attributes = Files.readAttributes( file, BasicFileAttributes.class );
+            this.file = file;
+            this.modified = attributes.lastModifiedTime().toMillis();
+            this.size = attributes.size();
+        }
+
+        private boolean isCurrent()
+        {
+            try
+            {
+                BasicFileAttributes attributes = Files.readAttributes( file, BasicFileAttributes.class );
+                return modified == attributes.lastModifiedTime().toMillis() && size == attributes.size();
+            }
+            catch ( IOException e )
+            {
+                return false;
+            }
+        }
+    }
+
+    private static class Entry
+    {
+        private final ModelItem template;
+        private final Map< String, Object > settings;
+        private final Collection< Fingerprint > fingerprints;
+
+        private Entry( ModelItem template, Map< String, Object > settings, Collection< Fingerprint > fingerprints )
+        {
+            this.template = template;
+            this.settings = settings;
+            this.fingerprints = fingerprints;
+        }
+
+        private boolean isCurrent( Map< String, Object > settings )
+        {
+            return this.settings.equals( settings ) && fingerprints.stream().allMatch( Fingerprint::isCurrent );
+        }
+    }
+
+    /**
+     * An item being loaded on this thread is including the file:
+     * fingerprint it, if a site is being built.
+     */
+    static void included( Path file )
+    {
+        Map< Path, Fingerprint > files = included.get();
+        if ( files == null || files.containsKey( file ) || ! Files.isRegularFile( file ) )
+        {
+            return;
+        }
+        try
+        {
+            files.put( file, new Fingerprint( file ) );
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( format( "Failed to read site file: %s", file ), e );
+        }
+    }
+
+    /**
+     * Append the items of the site file to the target,
+     * building them from the file only if there is no current cached copy.
+     */
+    public void load( Path siteFile, ModelItem target )
+    {
+        Path key = siteFile.toAbsolutePath().normalize();
+        Map< String, Object > settings = settings( target );
+        Entry entry = entries.get( key );
+        if ( entry == null || ! entry.isCurrent( settings ) )
+        {
+            entry = build( key, settings );
+            entries.put( key, entry );
+        }
+        copyInto( entry.template, target );
+    }
+
+    public void clear()
+    {
+        entries.clear();
+    }
+
+    public int size()
+    {
+        return entries.size();
+    }
+
+    /**
+     * The scalar <code>$</code> settings of the target, other than includes.
+     */
+    private static Map< String, Object > settings( ModelItem target )
+    {
+        Map< String, Object > settings = new TreeMap<>();
+        target.heldEntrySet().forEach( e -> {
+            Object value = e.getValue();
+            if ( e.getKey().startsWith( "$" )
+                    && ! INCLUDES.contains( e.getKey() )
+                    && ! ModelItem.LAZY.equals( e.getKey() )
+                    && ( value instanceof String || value instanceof Number || value instanceof Boolean ) )
+            {
+                settings.put( e.getKey(), value );
+            }
+        } );
+        return settings;
+    }
+
+    private static Entry build( Path siteFile, Map< String, Object > settings )
+    {
+        // fingerprint first, so a change during the build invalidates the entry
+        Map< Path, Fingerprint > fingerprints = new LinkedHashMap<>();
+        fingerprint( siteFile ).forEach( fingerprint -> fingerprints.put( fingerprint.file, fingerprint ) );
+
+        String name = siteFile.getFileName().toString();
+        String type;
+        if ( name.endsWith( ".json" ) )
+        {
+            type = "$json";
+        }
+        else if ( name.endsWith( ".xml" ) )
+        {
+            type = "$xml";
+        }
+        else
+        {
+            throw new IllegalArgumentException( format( "Site file does not have a JSON or XML extension: %s", siteFile ) );
+        }
+
+        PageModel template = new PageModel();
+        template.putAll( settings );
+        template.setCurrentDirectory( siteFile.getParent() );
+
+        Map< Path, Fingerprint > includes = new LinkedHashMap<>();
+        included.set( includes );
+        try
+        {
+            template.appendFromJson( format( "{'%s': '%s'}", type, name ) );
+        }
+        finally
+        {
+            included.remove();
+        }
+        includes.forEach( fingerprints::putIfAbsent );
+        return new Entry( template, settings, new ArrayList<>( fingerprints.values() ) );
+    }
+
+    private static List< Fingerprint > fingerprint( Path siteFile )
+    {
+        List< Fingerprint > fingerprints = new ArrayList<>();
+        Set< Path > visited = new HashSet<>();
+        Deque< Path > pending = new ArrayDeque<>();
+        pending.add( siteFile );
+        while ( ! pending.isEmpty() )
+        {
+            Path file = pending.pop();
+            if ( ! visited.add( file ) || ! Files.isRegularFile( file ) )
+            {
+                continue;
+            }
+            try
+            {
+                fingerprints.add( new Fingerprint( file ) );
+                String name = file.getFileName().toString();
+                if ( name.endsWith( ".json" ) || name.endsWith( ".xml" ) )
+                {
+                    Matcher matcher = REFERENCE.matcher( new String( Files.readAllBytes( file ), StandardCharsets.UTF_8 ) );
+                    while ( matcher.find() )
+                    {
+                        pending.add( file.resolveSibling( matcher.group( 1 ).trim() ).normalize() );
+                    }
+                }
+            }
+            catch ( IOException e )
+            {
+                throw new UncheckedIOException( format( "Failed to read site file: %s", file ), e );
+            }
+        }
+        return fingerprints;
+    }
+
+    /**
+     * Copy every entry of the source into the target,
+     * copying child items (those parented by the source), lists, sets and maps recursively,
+     * and sharing every other value.
+     * A pending <code>$lazy</code> item is copied as held, and so stays pending.
+     */
+    static void copyInto( ModelItem source, ModelItem target )
+    {
+        source.heldEntrySet().forEach( e -> {
+            String key = e.getKey();
+            Object value = e.getValue();
+            if ( value instanceof ModelItem && ( ( ModelItem ) value ).getParent() == source )
+            {
+                ModelItem child = ( ( ModelItem ) value ).newCopy();
+                child.setParent( target );
+                target.put( key, child );
+                copyInto( ( ModelItem ) value, child );
+                child.copyLazyFile( ( ModelItem ) value );
+            }
+            else
+            {
+                target.put( key, copyValue( value ) );
+            }
+        } );
+    }
+
+    private static Object copyValue( Object value )
+    {
+        if ( value instanceof List )
+        {
+            List< Object > copy = new ArrayList<>();
+            ( ( List< ? > ) value ).forEach( v -> copy.add( copyValue( v ) ) );
+            return copy;
+        }
+        if ( value instanceof Set )
+        {
+            Set< Object > copy = new LinkedHashSet<>();
+            ( ( Set< ? > ) value ).forEach( v -> copy.add( copyValue( v ) ) );
+            return copy;
+        }
+        if ( value instanceof Map && ! ( value instanceof ModelItem ) )
+        {
+            Map< Object, Object > copy = new LinkedHashMap<>();
+            ( ( Map< ?, ? > ) value ).forEach( ( k, v ) -> copy.put( k, copyValue( v ) ) );
+            return copy;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,209 @@
+package com.brentcroft.tools.driver;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+import java.util.*;
+
+import static java.util.Objects.nonNull;
+
+/**
+ * Reads the existence, count, text and chosen attributes
+ * of every located item in a ModelItem subtree.
+ * <p>
+ * Items are grouped by frame path and innermost shadow host,
+ * and each group is read with a single injected script,
+ * or, where the script can't see the host's shadow root (e.g. a closed one), with a lookup per item.
+ */
+public class SubtreeReader
+{
+    static final String SCRIPT = ScriptId.mark( ScriptId.SUBTREE,
+            ElementSnapshot.FUNCTION,
+            "var host = arguments[ 0 ], locators = arguments[ 1 ], names = arguments[ 2 ] || [];",
+            "var root = host ? host.shadowRoot : document;",
+            "if ( !root ) return -1;",
+            "function find( l ) {",
+            "    if ( l.type === 'xpath' ) {",
+            "        var doc = root.ownerDocument || root;",
+            "        var r = doc.evaluate( l.value, root, null, XPathResult.ORDERED_NODE_SNAPSHOT_TYPE, null );",
+            "        var a = [];",
+            "        for ( var i = 0; i < r.snapshotLength; i++ ) a.push( r.snapshotItem( i ) );",
+            "        return a;",
+            "    }",
+            "    var css = l.type === 'css' ? l.value : ( l.type === 'id' ? '#' : '.' ) + CSS.escape( l.value );",
+            "    return Array.prototype.slice.call( root.querySelectorAll( css ) );",
+            "}",
+            "return locators.map( function( l ) {",
+            "    var found = find( l );",
+            "    return {",
+            "        count: found.length,",
+            "        snapshot: found.length > l.index ? snapshot( found[ l.index ], names ) : null",
+            "    };",
+            "} );" );
+
+    public static final String EXISTS = "$exists";
+    public static final String COUNT = "$count";
+    public static final String TEXT = "$text";
+    public static final String ATTRIBUTES = "$attributes";
+
+    private final ModelItem root;
+    private final List< String > attributes;
+
+    public SubtreeReader( ModelItem root, List< String > attributes )
+    {
+        this.root = root;
+        this.attributes = attributes == null
+                          ? Collections.emptyList()
+                          : attributes;
+    }
+
+    private static class Probe
+    {
+        private final ModelItem item;
+        private final IPath ipath;
+        private final List< String > keys;
+
+        private Probe( ModelItem item, IPath ipath, List< String > keys )
+        {
+            this.item = item;
+            this.ipath = ipath;
+            this.keys = keys;
+        }
+
+        private Map< String, Object > locator()
+        {
+            return ElementProbe.locator( ipath );
+        }
+    }
+
+    private static class Group
+    {
+        private final List< String > frames;
+        private final ModelItem host;
+        private final List< Probe > probes = new ArrayList<>();
+
+        private Group( List< String > frames, ModelItem host )
+        {
+            this.frames = frames;
+            this.host = host;
+        }
+    }
+
+    public Map< String, Object > read()
+    {
+        List< Probe > probes = new ArrayList<>();
+        collect( root, new ArrayList<>(), probes );
+
+        // group by frame path then innermost shadow host, preserving order
+        List< Group > groups = new ArrayList<>();
+        for ( Probe probe : probes )
+        {
+            List< ModelItem > hosts = probe.item.getShadowHosts();
+            ModelItem host = hosts.isEmpty() ? null : hosts.get( hosts.size() - 1 );
+            Group group = groups
+                    .stream()
+                    .filter( g -> g.host == host && g.frames.equals( probe.ipath.frames() ) )
+                    .findFirst()
+                    .orElseGet( () -> {
+                        Group g = new Group( probe.ipath.frames(), host );
+                        groups.add( g );
+                        return g;
+                    } );
+            group.probes.add( probe );
+        }
+
+        Map< String, Object > result = new LinkedHashMap<>();
+        groups.forEach( group -> readGroup( group.host, group.probes, result ) );
+        return result;
+    }
+
+    private void collect( ModelItem item, List< String > keys, List< Probe > probes )
+    {
+        // a container without a locator is only read through; a bad locator value fails the read
+        if ( IPath.isLocated( item ) )
+        {
+            probes.add( new Probe( item, item.getIPath(), keys ) );
+        }
+        for ( Map.Entry< String, Object > entry : item.entrySet() )
+        {
+            if ( entry.getValue() instanceof ModelItem )
+            {
+                ModelItem child = ( ModelItem ) entry.getValue();
+                if ( child.getParent() == item )
+                {
+                    List< String > childKeys = new ArrayList<>( keys );
+                    childKeys.add( entry.getKey() );
+                    collect( child, childKeys, probes );
+                }
+            }
+        }
+    }
+
+    private void readGroup( ModelItem host, List< Probe > group, Map< String, Object > result )
+    {
+        WebDriver driver = root.getWebDriver();
+        WebElement hostElement = nonNull( host )
+                                 ? host.getWebElement()
+                                 : null;
+
+        group.get( 0 ).item.switchFrame();
+
+        if ( driver instanceof JavascriptExecutor )
+        {
+            List< Map< String, Object > > locators = new ArrayList<>();
+            group.forEach( probe -> locators.add( probe.locator() ) );
+
+            Object states = ( ( JavascriptExecutor ) driver )
+                    .executeScript( SCRIPT, hostElement, locators, attributes );
+
+            if ( states instanceof List && ( ( List< ? > ) states ).size() == group.size() )
+            {
+                List< ? > stateList = ( List< ? > ) states;
+                for ( int i = 0; i < group.size(); i++ )
+                {
+                    Map< ?, ? > state = ( Map< ?, ? > ) stateList.get( i );
+                    Object snapshot = state.get( "snapshot" );
+                    put(
+                            result,
+                            group.get( i ),
+                            ( ( Number ) state.get( "count" ) ).intValue(),
+                            snapshot instanceof Map
+                            ? ElementSnapshot.fromScript( ( Map< ?, ? > ) snapshot )
+                            : null );
+                }
+                return;
+            }
+        }
+
+        // no scripting, or no open shadow root to search: let selenium resolve each item
+        String[] names = attributes.toArray( new String[ 0 ] );
+        for ( Probe probe : group )
+        {
+            List< WebElement > elements = root
+                    .getBrowser()
+                    .withImplicitWait( 0, probe.item::getWebElements );
+            ElementSnapshot snapshot = elements.size() > probe.ipath.index()
+                                       ? ElementSnapshot.of( driver, elements.get( probe.ipath.index() ), names )
+                                       : null;
+            put( result, probe, elements.size(), snapshot );
+        }
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private void put( Map< String, Object > result, Probe probe, int count, ElementSnapshot snapshot )
+    {
+        Map< String, Object > target = result;
+        for ( String key : probe.keys )
+        {
+            target = ( Map< String, Object > ) target.computeIfAbsent( key, k -> new LinkedHashMap< String, Object >() );
+        }
+        target.put( EXISTS, count > 0 );
+        target.put( COUNT, count );
+        target.put( TEXT, nonNull( snapshot ) ? snapshot.getText() : null );
+        if ( ! attributes.isEmpty() )
+        {
+            target.put( ATTRIBUTES, nonNull( snapshot ) ? snapshot.getAttributes() : Collections.emptyMap() );
+        }
+    }
+}
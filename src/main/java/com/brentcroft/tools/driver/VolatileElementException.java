@@ -1,8 +1,12 @@
 package com.brentcroft.tools.driver;
 
 import lombok.Getter;
+import org.openqa.selenium.ElementClickInterceptedException;
+import org.openqa.selenium.ElementNotInteractableException;
+import org.openqa.selenium.StaleElementReferenceException;
 
 import static java.lang.String.format;
+import static java.util.Objects.isNull;
 
 @Getter
 public class VolatileElementException extends RuntimeException
@@ -12,8 +16,49 @@ public class VolatileElementException extends RuntimeException
 
     public VolatileElementException( ModelElement modelElement, int volatileRetries )
     {
-        super(format("Stale element [%s] after %s retries.", modelElement, volatileRetries));
+        this( modelElement, volatileRetries, null );
+    }
+
+    public VolatileElementException( ModelElement modelElement, int volatileRetries, Throwable cause )
+    {
+        super( message( modelElement, volatileRetries, cause ), cause );
         this.modelElement = modelElement;
         this.volatileRetries = volatileRetries;
     }
+
+    static String message( ModelElement modelElement, int volatileRetries, Throwable cause )
+    {
+        return isNull( cause )
+               ? format( "Volatile element [%s] after %s retries.", modelElement, volatileRetries )
+               : format( "%s [%s] after %s retries: %s", describe( cause ), modelElement, volatileRetries, firstLine( cause.getMessage() ) );
+    }
+
+    private static String describe( Throwable cause )
+    {
+        if ( cause instanceof StaleElementReferenceException )
+        {
+            return "Stale element";
+        }
+        if ( cause instanceof ElementClickInterceptedException )
+        {
+            return "Click intercepted on element";
+        }
+        if ( cause instanceof ElementNotInteractableException )
+        {
+            return "Element not interactable";
+        }
+        if ( cause instanceof InterruptedException )
+        {
+            return "Interrupted retrying element";
+        }
+        return format( "%s on element", cause.getClass().getSimpleName() );
+    }
+
+    // selenium messages go on to list build and driver info
+    private static String firstLine( String message )
+    {
+        return isNull( message )
+               ? ""
+               : message.trim().split( "\n", 2 )[ 0 ];
+    }
 }
@@ -0,0 +1,348 @@
+package com.brentcroft.tools.driver.fake;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static java.lang.String.format;
+
+/**
+ * Converts a CSS selector to an XPath matching the same elements among the descendants of a context node.
+ * <p>
+ * Supported: type and universal selectors, <code>#id</code>, <code>.class</code>,
+ * attribute selectors (<code>[a]</code>, <code>=</code>, <code>~=</code>, <code>|=</code>, <code>^=</code>,
+ * <code>$=</code>, <code>*=</code>), the descendant, child, adjacent and general sibling combinators,
+ * selector groups, and the pseudo-classes <code>:first-child</code>, <code>:last-child</code>,
+ * <code>:nth-child(n)</code>, <code>:checked</code>, <code>:disabled</code>, <code>:enabled</code>
+ * and <code>:not(...)</code> of a simple selector.
+ */
+class CssToXPath
+{
+    private final String css;
+    private int pos;
+
+    private CssToXPath( String css )
+    {
+        this.css = css.trim();
+    }
+
+    static String convert( String css )
+    {
+        return new CssToXPath( css ).selectorGroup();
+    }
+
+    private String selectorGroup()
+    {
+        List< String > selectors = new ArrayList<>();
+        selectors.add( selector() );
+        while ( pos < css.length() && css.charAt( pos ) == ',' )
+        {
+            pos++;
+            skipSpace();
+            selectors.add( selector() );
+        }
+        if ( pos < css.length() )
+        {
+            throw invalid();
+        }
+        return String.join( " | ", selectors );
+    }
+
+    private String selector()
+    {
+        StringBuilder xpath = new StringBuilder( ".//" ).append( compound() );
+        while ( true )
+        {
+            boolean space = skipSpace();
+            if ( pos >= css.length() || css.charAt( pos ) == ',' )
+            {
+                return xpath.toString();
+            }
+            char c = css.charAt( pos );
+            if ( c == '>' )
+            {
+                pos++;
+                skipSpace();
+                xpath.append( "/" ).append( compound() );
+            }
+            else if ( c == '+' )
+            {
+                pos++;
+                skipSpace();
+                xpath.append( "/following-sibling::*[1]/self::" ).append( compound() );
+            }
+            else if ( c == '~' )
+            {
+                pos++;
+                skipSpace();
+                xpath.append( "/following-sibling::" ).append( compound() );
+            }
+            else if ( space )
+            {
+                xpath.append( "//" ).append( compound() );
+            }
+            else
+            {
+                throw invalid();
+            }
+        }
+    }
+
+    private String compound()
+    {
+        int start = pos;
+        String tag = "*";
+        if ( pos < css.length() && css.charAt( pos ) == '*' )
+        {
+            pos++;
+        }
+        else if ( pos < css.length() && isNameChar( css.charAt( pos ) ) )
+        {
+            tag = name().toLowerCase( Locale.ROOT );
+        }
+        StringBuilder predicates = new StringBuilder();
+        String predicate;
+        while ( ( predicate = simple() ) != null )
+        {
+            predicates.append( "[" ).append( predicate ).append( "]" );
+        }
+        if ( pos == start )
+        {
+            throw invalid();
+        }
+        return tag + predicates;
+    }
+
+    /**
+     * One id, class, attribute or pseudo-class predicate, or null if there isn't one here.
+     */
+    private String simple()
+    {
+        if ( pos >= css.length() )
+        {
+            return null;
+        }
+        char c = css.charAt( pos );
+        switch ( c )
+        {
+            case '#':
+                pos++;
+                return format( "@id = %s", literal( name() ) );
+
+            case '.':
+                pos++;
+                return format( "contains( concat( ' ', normalize-space( @class ), ' ' ), %s )", literal( " " + name() + " " ) );
+
+            case '[':
+                pos++;
+                return attribute();
+
+            case ':':
+                pos++;
+                return pseudo();
+
+            default:
+                return null;
+        }
+    }
+
+    private String attribute()
+    {
+        skipSpace();
+        String attr = "@" + name().toLowerCase( Locale.ROOT );
+        skipSpace();
+        if ( pos < css.length() && css.charAt( pos ) == ']' )
+        {
+            pos++;
+            return attr;
+        }
+        String op;
+        if ( css.charAt( pos ) == '=' )
+        {
+            op = "=";
+            pos++;
+        }
+        else if ( pos + 1 < css.length() && css.charAt( pos + 1 ) == '=' )
+        {
+            op = css.substring( pos, pos + 2 );
+            pos += 2;
+        }
+        else
+        {
+            throw invalid();
+        }
+        skipSpace();
+        String value;
+        char quote = css.charAt( pos );
+        if ( quote == '"' || quote == '\'' )
+        {
+            int end = css.indexOf( quote, pos + 1 );
+            if ( end < 0 )
+            {
+                throw invalid();
+            }
+            value = css.substring( pos + 1, end );
+            pos = end + 1;
+        }
+        else
+        {
+            value = name();
+        }
+        skipSpace();
+        if ( pos >= css.length() || css.charAt( pos ) != ']' )
+        {
+            throw invalid();
+        }
+        pos++;
+
+        String v = literal( value );
+        switch ( op )
+        {
+            case "=":
+                return format( "%s = %s", attr, v );
+            case "~=":
+                return format( "contains( concat( ' ', normalize-space( %s ), ' ' ), %s )", attr, literal( " " + value + " " ) );
+            case "|=":
+                return format( "%s = %s or starts-with( %s, %s )", attr, v, attr, literal( value + "-" ) );
+            case "^=":
+                return format( "starts-with( %s, %s )", attr, v );
+            case "$=":
+                return format( "substring( %s, string-length( %s ) - %s ) = %s", attr, attr, value.length() - 1, v );
+            case "*=":
+                return format( "contains( %s, %s )", attr, v );
+            default:
+                throw invalid();
+        }
+    }
+
+    private String pseudo()
+    {
+        String name = name().toLowerCase( Locale.ROOT );
+        switch ( name )
+        {
+            case "first-child":
+                return "not( preceding-sibling::* )";
+            case "last-child":
+                return "not( following-sibling::* )";
+            case "checked":
+                return "@checked or @selected";
+            case "disabled":
+                return "@disabled";
+            case "enabled":
+                return "not( @disabled )";
+            case "nth-child":
+                return format( "count( preceding-sibling::* ) = %s", Integer.parseInt( argument().trim() ) - 1 );
+            case "not":
+                String inner = argument().trim();
+                String predicate = new CssToXPath( inner ).simple();
+                if ( predicate == null )
+                {
+                    return format( "not( self::%s )", inner.toLowerCase( Locale.ROOT ) );
+                }
+                return format( "not( %s )", predicate );
+            default:
+                throw invalid();
+        }
+    }
+
+    private String argument()
+    {
+        if ( pos >= css.length() || css.charAt( pos ) != '(' )
+        {
+            throw invalid();
+        }
+        int end = css.indexOf( ')', pos );
+        if ( end < 0 )
+        {
+            throw invalid();
+        }
+        String argument = css.substring( pos + 1, end );
+        pos = end + 1;
+        return argument;
+    }
+
+    private String name()
+    {
+        StringBuilder name = new StringBuilder();
+        while ( pos < css.length() )
+        {
+            char c = css.charAt( pos );
+            if ( c == '\\' && pos + 1 < css.length() )
+            {
+                // css escape: a hex code point, or a literal character
+                int end = pos + 1;
+                while ( end < css.length() && end < pos + 7 && Character.digit( css.charAt( end ), 16 ) >= 0 )
+                {
+                    end++;
+                }
+                if ( end > pos + 1 )
+                {
+                    name.appendCodePoint( Integer.parseInt( css.substring( pos + 1, end ), 16 ) );
+                    pos = end < css.length() && css.charAt( end ) == ' ' ? end + 1 : end;
+                }
+                else
+                {
+                    name.append( css.charAt( pos + 1 ) );
+                    pos += 2;
+                }
+            }
+            else if ( isNameChar( c ) )
+            {
+                name.append( c );
+                pos++;
+            }
+            else
+            {
+                break;
+            }
+        }
+        if ( name.length() == 0 )
+        {
+            throw invalid();
+        }
+        return name.toString();
+    }
+
+    private static boolean isNameChar( char c )
+    {
+        return Character.isLetterOrDigit( c ) || c == '-' || c == '_' || c > 0x7F;
+    }
+
+    private boolean skipSpace()
+    {
+        int start = pos;
+        while ( pos < css.length() && Character.isWhitespace( css.charAt( pos ) ) )
+        {
+            pos++;
+        }
+        return pos > start;
+    }
+
+    private IllegalArgumentException invalid()
+    {
+        return new IllegalArgumentException( format( "Unsupported CSS selector at %s: %s", pos, css ) );
+    }
+
+    static String literal( String value )
+    {
+        if ( value.indexOf( '\'' ) < 0 )
+        {
+            return "'" + value + "'";
+        }
+        if ( value.indexOf( '"' ) < 0 )
+        {
+            return "\"" + value + "\"";
+        }
+        StringBuilder concat = new StringBuilder( "concat(" );
+        String[] parts = value.split( "'", - 1 );
+        for ( int i = 0; i < parts.length; i++ )
+        {
+            if ( i > 0 )
+            {
+                concat.append( ", \"'\", " );
+            }
+            concat.append( "'" ).append( parts[ i ] ).append( "'" );
+        }
+        return concat.append( ")" ).toString();
+    }
+}
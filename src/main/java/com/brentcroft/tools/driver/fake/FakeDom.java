@@ -0,0 +1,347 @@
+package com.brentcroft.tools.driver.fake;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.InvalidSelectorException;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+import java.util.*;
+import java.util.regex.Pattern;
+
+import static java.lang.String.format;
+
+/**
+ * Lookups, and the rendered state browsers derive, over a parsed DOM.
+ */
+class FakeDom
+{
+    static final String VALUE = "fake.value";
+    static final String SELECT_ALL = "fake.selectAll";
+
+    private static final Set< String > NEVER_DISPLAYED = new HashSet<>( Arrays.asList(
+            "head", "script", "style", "template", "title", "meta", "link", "noscript" ) );
+
+    private static final Set< String > BLOCKS = new HashSet<>( Arrays.asList(
+            "address", "article", "aside", "blockquote", "dd", "div", "dl", "dt", "fieldset", "figure", "footer",
+            "form", "h1", "h2", "h3", "h4", "h5", "h6", "header", "hr", "li", "main", "nav", "ol", "p", "pre",
+            "option", "section", "table", "tr", "ul" ) );
+
+    private static final Pattern NOT_DISPLAYED_STYLE = Pattern.compile(
+            "(^|;)\\s*(display\\s*:\\s*none|visibility\\s*:\\s*hidden)\\s*(;|$)", Pattern.CASE_INSENSITIVE );
+
+    private static final ThreadLocal< XPathFactory > xpathFactory = ThreadLocal.withInitial( XPathFactory::newInstance );
+
+    private FakeDom()
+    {
+    }
+
+    static List< Element > find( Node context, By by )
+    {
+        if ( ! ( by instanceof By.Remotable ) )
+        {
+            throw new InvalidSelectorException( format( "Unsupported locator: %s", by ) );
+        }
+        By.Remotable.Parameters parameters = ( ( By.Remotable ) by ).getRemoteParameters();
+        String value = String.valueOf( parameters.value() );
+        switch ( parameters.using() )
+        {
+            case "xpath":
+                return xpath( context, value );
+            case "css selector":
+                return css( context, value );
+            case "id":
+                return xpath( context, format( ".//*[@id = %s]", CssToXPath.literal( value ) ) );
+            case "name":
+                return xpath( context, format( ".//*[@name = %s]", CssToXPath.literal( value ) ) );
+            case "class name":
+                return css( context, "." + value );
+            case "tag name":
+                return xpath( context, ".//" + value.toLowerCase( Locale.ROOT ) );
+            case "link text":
+                return xpath( context, format( ".//a[normalize-space( . ) = %s]", CssToXPath.literal( value.trim() ) ) );
+            case "partial link text":
+                return xpath( context, format( ".//a[contains( ., %s )]", CssToXPath.literal( value ) ) );
+            default:
+                throw new InvalidSelectorException( format( "Unsupported locator strategy: %s", parameters.using() ) );
+        }
+    }
+
+    /**
+     * Find by one of the locators injected by the driver's own scripts:
+     * a map with a <code>type</code> (xpath, css, id or className) and a <code>value</code>.
+     */
+    static List< Element > find( Node context, Map< ?, ? > locator )
+    {
+        String value = String.valueOf( locator.get( "value" ) );
+        switch ( String.valueOf( locator.get( "type" ) ) )
+        {
+            case "xpath":
+                return xpath( context, value );
+            case "css":
+                return css( context, value );
+            case "id":
+                return xpath( context, format( ".//*[@id = %s]", CssToXPath.literal( value ) ) );
+            default:
+                return xpath( context, format(
+                        ".//*[contains( concat( ' ', normalize-space( @class ), ' ' ), %s )]",
+                        CssToXPath.literal( " " + value + " " ) ) );
+        }
+    }
+
+    static List< Element > css( Node context, String css )
+    {
+        try
+        {
+            return xpath( context, CssToXPath.convert( css ) );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            throw new InvalidSelectorException( e.getMessage() );
+        }
+    }
+
+    static List< Element > xpath( Node context, String xpath )
+    {
+        try
+        {
+            NodeList nodes = ( NodeList ) xpathFactory
+                    .get()
+                    .newXPath()
+                    .evaluate( xpath, context, XPathConstants.NODESET );
+            List< Element > elements = new ArrayList<>( nodes.getLength() );
+            for ( int i = 0; i < nodes.getLength(); i++ )
+            {
+                if ( nodes.item( i ) instanceof Element )
+                {
+                    elements.add( ( Element ) nodes.item( i ) );
+                }
+            }
+            return elements;
+        }
+        catch ( XPathExpressionException e )
+        {
+            throw new InvalidSelectorException( format( "Invalid xpath: %s", xpath ), e );
+        }
+    }
+
+    static Element shadowRoot( Element host )
+    {
+        return ( Element ) host.getUserData( HtmlParser.SHADOW_ROOT );
+    }
+
+    /**
+     * The shadow root a script sees as <code>host.shadowRoot</code>: null if there's none, or it's closed.
+     */
+    static Element openShadowRoot( Element host )
+    {
+        Element shadowRoot = shadowRoot( host );
+        return shadowRoot == null || shadowRoot.getUserData( HtmlParser.SHADOW_CLOSED ) != null
+               ? null
+               : shadowRoot;
+    }
+
+    /**
+     * The parent, stepping from a shadow root to its host.
+     */
+    static Node parent( Node node )
+    {
+        Node parent = node.getParentNode();
+        return parent == null
+               ? ( Node ) node.getUserData( HtmlParser.SHADOW_HOST )
+               : parent;
+    }
+
+    static boolean isAttached( Node node )
+    {
+        Node current = node;
+        while ( current != null )
+        {
+            if ( current.getNodeType() == Node.DOCUMENT_NODE )
+            {
+                return true;
+            }
+            current = parent( current );
+        }
+        return false;
+    }
+
+    static boolean isDisplayed( Element element )
+    {
+        Node current = element;
+        while ( current instanceof Element )
+        {
+            if ( ! isSelfDisplayed( ( Element ) current ) )
+            {
+                return false;
+            }
+            current = parent( current );
+        }
+        return true;
+    }
+
+    private static boolean isSelfDisplayed( Element element )
+    {
+        String tag = element.getNodeName();
+        return ! NEVER_DISPLAYED.contains( tag )
+                && ! element.hasAttribute( "hidden" )
+                && ! ( "input".equals( tag ) && "hidden".equalsIgnoreCase( element.getAttribute( "type" ) ) )
+                && ! NOT_DISPLAYED_STYLE.matcher( element.getAttribute( "style" ) ).find();
+    }
+
+    static boolean isEnabled( Element element )
+    {
+        return ! element.hasAttribute( "disabled" );
+    }
+
+    static boolean isSelected( Element element )
+    {
+        return element.hasAttribute( "checked" ) || element.hasAttribute( "selected" );
+    }
+
+    /**
+     * Approximates <code>innerText</code>: only displayed text,
+     * block elements and <code>br</code> on their own lines, whitespace collapsed.
+     */
+    static String text( Element element )
+    {
+        if ( ! isDisplayed( element ) )
+        {
+            return "";
+        }
+        StringBuilder raw = new StringBuilder();
+        appendText( element, raw );
+        StringBuilder text = new StringBuilder();
+        for ( String line : raw.toString().split( "\n" ) )
+        {
+            String collapsed = line.replaceAll( "[\\s\\u00A0&&[^\\n]]+", " " ).trim();
+            if ( ! collapsed.isEmpty() )
+            {
+                if ( text.length() > 0 )
+                {
+                    text.append( "\n" );
+                }
+                text.append( collapsed );
+            }
+        }
+        return text.toString();
+    }
+
+    private static void appendText( Element element, StringBuilder text )
+    {
+        Element shadowRoot = shadowRoot( element );
+        Node first = shadowRoot != null
+                     ? shadowRoot.getFirstChild()
+                     : element.getFirstChild();
+        for ( Node child = first; child != null; child = child.getNextSibling() )
+        {
+            if ( child.getNodeType() == Node.TEXT_NODE )
+            {
+                text.append( child.getNodeValue() );
+            }
+            else if ( child instanceof Element && isSelfDisplayed( ( Element ) child ) )
+            {
+                String tag = child.getNodeName();
+                if ( "br".equals( tag ) )
+                {
+                    text.append( "\n" );
+                }
+                else if ( BLOCKS.contains( tag ) )
+                {
+                    text.append( "\n" );
+                    appendText( ( Element ) child, text );
+                    text.append( "\n" );
+                }
+                else
+                {
+                    appendText( ( Element ) child, text );
+                    if ( "td".equals( tag ) || "th".equals( tag ) )
+                    {
+                        text.append( "\t" );
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * The <code>value</code> property, or null for elements that don't have one.
+     */
+    static String value( Element element )
+    {
+        Object current = element.getUserData( VALUE );
+        if ( current != null )
+        {
+            return current.toString();
+        }
+        switch ( element.getNodeName() )
+        {
+            case "input":
+                return element.hasAttribute( "value" )
+                       ? element.getAttribute( "value" )
+                       : ( "checkbox".equals( element.getAttribute( "type" ) ) || "radio".equals( element.getAttribute( "type" ) ) ? "on" : "" );
+            case "textarea":
+                return element.getTextContent();
+            case "button":
+                return element.getAttribute( "value" );
+            case "option":
+                return element.hasAttribute( "value" )
+                       ? element.getAttribute( "value" )
+                       : element.getTextContent().trim();
+            case "select":
+                return selectedOption( element )
+                        .map( FakeDom::value )
+                        .orElse( "" );
+            case "li":
+                return element.hasAttribute( "value" )
+                       ? element.getAttribute( "value" )
+                       : "0";
+            default:
+                return null;
+        }
+    }
+
+    static Optional< Element > selectedOption( Element select )
+    {
+        List< Element > options = xpath( select, ".//option" );
+        return options
+                .stream()
+                .filter( o -> o.hasAttribute( "selected" ) )
+                .findFirst()
+                .map( Optional::of )
+                .orElseGet( () -> options.isEmpty() || select.hasAttribute( "multiple" )
+                                  ? Optional.empty()
+                                  : Optional.of( options.get( 0 ) ) );
+    }
+
+    /**
+     * The same state as <code>ElementSnapshot.FUNCTION</code> reads in a browser.
+     */
+    static Map< String, Object > snapshot( Element element, List< ? > names )
+    {
+        String tag = element.getNodeName();
+        boolean displayed = isDisplayed( element );
+        Map< String, Object > attributes = new LinkedHashMap<>();
+        if ( names != null )
+        {
+            names.forEach( name -> attributes.put(
+                    String.valueOf( name ),
+                    element.hasAttribute( String.valueOf( name ) ) ? element.getAttribute( String.valueOf( name ) ) : null ) );
+        }
+        Map< String, Object > snapshot = new LinkedHashMap<>();
+        snapshot.put( "tagName", tag );
+        snapshot.put( "value", value( element ) != null ? value( element ) : element.hasAttribute( "value" ) ? element.getAttribute( "value" ) : null );
+        snapshot.put( "text", displayed ? text( element ) : "" );
+        snapshot.put( "selectedText", "select".equals( tag )
+                                      ? selectedOption( element ).map( o -> o.getTextContent().trim() ).orElse( null )
+                                      : null );
+        snapshot.put( "displayed", displayed );
+        snapshot.put( "enabled", isEnabled( element ) );
+        snapshot.put( "selected", isSelected( element ) );
+        snapshot.put( "attributes", attributes );
+        return snapshot;
+    }
+}
@@ -0,0 +1,160 @@
+package com.brentcroft.tools.driver.fake;
+
+import com.brentcroft.tools.driver.ScriptId;
+import org.openqa.selenium.JavascriptException;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static java.lang.String.format;
+import static java.util.Objects.isNull;
+
+/**
+ * Runs, natively over the DOM, the scripts el-driver injects:
+ * element snapshots, subtree reads, probes, storage clearing, settling,
+ * and setting attributes and inline styles.
+ * <p>
+ * Injected scripts are recognised by their id (see <code>ScriptId</code>), not by their text.
+ */
+class FakeScripts
+{
+    private static final Pattern SET_ATTRIBUTE = Pattern.compile(
+            "arguments\\[0]\\.setAttribute\\( '(.*)', '(.*)' \\)", Pattern.DOTALL );
+
+    private static final Pattern SET_STYLE = Pattern.compile(
+            "arguments\\[0]\\.style\\.(\\w+) = '(.*)'", Pattern.DOTALL );
+
+    private FakeScripts()
+    {
+    }
+
+    static Object execute( FakeWebDriver driver, String script, Object... args )
+    {
+        String id = ScriptId.of( script );
+        if ( ScriptId.SNAPSHOT.equals( id ) )
+        {
+            return FakeDom.snapshot( element( driver, args[ 0 ] ), ( List< ? > ) args[ 1 ] );
+        }
+        if ( ScriptId.SUBTREE.equals( id ) )
+        {
+            Node root = root( driver, args[ 0 ] );
+            if ( isNull( root ) )
+            {
+                return - 1L;
+            }
+            List< ? > names = ( List< ? > ) args[ 2 ];
+            List< Map< String, Object > > states = new ArrayList<>();
+            for ( Object locator : ( List< ? > ) args[ 1 ] )
+            {
+                List< Element > found = FakeDom.find( root, ( Map< ?, ? > ) locator );
+                int index = ( ( Number ) ( ( Map< ?, ? > ) locator ).get( "index" ) ).intValue();
+                Map< String, Object > state = new LinkedHashMap<>();
+                state.put( "count", ( long ) found.size() );
+                state.put( "snapshot", found.size() > index ? FakeDom.snapshot( found.get( index ), names ) : null );
+                states.add( state );
+            }
+            return states;
+        }
+        if ( ScriptId.PROBE.equals( id ) )
+        {
+            Node root = root( driver, args[ 0 ] );
+            if ( isNull( root ) )
+            {
+                return - 1L;
+            }
+            long count = FakeDom.find( root, ( Map< ?, ? > ) args[ 1 ] ).size();
+            return Boolean.TRUE.equals( args[ 2 ] )
+                   ? Math.min( count, 1 )
+                   : count;
+        }
+        if ( ScriptId.TRACK_NETWORK.equals( id ) )
+        {
+            return null;
+        }
+        if ( ScriptId.CLEAR_STORAGE.equals( id ) )
+        {
+            driver.localStorage().clear();
+            return null;
+        }
+        Matcher attribute = SET_ATTRIBUTE.matcher( script );
+        if ( attribute.matches() )
+        {
+            element( driver, args[ 0 ] ).setAttribute( attribute.group( 1 ), attribute.group( 2 ) );
+            return null;
+        }
+        Matcher style = SET_STYLE.matcher( script );
+        if ( style.matches() )
+        {
+            setStyle( element( driver, args[ 0 ] ), style.group( 1 ), style.group( 2 ) );
+            return null;
+        }
+        throw new JavascriptException( format( "Script not supported by FakeWebDriver: %s", summary( script ) ) );
+    }
+
+    /**
+     * Nothing happens asynchronously here, so a settle is immediately settled.
+     */
+    static Object executeAsync( FakeWebDriver driver, String script, Object... args )
+    {
+        if ( ScriptId.SETTLE.equals( ScriptId.of( script ) ) )
+        {
+            return true;
+        }
+        throw new JavascriptException( format( "Script not supported by FakeWebDriver: %s", summary( script ) ) );
+    }
+
+    private static Element element( FakeWebDriver driver, Object arg )
+    {
+        if ( ! ( arg instanceof FakeWebElement ) )
+        {
+            throw new JavascriptException( format( "Not an element: %s", arg ) );
+        }
+        Element element = ( ( FakeWebElement ) arg ).getElement();
+        driver.touch( element );
+        return element;
+    }
+
+    /**
+     * The document, or the host's shadow root, or null if the host has none, or only a closed one.
+     */
+    private static Node root( FakeWebDriver driver, Object host )
+    {
+        return isNull( host )
+               ? driver.currentDocument()
+               : FakeDom.openShadowRoot( element( driver, host ) );
+    }
+
+    private static void setStyle( Element element, String property, String value )
+    {
+        String name = property.replaceAll( "([A-Z])", "-$1" ).toLowerCase( Locale.ROOT );
+        Map< String, String > properties = new LinkedHashMap<>();
+        for ( String declaration : element.getAttribute( "style" ).split( ";" ) )
+        {
+            String[] parts = declaration.split( ":", 2 );
+            if ( parts.length == 2 )
+            {
+                properties.put( parts[ 0 ].trim(), parts[ 1 ].trim() );
+            }
+        }
+        if ( value.isEmpty() )
+        {
+            properties.remove( name );
+        }
+        else
+        {
+            properties.put( name, value );
+        }
+        StringJoiner style = new StringJoiner( " " );
+        properties.forEach( ( k, v ) -> style.add( format( "%s: %s;", k, v ) ) );
+        element.setAttribute( "style", style.toString() );
+    }
+
+    private static String summary( String script )
+    {
+        String line = script.trim().split( "\n", 2 )[ 0 ];
+        return line.length() > 80 ? line.substring( 0, 80 ) + "..." : line;
+    }
+}
@@ -0,0 +1,35 @@
+package com.brentcroft.tools.driver.fake;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.SearchContext;
+import org.openqa.selenium.WebElement;
+import org.w3c.dom.Element;
+
+import java.util.List;
+
+/**
+ * The open shadow root of a FakeWebElement, searchable while its host is live.
+ */
+class FakeShadowRoot implements SearchContext
+{
+    private final FakeWebElement host;
+    private final Element shadowRoot;
+
+    FakeShadowRoot( FakeWebElement host, Element shadowRoot )
+    {
+        this.host = host;
+        this.shadowRoot = shadowRoot;
+    }
+
+    @Override
+    public List< WebElement > findElements( By by )
+    {
+        return host.findInShadowRoot( shadowRoot, by );
+    }
+
+    @Override
+    public WebElement findElement( By by )
+    {
+        return FakeWebDriver.first( findElements( by ), by );
+    }
+}
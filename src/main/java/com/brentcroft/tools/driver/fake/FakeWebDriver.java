@@ -0,0 +1,701 @@
+package com.brentcroft.tools.driver.fake;
+
+import lombok.Getter;
+import org.openqa.selenium.*;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import javax.imageio.ImageIO;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.List;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static java.lang.String.format;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+/**
+ * An in-process WebDriver over HTML parsed into a DOM, for running page models without a browser.
+ * <p>
+ * Pages are loaded from <code>data:text/html,</code> urls, from pages registered in memory,
+ * from <code>file:</code> urls, or, for any other url, from its path under a document root
+ * (<code>index.html</code> for a directory).
+ * <p>
+ * Elements are found by xpath, css, id, name, class, tag and link text,
+ * inside frames and open (declarative) shadow roots.
+ * Clicks toggle checkboxes and radios, select options and follow links,
+ * and keys are typed into inputs and text areas.
+ * <p>
+ * Cookies are kept for the whole driver, and local storage per origin.
+ * <p>
+ * Only the scripts el-driver injects itself are run (see <code>FakeScripts</code>);
+ * any other script raises a JavascriptException.
+ * <p>
+ * Elements become stale when their page is navigated away from or re-rendered,
+ * or when they are removed from the DOM.
+ */
+public class FakeWebDriver implements WebDriver, JavascriptExecutor, TakesScreenshot
+{
+    private static final String PARENT_DOCUMENT = "fake.parentDocument";
+    private static final String CONTENT_DOCUMENT = "fake.contentDocument";
+    private static final String GENERATION = "fake.generation";
+
+    private final Path documentRoot;
+    private final Map< String, String > pages = new HashMap<>();
+    private final Map< String, Window > windows = new LinkedHashMap<>();
+    private final Map< String, Cookie > cookies = new LinkedHashMap<>();
+    private final Map< String, Map< String, String > > localStorage = new HashMap<>();
+    private int windowSequence;
+    private String currentHandle;
+    private Document current;
+
+    @Getter
+    private long generation;
+    private int rerenderCountdown = - 1;
+
+    private static class Window
+    {
+        private final List< String > history = new ArrayList<>();
+        private int position = - 1;
+        private Document document;
+
+        private String url()
+        {
+            return position < 0 ? "about:blank" : history.get( position );
+        }
+    }
+
+    public FakeWebDriver()
+    {
+        this( null );
+    }
+
+    public FakeWebDriver( Path documentRoot )
+    {
+        this.documentRoot = documentRoot;
+        openWindow();
+    }
+
+    /**
+     * Serve the given html for the url, rather than loading it from the document root.
+     */
+    public FakeWebDriver register( String url, String html )
+    {
+        pages.put( url, html );
+        return this;
+    }
+
+    /**
+     * The local storage of the current page's origin.
+     */
+    public Map< String, String > localStorage()
+    {
+        return localStorage.computeIfAbsent( origin( getCurrentUrl() ), k -> new LinkedHashMap<>() );
+    }
+
+    private static String origin( String url )
+    {
+        try
+        {
+            URI uri = URI.create( url );
+            return isNull( uri.getHost() )
+                   ? url
+                   : uri.getScheme() + "://" + uri.getHost() + ( uri.getPort() < 0 ? "" : ":" + uri.getPort() );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            return url;
+        }
+    }
+
+    /**
+     * Reload the current page, making every element found so far stale.
+     */
+    public void rerender()
+    {
+        Window window = window();
+        window.document = load( window.url() );
+        current = window.document;
+    }
+
+    /**
+     * Re-render the page on the given count of element interactions from now,
+     * to exercise stale element handling.
+     */
+    public void rerenderAfter( int interactions )
+    {
+        rerenderCountdown = interactions;
+    }
+
+    private String openWindow()
+    {
+        String handle = "fake-window-" + ( ++ windowSequence );
+        Window window = new Window();
+        window.document = load( "about:blank" );
+        windows.put( handle, window );
+        currentHandle = handle;
+        current = window.document;
+        return handle;
+    }
+
+    private Window window()
+    {
+        Window window = windows.get( currentHandle );
+        if ( isNull( window ) )
+        {
+            throw new NoSuchWindowException( format( "No window: %s", currentHandle ) );
+        }
+        return window;
+    }
+
+    Document currentDocument()
+    {
+        window();
+        return current;
+    }
+
+    private Document load( String url )
+    {
+        generation++;
+        Document document = HtmlParser.parse( fetch( url ) );
+        document.setDocumentURI( url );
+        document.setUserData( GENERATION, generation, null );
+        return document;
+    }
+
+    private String fetch( String url )
+    {
+        if ( pages.containsKey( url ) )
+        {
+            return pages.get( url );
+        }
+        if ( url.isEmpty() || url.startsWith( "about:" ) )
+        {
+            return "";
+        }
+        if ( url.startsWith( "data:" ) )
+        {
+            int comma = url.indexOf( ',' );
+            String data = comma < 0 ? "" : url.substring( comma + 1 );
+            try
+            {
+                return url.substring( 0, Math.max( comma, 0 ) ).endsWith( ";base64" )
+                       ? new String( Base64.getDecoder().decode( data ), StandardCharsets.UTF_8 )
+                       : URLDecoder.decode( data.replace( "+", "%2B" ), "UTF-8" );
+            }
+            catch ( UnsupportedEncodingException | IllegalArgumentException e )
+            {
+                throw new InvalidArgumentException( format( "Bad data url: %s", url ) );
+            }
+        }
+        Path path = resolvePath( url );
+        if ( nonNull( path ) && Files.isDirectory( path ) )
+        {
+            path = path.resolve( "index.html" );
+        }
+        if ( isNull( path ) || ! Files.isRegularFile( path ) )
+        {
+            return format( "<html><head><title>Not Found</title></head><body><h1>Not Found</h1><p>%s</p></body></html>", url );
+        }
+        try
+        {
+            return new String( Files.readAllBytes( path ), StandardCharsets.UTF_8 );
+        }
+        catch ( IOException e )
+        {
+            throw new WebDriverException( format( "Failed to read: %s", path ), e );
+        }
+    }
+
+    private Path resolvePath( String url )
+    {
+        try
+        {
+            URI uri = URI.create( url );
+            if ( "file".equals( uri.getScheme() ) )
+            {
+                return Paths.get( uri );
+            }
+            if ( isNull( documentRoot ) || isNull( uri.getPath() ) )
+            {
+                return null;
+            }
+            return documentRoot.resolve( uri.getPath().replaceFirst( "^/+", "" ) );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            return null;
+        }
+    }
+
+    private String resolveUrl( String base, String url )
+    {
+        try
+        {
+            URI baseUri = URI.create( base );
+            return baseUri.isOpaque()
+                   ? url
+                   : baseUri.resolve( url ).toString();
+        }
+        catch ( IllegalArgumentException e )
+        {
+            return url;
+        }
+    }
+
+    /**
+     * Every element interaction: maybe re-render, then check the element is still live.
+     */
+    void touch( Element element )
+    {
+        if ( rerenderCountdown > 0 && -- rerenderCountdown == 0 )
+        {
+            rerenderCountdown = - 1;
+            rerender();
+        }
+        Object elementGeneration = element.getOwnerDocument().getUserData( GENERATION );
+        if ( ! Objects.equals( elementGeneration, liveGeneration( element.getOwnerDocument() ) )
+                || ! FakeDom.isAttached( element ) )
+        {
+            throw new StaleElementReferenceException( format( "Element is no longer attached: <%s>", element.getNodeName() ) );
+        }
+    }
+
+    /**
+     * The generation of the top level document a (maybe framed) document belongs to, if it's still showing.
+     */
+    private Object liveGeneration( Document document )
+    {
+        Document top = document;
+        while ( nonNull( top.getUserData( PARENT_DOCUMENT ) ) )
+        {
+            top = ( Document ) top.getUserData( PARENT_DOCUMENT );
+        }
+        for ( Window window : windows.values() )
+        {
+            if ( window.document == top )
+            {
+                return document.getUserData( GENERATION );
+            }
+        }
+        return null;
+    }
+
+    void navigate( String url )
+    {
+        Window window = window();
+        String resolved = resolveUrl( window.url(), url );
+        while ( window.history.size() > window.position + 1 )
+        {
+            window.history.remove( window.history.size() - 1 );
+        }
+        window.history.add( resolved );
+        window.position++;
+        window.document = load( resolved );
+        current = window.document;
+    }
+
+    private void go( int step )
+    {
+        Window window = window();
+        int position = window.position + step;
+        if ( position >= 0 && position < window.history.size() )
+        {
+            window.position = position;
+            window.document = load( window.url() );
+            current = window.document;
+        }
+    }
+
+    @Override
+    public void get( String url )
+    {
+        navigate( url );
+    }
+
+    @Override
+    public String getCurrentUrl()
+    {
+        return window().url();
+    }
+
+    @Override
+    public String getTitle()
+    {
+        List< Element > titles = FakeDom.xpath( window().document, "//title" );
+        return titles.isEmpty()
+               ? ""
+               : titles.get( 0 ).getTextContent().trim().replaceAll( "\\s+", " " );
+    }
+
+    @Override
+    public List< WebElement > findElements( By by )
+    {
+        return wrap( FakeDom.find( currentDocument(), by ) );
+    }
+
+    @Override
+    public WebElement findElement( By by )
+    {
+        return first( findElements( by ), by );
+    }
+
+    List< WebElement > wrap( List< Element > elements )
+    {
+        return elements
+                .stream()
+                .map( element -> new FakeWebElement( this, element ) )
+                .collect( Collectors.toList() );
+    }
+
+    static WebElement first( List< WebElement > elements, By by )
+    {
+        if ( elements.isEmpty() )
+        {
+            throw new NoSuchElementException( format( "Unable to locate element: %s", by ) );
+        }
+        return elements.get( 0 );
+    }
+
+    @Override
+    public String getPageSource()
+    {
+        try
+        {
+            Transformer transformer = TransformerFactory.newInstance().newTransformer();
+            transformer.setOutputProperty( OutputKeys.METHOD, "html" );
+            transformer.setOutputProperty( OutputKeys.OMIT_XML_DECLARATION, "yes" );
+            StringWriter source = new StringWriter();
+            transformer.transform( new DOMSource( currentDocument() ), new StreamResult( source ) );
+            return source.toString();
+        }
+        catch ( TransformerException e )
+        {
+            throw new WebDriverException( e );
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        windows.remove( currentHandle );
+    }
+
+    @Override
+    public void quit()
+    {
+        windows.clear();
+        cookies.clear();
+        localStorage.clear();
+    }
+
+    @Override
+    public Set< String > getWindowHandles()
+    {
+        return new LinkedHashSet<>( windows.keySet() );
+    }
+
+    @Override
+    public String getWindowHandle()
+    {
+        window();
+        return currentHandle;
+    }
+
+    @Override
+    public TargetLocator switchTo()
+    {
+        return new FakeTargetLocator();
+    }
+
+    @Override
+    public Navigation navigate()
+    {
+        return new FakeNavigation();
+    }
+
+    @Override
+    public Options manage()
+    {
+        return proxy( Options.class, ( proxy, method, args ) -> {
+            switch ( method.getName() )
+            {
+                case "addCookie":
+                    Cookie cookie = ( Cookie ) args[ 0 ];
+                    cookies.put( cookie.getName(), cookie );
+                    return null;
+                case "deleteCookieNamed":
+                    cookies.remove( ( String ) args[ 0 ] );
+                    return null;
+                case "deleteCookie":
+                    cookies.remove( ( ( Cookie ) args[ 0 ] ).getName() );
+                    return null;
+                case "deleteAllCookies":
+                    cookies.clear();
+                    return null;
+                case "getCookies":
+                    return new LinkedHashSet<>( cookies.values() );
+                case "getCookieNamed":
+                    return cookies.get( ( String ) args[ 0 ] );
+                case "timeouts":
+                    return proxy( Timeouts.class, ( tp, tm, ta ) -> tm.getReturnType() == Duration.class
+                                                                     ? Duration.ZERO
+                                                                     : tp );
+                case "window":
+                    return proxy( WebDriver.Window.class, ( wp, wm, wa ) -> {
+                        switch ( wm.getName() )
+                        {
+                            case "getSize":
+                                return new Dimension( 1280, 800 );
+                            case "getPosition":
+                                return new Point( 0, 0 );
+                            default:
+                                return null;
+                        }
+                    } );
+                default:
+                    return null;
+            }
+        } );
+    }
+
+    private static < T > T proxy( Class< T > type, java.lang.reflect.InvocationHandler handler )
+    {
+        return type.cast( Proxy.newProxyInstance( FakeWebDriver.class.getClassLoader(), new Class< ? >[]{ type }, handler ) );
+    }
+
+    @Override
+    public Object executeScript( String script, Object... args )
+    {
+        return FakeScripts.execute( this, script, args );
+    }
+
+    @Override
+    public Object executeAsyncScript( String script, Object... args )
+    {
+        return FakeScripts.executeAsync( this, script, args );
+    }
+
+    @Override
+    public < X > X getScreenshotAs( OutputType< X > outputType ) throws WebDriverException
+    {
+        return outputType.convertFromPngBytes( screenshot( currentDocument().getDocumentURI() ) );
+    }
+
+    /**
+     * A blank image, tinted by the url so that different pages give different images.
+     */
+    static byte[] screenshot( String url )
+    {
+        BufferedImage image = new BufferedImage( 320, 200, BufferedImage.TYPE_INT_RGB );
+        Graphics2D graphics = image.createGraphics();
+        try
+        {
+            graphics.setColor( new Color( 0xFFFFFF & String.valueOf( url ).hashCode() | 0x808080 ) );
+            graphics.fillRect( 0, 0, image.getWidth(), image.getHeight() );
+        }
+        finally
+        {
+            graphics.dispose();
+        }
+        try
+        {
+            ByteArrayOutputStream png = new ByteArrayOutputStream();
+            ImageIO.write( image, "png", png );
+            return png.toByteArray();
+        }
+        catch ( IOException e )
+        {
+            throw new WebDriverException( e );
+        }
+    }
+
+    private Document frameDocument( Element frame )
+    {
+        String tag = frame.getNodeName();
+        if ( ! "iframe".equals( tag ) && ! "frame".equals( tag ) )
+        {
+            throw new NoSuchFrameException( format( "Not a frame: <%s>", tag ) );
+        }
+        Document document = ( Document ) frame.getUserData( CONTENT_DOCUMENT );
+        if ( isNull( document ) )
+        {
+            Document owner = frame.getOwnerDocument();
+            if ( frame.hasAttribute( "srcdoc" ) )
+            {
+                document = HtmlParser.parse( frame.getAttribute( "srcdoc" ) );
+                document.setDocumentURI( "about:srcdoc" );
+            }
+            else
+            {
+                String url = resolveUrl( owner.getDocumentURI(), frame.getAttribute( "src" ) );
+                document = HtmlParser.parse( frame.hasAttribute( "src" ) ? fetch( url ) : "" );
+                document.setDocumentURI( url );
+            }
+            document.setUserData( GENERATION, owner.getUserData( GENERATION ), null );
+            document.setUserData( PARENT_DOCUMENT, owner, null );
+            frame.setUserData( CONTENT_DOCUMENT, document, null );
+        }
+        return document;
+    }
+
+    private List< Element > frames()
+    {
+        return FakeDom.xpath( currentDocument(), "//iframe | //frame" );
+    }
+
+    private class FakeTargetLocator implements TargetLocator
+    {
+        @Override
+        public WebDriver frame( int index )
+        {
+            List< Element > frames = frames();
+            if ( index < 0 || index >= frames.size() )
+            {
+                throw new NoSuchFrameException( format( "No frame at index: %s", index ) );
+            }
+            current = frameDocument( frames.get( index ) );
+            return FakeWebDriver.this;
+        }
+
+        @Override
+        public WebDriver frame( String nameOrId )
+        {
+            Element frame = frames()
+                    .stream()
+                    .filter( f -> nameOrId.equals( f.getAttribute( "name" ) ) || nameOrId.equals( f.getAttribute( "id" ) ) )
+                    .findFirst()
+                    .orElseThrow( () -> new NoSuchFrameException( format( "No frame named: %s", nameOrId ) ) );
+            current = frameDocument( frame );
+            return FakeWebDriver.this;
+        }
+
+        @Override
+        public WebDriver frame( WebElement frameElement )
+        {
+            if ( ! ( frameElement instanceof FakeWebElement ) )
+            {
+                throw new NoSuchFrameException( format( "Not a frame: %s", frameElement ) );
+            }
+            Element frame = ( ( FakeWebElement ) frameElement ).getElement();
+            touch( frame );
+            current = frameDocument( frame );
+            return FakeWebDriver.this;
+        }
+
+        @Override
+        public WebDriver parentFrame()
+        {
+            Document parent = ( Document ) currentDocument().getUserData( PARENT_DOCUMENT );
+            if ( nonNull( parent ) )
+            {
+                current = parent;
+            }
+            return FakeWebDriver.this;
+        }
+
+        @Override
+        public WebDriver window( String nameOrHandle )
+        {
+            if ( ! windows.containsKey( nameOrHandle ) )
+            {
+                throw new NoSuchWindowException( format( "No window: %s", nameOrHandle ) );
+            }
+            currentHandle = nameOrHandle;
+            current = windows.get( nameOrHandle ).document;
+            return FakeWebDriver.this;
+        }
+
+        @Override
+        public WebDriver newWindow( WindowType typeHint )
+        {
+            openWindow();
+            return FakeWebDriver.this;
+        }
+
+        @Override
+        public WebDriver defaultContent()
+        {
+            current = window().document;
+            return FakeWebDriver.this;
+        }
+
+        @Override
+        public WebElement activeElement()
+        {
+            Node body = FakeDom
+                    .xpath( currentDocument(), "/html/body" )
+                    .stream()
+                    .findFirst()
+                    .orElse( currentDocument().getDocumentElement() );
+            return new FakeWebElement( FakeWebDriver.this, ( Element ) body );
+        }
+
+        @Override
+        public Alert alert()
+        {
+            throw new NoAlertPresentException();
+        }
+    }
+
+    private class FakeNavigation implements Navigation
+    {
+        @Override
+        public void back()
+        {
+            go( - 1 );
+        }
+
+        @Override
+        public void forward()
+        {
+            go( 1 );
+        }
+
+        @Override
+        public void to( String url )
+        {
+            navigate( url );
+        }
+
+        @Override
+        public void to( URL url )
+        {
+            navigate( url.toString() );
+        }
+
+        @Override
+        public void refresh()
+        {
+            rerender();
+        }
+    }
+
+    public String toString()
+    {
+        return format( "FakeWebDriver[%s]", isNull( documentRoot ) ? "" : documentRoot );
+    }
+}
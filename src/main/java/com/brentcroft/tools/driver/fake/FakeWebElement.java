@@ -0,0 +1,425 @@
+package com.brentcroft.tools.driver.fake;
+
+import lombok.Getter;
+import org.openqa.selenium.*;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static java.lang.String.format;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+/**
+ * A WebElement over an element of a FakeWebDriver's DOM.
+ * <p>
+ * Two instances are equal when they refer to the same DOM element.
+ */
+public class FakeWebElement implements WebElement
+{
+    private static final Pattern STYLE_PROPERTY = Pattern.compile( "([\\w-]+)\\s*:\\s*([^;]*)" );
+
+    private final FakeWebDriver driver;
+    @Getter
+    private final Element element;
+
+    FakeWebElement( FakeWebDriver driver, Element element )
+    {
+        this.driver = driver;
+        this.element = element;
+    }
+
+    private Element live()
+    {
+        driver.touch( element );
+        return element;
+    }
+
+    private Element interactable()
+    {
+        Element e = live();
+        if ( ! FakeDom.isDisplayed( e ) )
+        {
+            throw new ElementNotInteractableException( format( "Element is not displayed: <%s>", e.getNodeName() ) );
+        }
+        return e;
+    }
+
+    private boolean isTextEntry( Element e )
+    {
+        if ( "textarea".equals( e.getNodeName() ) )
+        {
+            return true;
+        }
+        if ( ! "input".equals( e.getNodeName() ) )
+        {
+            return false;
+        }
+        switch ( e.getAttribute( "type" ).toLowerCase( Locale.ROOT ) )
+        {
+            case "checkbox":
+            case "radio":
+            case "button":
+            case "submit":
+            case "reset":
+            case "image":
+            case "file":
+            case "hidden":
+                return false;
+            default:
+                return true;
+        }
+    }
+
+    @Override
+    public void click()
+    {
+        Element e = interactable();
+        if ( ! FakeDom.isEnabled( e ) )
+        {
+            return;
+        }
+        String tag = e.getNodeName();
+        String type = e.getAttribute( "type" ).toLowerCase( Locale.ROOT );
+
+        if ( "input".equals( tag ) && "checkbox".equals( type ) )
+        {
+            toggle( e, "checked", ! e.hasAttribute( "checked" ) );
+        }
+        else if ( "input".equals( tag ) && "radio".equals( type ) )
+        {
+            if ( e.hasAttribute( "name" ) )
+            {
+                FakeDom
+                        .xpath( e.getOwnerDocument(), format( "//input[@type = 'radio' and @name = %s]", CssToXPath.literal( e.getAttribute( "name" ) ) ) )
+                        .forEach( radio -> radio.removeAttribute( "checked" ) );
+            }
+            toggle( e, "checked", true );
+        }
+        else if ( "option".equals( tag ) )
+        {
+            Element select = enclosing( e, "select" );
+            if ( nonNull( select ) && select.hasAttribute( "multiple" ) )
+            {
+                toggle( e, "selected", ! e.hasAttribute( "selected" ) );
+            }
+            else
+            {
+                if ( nonNull( select ) )
+                {
+                    FakeDom
+                            .xpath( select, ".//option" )
+                            .forEach( option -> option.removeAttribute( "selected" ) );
+                }
+                toggle( e, "selected", true );
+            }
+        }
+        else
+        {
+            Element link = enclosing( e, "a" );
+            if ( nonNull( link ) && link.hasAttribute( "href" ) && ! link.getAttribute( "href" ).startsWith( "#" ) )
+            {
+                driver.navigate( link.getAttribute( "href" ) );
+            }
+        }
+    }
+
+    private static void toggle( Element e, String attribute, boolean on )
+    {
+        if ( on )
+        {
+            e.setAttribute( attribute, attribute );
+        }
+        else
+        {
+            e.removeAttribute( attribute );
+        }
+    }
+
+    private static Element enclosing( Element e, String tag )
+    {
+        for ( Node node = e; node instanceof Element; node = node.getParentNode() )
+        {
+            if ( tag.equals( node.getNodeName() ) )
+            {
+                return ( Element ) node;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void submit()
+    {
+        Element form = enclosing( live(), "form" );
+        if ( isNull( form ) )
+        {
+            throw new UnsupportedCommandException( "Not in a form" );
+        }
+        if ( form.hasAttribute( "action" ) )
+        {
+            driver.navigate( form.getAttribute( "action" ) );
+        }
+    }
+
+    /**
+     * Types into a text entry, where <code>Keys.CONTROL + "a"</code> selects all the text,
+     * and then typing, <code>Keys.DELETE</code> or <code>Keys.BACK_SPACE</code> replaces it.
+     */
+    @Override
+    public void sendKeys( CharSequence... keysToSend )
+    {
+        Element e = interactable();
+        if ( ! isTextEntry( e ) || ! FakeDom.isEnabled( e ) || e.hasAttribute( "readonly" ) )
+        {
+            throw new ElementNotInteractableException( format( "Element is not a text entry: <%s>", e.getNodeName() ) );
+        }
+        StringBuilder value = new StringBuilder( FakeDom.value( e ) );
+        boolean selectAll = Boolean.TRUE.equals( e.getUserData( FakeDom.SELECT_ALL ) );
+        boolean control = false;
+
+        for ( CharSequence keys : keysToSend )
+        {
+            for ( int i = 0; i < keys.length(); i++ )
+            {
+                char c = keys.charAt( i );
+                Keys key = Keys.getKeyFromUnicode( c );
+                if ( key == Keys.CONTROL || key == Keys.COMMAND || key == Keys.META )
+                {
+                    control = true;
+                }
+                else if ( key == Keys.NULL )
+                {
+                    control = false;
+                }
+                else if ( key == Keys.DELETE || key == Keys.BACK_SPACE )
+                {
+                    if ( selectAll )
+                    {
+                        value.setLength( 0 );
+                        selectAll = false;
+                    }
+                    else if ( key == Keys.BACK_SPACE && value.length() > 0 )
+                    {
+                        value.setLength( value.length() - 1 );
+                    }
+                }
+                else if ( nonNull( key ) && key != Keys.ENTER && key != Keys.RETURN )
+                {
+                    // other control keys move nothing here
+                    selectAll = false;
+                }
+                else if ( control )
+                {
+                    selectAll = c == 'a' || c == 'A';
+                }
+                else
+                {
+                    if ( selectAll )
+                    {
+                        value.setLength( 0 );
+                        selectAll = false;
+                    }
+                    if ( key == Keys.ENTER || key == Keys.RETURN )
+                    {
+                        if ( "textarea".equals( e.getNodeName() ) )
+                        {
+                            value.append( '\n' );
+                        }
+                    }
+                    else
+                    {
+                        value.append( c );
+                    }
+                }
+            }
+        }
+        e.setUserData( FakeDom.VALUE, value.toString(), null );
+        e.setUserData( FakeDom.SELECT_ALL, selectAll, null );
+    }
+
+    @Override
+    public void clear()
+    {
+        Element e = interactable();
+        if ( isTextEntry( e ) )
+        {
+            e.setUserData( FakeDom.VALUE, "", null );
+            e.setUserData( FakeDom.SELECT_ALL, false, null );
+        }
+    }
+
+    @Override
+    public String getTagName()
+    {
+        return live().getNodeName();
+    }
+
+    /**
+     * As in a browser: the current value, or a boolean state, for those properties,
+     * and otherwise the attribute.
+     */
+    @Override
+    public String getAttribute( String name )
+    {
+        Element e = live();
+        switch ( name )
+        {
+            case "value":
+                String value = FakeDom.value( e );
+                return nonNull( value ) ? value : getDomAttribute( name );
+            case "checked":
+            case "selected":
+            case "disabled":
+            case "readonly":
+            case "hidden":
+            case "multiple":
+            case "required":
+                return e.hasAttribute( name ) ? "true" : null;
+            default:
+                return getDomAttribute( name );
+        }
+    }
+
+    public String getDomAttribute( String name )
+    {
+        Element e = live();
+        return e.hasAttribute( name ) ? e.getAttribute( name ) : null;
+    }
+
+    public String getDomProperty( String name )
+    {
+        Element e = live();
+        switch ( name )
+        {
+            case "value":
+                return FakeDom.value( e );
+            case "tagName":
+                return e.getNodeName().toUpperCase( Locale.ROOT );
+            case "textContent":
+                return e.getTextContent();
+            case "innerText":
+                return FakeDom.text( e );
+            default:
+                return getAttribute( name );
+        }
+    }
+
+    @Override
+    public boolean isSelected()
+    {
+        return FakeDom.isSelected( live() );
+    }
+
+    @Override
+    public boolean isEnabled()
+    {
+        return FakeDom.isEnabled( live() );
+    }
+
+    @Override
+    public String getText()
+    {
+        return FakeDom.text( live() );
+    }
+
+    @Override
+    public List< WebElement > findElements( By by )
+    {
+        return driver.wrap( FakeDom.find( live(), by ) );
+    }
+
+    @Override
+    public WebElement findElement( By by )
+    {
+        return FakeWebDriver.first( findElements( by ), by );
+    }
+
+    public SearchContext getShadowRoot()
+    {
+        Element shadowRoot = FakeDom.shadowRoot( live() );
+        if ( isNull( shadowRoot ) )
+        {
+            throw new NoSuchShadowRootException( format( "No shadow root: <%s>", element.getNodeName() ) );
+        }
+        return new FakeShadowRoot( this, shadowRoot );
+    }
+
+    List< WebElement > findInShadowRoot( Element shadowRoot, By by )
+    {
+        live();
+        return driver.wrap( FakeDom.find( shadowRoot, by ) );
+    }
+
+    @Override
+    public boolean isDisplayed()
+    {
+        return FakeDom.isDisplayed( live() );
+    }
+
+    @Override
+    public Point getLocation()
+    {
+        live();
+        return new Point( 0, 0 );
+    }
+
+    @Override
+    public Dimension getSize()
+    {
+        return FakeDom.isDisplayed( live() )
+               ? new Dimension( 100, 20 )
+               : new Dimension( 0, 0 );
+    }
+
+    @Override
+    public Rectangle getRect()
+    {
+        return new Rectangle( getLocation(), getSize() );
+    }
+
+    /**
+     * Only the inline style is known.
+     */
+    @Override
+    public String getCssValue( String propertyName )
+    {
+        Matcher matcher = STYLE_PROPERTY.matcher( live().getAttribute( "style" ) );
+        while ( matcher.find() )
+        {
+            if ( matcher.group( 1 ).equalsIgnoreCase( propertyName ) )
+            {
+                return matcher.group( 2 ).trim();
+            }
+        }
+        return "";
+    }
+
+    @Override
+    public < X > X getScreenshotAs( OutputType< X > target ) throws WebDriverException
+    {
+        live();
+        return target.convertFromPngBytes( FakeWebDriver.screenshot( element.getOwnerDocument().getDocumentURI() + "#" + element.getNodeName() ) );
+    }
+
+    @Override
+    public boolean equals( Object other )
+    {
+        return other instanceof FakeWebElement && ( ( FakeWebElement ) other ).element == element;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return System.identityHashCode( element );
+    }
+
+    public String toString()
+    {
+        return format( "FakeWebElement[<%s>]", element.getNodeName() );
+    }
+}
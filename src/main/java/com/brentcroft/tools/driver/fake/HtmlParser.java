@@ -0,0 +1,426 @@
+package com.brentcroft.tools.driver.fake;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.util.*;
+
+/**
+ * A lenient HTML parser building a W3C DOM, with lower-case element names and no namespaces.
+ * <p>
+ * It tolerates unclosed and mis-nested tags, reads void and raw text elements,
+ * decodes common entities, and turns a declarative shadow root
+ * (<code>&lt;template shadowrootmode="open"&gt;</code>, or <code>shadowroot</code>)
+ * into a detached <code>shadow-root</code> element attached to its host as user data,
+ * marked if its mode is <code>closed</code>.
+ */
+class HtmlParser
+{
+    static final String SHADOW_ROOT = "fake.shadowRoot";
+    static final String SHADOW_HOST = "fake.shadowHost";
+    static final String SHADOW_CLOSED = "fake.shadowClosed";
+
+    private static final Set< String > VOID_ELEMENTS = new HashSet<>( Arrays.asList(
+            "area", "base", "br", "col", "embed", "hr", "img", "input", "link", "meta", "param", "source", "track", "wbr" ) );
+
+    private static final Set< String > RAW_TEXT_ELEMENTS = new HashSet<>( Arrays.asList(
+            "script", "style", "textarea", "title" ) );
+
+    // an open element closed implicitly when one of these starts
+    private static final Map< String, Set< String > > IMPLICITLY_CLOSED = new HashMap<>();
+
+    static
+    {
+        IMPLICITLY_CLOSED.put( "p", new HashSet<>( Arrays.asList( "p", "div", "ul", "ol", "table", "form", "h1", "h2", "h3", "h4", "h5", "h6", "pre" ) ) );
+        IMPLICITLY_CLOSED.put( "li", Collections.singleton( "li" ) );
+        IMPLICITLY_CLOSED.put( "option", new HashSet<>( Arrays.asList( "option", "optgroup" ) ) );
+        IMPLICITLY_CLOSED.put( "tr", Collections.singleton( "tr" ) );
+        IMPLICITLY_CLOSED.put( "td", new HashSet<>( Arrays.asList( "td", "th", "tr" ) ) );
+        IMPLICITLY_CLOSED.put( "th", new HashSet<>( Arrays.asList( "td", "th", "tr" ) ) );
+    }
+
+    private static final Map< String, String > ENTITIES = new HashMap<>();
+
+    static
+    {
+        ENTITIES.put( "amp", "&" );
+        ENTITIES.put( "lt", "<" );
+        ENTITIES.put( "gt", ">" );
+        ENTITIES.put( "quot", "\"" );
+        ENTITIES.put( "apos", "'" );
+        ENTITIES.put( "nbsp", "\u00A0" );
+        ENTITIES.put( "copy", "\u00A9" );
+    }
+
+    private final String html;
+    private final Document document;
+    private final Deque< Element > open = new ArrayDeque<>();
+    private int pos;
+
+    private HtmlParser( String html )
+    {
+        this.html = html;
+        try
+        {
+            this.document = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+        }
+        catch ( ParserConfigurationException e )
+        {
+            throw new IllegalStateException( e );
+        }
+    }
+
+    static Document parse( String html )
+    {
+        return new HtmlParser( html == null ? "" : html ).parse();
+    }
+
+    private Document parse()
+    {
+        Element root = document.createElement( "fake-root" );
+        open.push( root );
+
+        while ( pos < html.length() )
+        {
+            if ( html.startsWith( "<!--", pos ) )
+            {
+                int end = html.indexOf( "-->", pos + 4 );
+                pos = end < 0 ? html.length() : end + 3;
+            }
+            else if ( html.startsWith( "<!", pos ) || html.startsWith( "<?", pos ) )
+            {
+                int end = html.indexOf( '>', pos );
+                pos = end < 0 ? html.length() : end + 1;
+            }
+            else if ( html.startsWith( "</", pos ) && pos + 2 < html.length() && Character.isLetter( html.charAt( pos + 2 ) ) )
+            {
+                readEndTag();
+            }
+            else if ( html.charAt( pos ) == '<' && pos + 1 < html.length() && Character.isLetter( html.charAt( pos + 1 ) ) )
+            {
+                readStartTag();
+            }
+            else
+            {
+                int end = html.indexOf( '<', pos + 1 );
+                if ( end < 0 )
+                {
+                    end = html.length();
+                }
+                appendText( html.substring( pos, end ) );
+                pos = end;
+            }
+        }
+        while ( open.size() > 1 )
+        {
+            close( open.peek() );
+        }
+        document.appendChild( documentElement( root ) );
+        return document;
+    }
+
+    /**
+     * Ensure a single <code>html</code> element, with a <code>body</code>.
+     */
+    private Element documentElement( Element root )
+    {
+        Element htmlElement = null;
+        for ( Node child = root.getFirstChild(); child != null; child = child.getNextSibling() )
+        {
+            if ( child instanceof Element && "html".equals( child.getNodeName() ) )
+            {
+                htmlElement = ( Element ) child;
+            }
+        }
+        if ( htmlElement == null )
+        {
+            htmlElement = document.createElement( "html" );
+            Element body = document.createElement( "body" );
+            htmlElement.appendChild( body );
+            while ( root.getFirstChild() != null )
+            {
+                Node child = root.getFirstChild();
+                if ( child instanceof Element && "head".equals( child.getNodeName() ) )
+                {
+                    htmlElement.insertBefore( child, body );
+                }
+                else
+                {
+                    body.appendChild( child );
+                }
+            }
+        }
+        else
+        {
+            root.removeChild( htmlElement );
+        }
+        return htmlElement;
+    }
+
+    private void readStartTag()
+    {
+        int end = findTagEnd( pos );
+        String tag = html.substring( pos + 1, end );
+        pos = end < html.length() ? end + 1 : end;
+
+        boolean selfClosing = tag.endsWith( "/" );
+        if ( selfClosing )
+        {
+            tag = tag.substring( 0, tag.length() - 1 );
+        }
+        int nameEnd = 0;
+        while ( nameEnd < tag.length() && ! Character.isWhitespace( tag.charAt( nameEnd ) ) )
+        {
+            nameEnd++;
+        }
+        String name = tag.substring( 0, nameEnd ).toLowerCase( Locale.ROOT );
+
+        Set< String > closers;
+        while ( open.size() > 1
+                && ( closers = IMPLICITLY_CLOSED.get( open.peek().getNodeName() ) ) != null
+                && closers.contains( name ) )
+        {
+            close( open.peek() );
+        }
+
+        Element element;
+        try
+        {
+            element = document.createElement( name );
+        }
+        catch ( Exception e )
+        {
+            // not a legal name: keep it as text
+            appendText( "<" + tag + ">" );
+            return;
+        }
+        readAttributes( tag.substring( nameEnd ), element );
+        open.peek().appendChild( element );
+
+        if ( VOID_ELEMENTS.contains( name ) || selfClosing )
+        {
+            return;
+        }
+        if ( RAW_TEXT_ELEMENTS.contains( name ) )
+        {
+            int close = indexOfIgnoreCase( "</" + name, pos );
+            if ( close < 0 )
+            {
+                close = html.length();
+            }
+            String text = html.substring( pos, close );
+            element.appendChild( document.createTextNode( "script".equals( name ) || "style".equals( name ) ? text : decode( text ) ) );
+            int closeEnd = html.indexOf( '>', close );
+            pos = closeEnd < 0 ? html.length() : closeEnd + 1;
+            return;
+        }
+        open.push( element );
+    }
+
+    private void readEndTag()
+    {
+        int end = html.indexOf( '>', pos );
+        String name = html
+                .substring( pos + 2, end < 0 ? html.length() : end )
+                .trim()
+                .toLowerCase( Locale.ROOT );
+        pos = end < 0 ? html.length() : end + 1;
+
+        // close up to the nearest open element of the same name, if any
+        for ( Element element : open )
+        {
+            if ( element.getNodeName().equals( name ) )
+            {
+                while ( open.peek() != element )
+                {
+                    close( open.peek() );
+                }
+                close( element );
+                return;
+            }
+        }
+    }
+
+    private void close( Element element )
+    {
+        open.pop();
+        if ( "template".equals( element.getNodeName() )
+                && ( element.hasAttribute( "shadowrootmode" ) || element.hasAttribute( "shadowroot" ) ) )
+        {
+            Node host = element.getParentNode();
+            if ( host instanceof Element && host.getUserData( SHADOW_ROOT ) == null )
+            {
+                Element shadowRoot = document.createElement( "shadow-root" );
+                while ( element.getFirstChild() != null )
+                {
+                    shadowRoot.appendChild( element.getFirstChild() );
+                }
+                host.removeChild( element );
+                host.setUserData( SHADOW_ROOT, shadowRoot, null );
+                shadowRoot.setUserData( SHADOW_HOST, host, null );
+                if ( "closed".equalsIgnoreCase( element.getAttribute( "shadowrootmode" ) ) )
+                {
+                    shadowRoot.setUserData( SHADOW_CLOSED, true, null );
+                }
+            }
+        }
+    }
+
+    private void appendText( String text )
+    {
+        if ( ! text.isEmpty() )
+        {
+            open.peek().appendChild( document.createTextNode( decode( text ) ) );
+        }
+    }
+
+    private int findTagEnd( int from )
+    {
+        char quote = 0;
+        for ( int i = from + 1; i < html.length(); i++ )
+        {
+            char c = html.charAt( i );
+            if ( quote != 0 )
+            {
+                if ( c == quote )
+                {
+                    quote = 0;
+                }
+            }
+            else if ( c == '"' || c == '\'' )
+            {
+                quote = c;
+            }
+            else if ( c == '>' )
+            {
+                return i;
+            }
+        }
+        return html.length();
+    }
+
+    private void readAttributes( String text, Element element )
+    {
+        int i = 0;
+        while ( i < text.length() )
+        {
+            while ( i < text.length() && ( Character.isWhitespace( text.charAt( i ) ) || text.charAt( i ) == '/' ) )
+            {
+                i++;
+            }
+            int nameStart = i;
+            while ( i < text.length() && "=\t\n\r\f />".indexOf( text.charAt( i ) ) < 0 )
+            {
+                i++;
+            }
+            String name = text.substring( nameStart, i ).toLowerCase( Locale.ROOT );
+            while ( i < text.length() && Character.isWhitespace( text.charAt( i ) ) )
+            {
+                i++;
+            }
+            String value = "";
+            if ( i < text.length() && text.charAt( i ) == '=' )
+            {
+                i++;
+                while ( i < text.length() && Character.isWhitespace( text.charAt( i ) ) )
+                {
+                    i++;
+                }
+                if ( i < text.length() && ( text.charAt( i ) == '"' || text.charAt( i ) == '\'' ) )
+                {
+                    char quote = text.charAt( i++ );
+                    int valueEnd = text.indexOf( quote, i );
+                    if ( valueEnd < 0 )
+                    {
+                        valueEnd = text.length();
+                    }
+                    value = text.substring( i, valueEnd );
+                    i = Math.min( text.length(), valueEnd + 1 );
+                }
+                else
+                {
+                    int valueStart = i;
+                    while ( i < text.length() && ! Character.isWhitespace( text.charAt( i ) ) )
+                    {
+                        i++;
+                    }
+                    value = text.substring( valueStart, i );
+                }
+            }
+            if ( ! name.isEmpty() && ! element.hasAttribute( name ) )
+            {
+                try
+                {
+                    element.setAttribute( name, decode( value ) );
+                }
+                catch ( Exception ignored )
+                {
+                    // not a legal attribute name
+                }
+            }
+        }
+    }
+
+    private int indexOfIgnoreCase( String target, int from )
+    {
+        for ( int i = from; i <= html.length() - target.length(); i++ )
+        {
+            if ( html.regionMatches( true, i, target, 0, target.length() ) )
+            {
+                return i;
+            }
+        }
+        return - 1;
+    }
+
+    static String decode( String text )
+    {
+        if ( text.indexOf( '&' ) < 0 )
+        {
+            return text;
+        }
+        StringBuilder decoded = new StringBuilder();
+        int i = 0;
+        while ( i < text.length() )
+        {
+            char c = text.charAt( i );
+            int semi = c == '&' ? text.indexOf( ';', i ) : - 1;
+            if ( semi > i + 1 && semi - i < 12 )
+            {
+                String entity = text.substring( i + 1, semi );
+                String replacement = null;
+                try
+                {
+                    if ( entity.startsWith( "#x" ) || entity.startsWith( "#X" ) )
+                    {
+                        replacement = new String( Character.toChars( Integer.parseInt( entity.substring( 2 ), 16 ) ) );
+                    }
+                    else if ( entity.startsWith( "#" ) )
+                    {
+                        replacement = new String( Character.toChars( Integer.parseInt( entity.substring( 1 ) ) ) );
+                    }
+                    else
+                    {
+                        replacement = ENTITIES.get( entity );
+                    }
+                }
+                catch ( IllegalArgumentException ignored )
+                {
+                    // not a character reference
+                }
+                if ( replacement != null )
+                {
+                    decoded.append( replacement );
+                    i = semi + 1;
+                    continue;
+                }
+            }
+            decoded.append( c );
+            i++;
+        }
+        return decoded.toString();
+    }
+}
@@ -1,10 +1,24 @@
 package com.brentcroft.tools.driver;
 
+import com.brentcroft.tools.driver.fake.FakeWebDriver;
 import org.junit.Test;
+import org.openqa.selenium.TakesScreenshot;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
 
 import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class BrowsersTest
 {
@@ -18,10 +32,243 @@ public class BrowsersTest
         assertEquals("ok", result);
     }
 
+    @Test
+    public void seesBrowsersOfItsOwnThreadOnly() throws InterruptedException
+    {
+        Browsers.newBrowser( "mine" );
+        AtomicBoolean seen = new AtomicBoolean();
+        Thread other = new Thread( () -> seen.set( Browsers
+                .instance()
+                .getNamedModel( "mine" )
+                .isPresent() ) );
+        try
+        {
+            other.start();
+            other.join();
+
+            assertFalse( seen.get() );
+            assertEquals(
+                    Browsers.instance().get( "mine" ).getPageModel(),
+                    Browsers.instance().getDefaultBrowser().getPageModel().eval( "mine" ) );
+        }
+        finally
+        {
+            Browsers.instance().remove( "mine" );
+        }
+    }
+
+    @Test
+    public void forgetsARegistryOnceClosedCompletely() throws InterruptedException
+    {
+        AtomicReference< Browsers > registry = new AtomicReference<>();
+        AtomicBoolean registered = new AtomicBoolean();
+        Thread thread = new Thread( () -> {
+            registry.set( Browsers.instance() );
+            registered.set( Browsers.isRegistered( registry.get() ) );
+            registry.get().closeCompletely();
+        } );
+        thread.start();
+        thread.join();
+
+        assertTrue( registered.get() );
+        assertFalse( Browsers.isRegistered( registry.get() ) );
+    }
+
+    @Test
+    public void leavesPooledDriversToOtherRegistries() throws InterruptedException
+    {
+        DriverPool pool = DriverPool.instance();
+        DriverPool.Settings settings = new DriverPool.Settings( 1, 10, 60000 );
+        FakeWebDriver pooled = new FakeWebDriver();
+        pool.acquire( "other-registry", settings, () -> pooled );
+        pool.release( pooled );
+
+        Thread thread = new Thread( () -> Browsers.instance().closeCompletely() );
+        thread.start();
+        thread.join();
+
+        try
+        {
+            assertSame( pooled, pool.acquire( "other-registry", settings, FakeWebDriver::new ) );
+            pool.release( pooled );
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+
     @Test
     public void runsMain() throws IOException
     {
         String[] args = { "src/test/resources/scripts/brentcroft-play.steps" };
         Browsers.main(  args );
     }
+
+    private static WebDriver screenshotDriver( Runnable onScreenshot )
+    {
+        return ( WebDriver ) Proxy.newProxyInstance(
+                BrowsersTest.class.getClassLoader(),
+                new Class< ? >[]{ WebDriver.class, TakesScreenshot.class },
+                ( proxy, method, args ) -> {
+                    if ( "getScreenshotAs".equals( method.getName() ) )
+                    {
+                        onScreenshot.run();
+                    }
+                    return null;
+                } );
+    }
+
+    @Test
+    public void savesScreenshotsTogetherAndReportsFailuresTogether()
+    {
+        Browsers browsers = Browsers.instance();
+        Browser fake = new Browser();
+        fake.setWebDriver( new FakeWebDriver() );
+        Browser failing = new Browser();
+        failing.setWebDriver( screenshotDriver( () -> {
+            throw new WebDriverException( "no screenshot" );
+        } ) );
+        Browser hanging = new Browser();
+        hanging.setWebDriver( screenshotDriver( () -> {
+            try
+            {
+                Thread.sleep( 10000 );
+            }
+            catch ( InterruptedException ignored )
+            {
+            }
+        } ) );
+
+        browsers.put( "fake", fake );
+        browsers.put( "failing", failing );
+        browsers.put( "hanging", hanging );
+        long started = System.currentTimeMillis();
+        try
+        {
+            browsers.saveScreenshots( "together", 500 );
+            fail( "Expected exception!" );
+        }
+        catch ( IllegalStateException e )
+        {
+            // the hung driver didn't hold up the others, nor the caller
+            assertEquals( 2, e.getSuppressed().length );
+            assertTrue( System.currentTimeMillis() - started < 5000 );
+        }
+        finally
+        {
+            browsers.remove( "fake" );
+            browsers.remove( "failing" );
+            browsers.remove( "hanging" );
+        }
+    }
+
+    /**
+     * The hung close clears the driver itself, once its quit has failed.
+     */
+    private static void assertQuitWithin( Browser browser, long millis ) throws InterruptedException
+    {
+        long deadline = System.currentTimeMillis() + millis;
+        while ( browser.getWebDriver() != null && System.currentTimeMillis() < deadline )
+        {
+            Thread.sleep( 10 );
+        }
+        assertNull( browser.getWebDriver() );
+    }
+
+    @Test
+    public void killsTheServiceOfAHungDriver() throws IOException, InterruptedException
+    {
+        DriverServicesTest.FakeService service = new DriverServicesTest.FakeService();
+        DriverServices services = DriverServices.instance();
+        assertSame( service, services.acquire( "fake:hung", "fake-driver", () -> service ) );
+
+        Browser hanging = new Browser();
+        hanging.setDriverService( service );
+        hanging.setWebDriver( ( WebDriver ) Proxy.newProxyInstance(
+                BrowsersTest.class.getClassLoader(),
+                new Class< ? >[]{ WebDriver.class },
+                ( proxy, method, args ) -> {
+                    // like a remote quit: deaf to interrupts, until its driver process goes away
+                    while ( "quit".equals( method.getName() ) && service.isRunning() )
+                    {
+                        try
+                        {
+                            Thread.sleep( 10 );
+                        }
+                        catch ( InterruptedException ignored )
+                        {
+                        }
+                    }
+                    if ( "quit".equals( method.getName() ) )
+                    {
+                        throw new WebDriverException( "connection refused" );
+                    }
+                    return null;
+                } ) );
+
+        Browsers browsers = Browsers.instance();
+        browsers.put( "hanging", hanging );
+        long timeout = browsers.getTeardownTimeoutMillis();
+        browsers.setTeardownTimeoutMillis( 500 );
+        try
+        {
+            Map< String, String > summary = browsers.close();
+
+            assertEquals( "timed out: killed", summary.get( "hanging" ) );
+            assertFalse( service.isRunning() );
+            assertQuitWithin( hanging, 2000 );
+
+            // the next session gets a new service
+            DriverServicesTest.FakeService next = new DriverServicesTest.FakeService();
+            assertNotSame( service, services.acquire( "fake:hung", "fake-driver", () -> next ) );
+            services.release( next );
+        }
+        finally
+        {
+            browsers.setTeardownTimeoutMillis( timeout );
+            browsers.remove( "hanging" );
+            services.shutdown();
+        }
+    }
+
+    @Test
+    public void tearsDownTogetherAndGivesUpOnHungDrivers() throws InterruptedException
+    {
+        Browsers browsers = Browsers.instance();
+        Browser fake = new Browser();
+        fake.setWebDriver( new FakeWebDriver() );
+        Browser hanging = new Browser();
+        hanging.setWebDriver( ( WebDriver ) Proxy.newProxyInstance(
+                BrowsersTest.class.getClassLoader(),
+                new Class< ? >[]{ WebDriver.class },
+                ( proxy, method, args ) -> {
+                    if ( "quit".equals( method.getName() ) )
+                    {
+                        Thread.sleep( 10000 );
+                    }
+                    return null;
+                } ) );
+
+        browsers.put( "fake", fake );
+        browsers.put( "hanging", hanging );
+        long timeout = browsers.getTeardownTimeoutMillis();
+        browsers.setTeardownTimeoutMillis( 500 );
+        long started = System.currentTimeMillis();
+        try
+        {
+            Map< String, String > summary = browsers.close();
+
+            assertEquals( "closed", summary.get( "fake" ) );
+            assertEquals( "timed out: abandoned", summary.get( "hanging" ) );
+            assertTrue( System.currentTimeMillis() - started < 5000 );
+            assertQuitWithin( hanging, 2000 );
+        }
+        finally
+        {
+            browsers.setTeardownTimeoutMillis( timeout );
+            browsers.remove( "fake" );
+            browsers.remove( "hanging" );
+        }
+    }
 }
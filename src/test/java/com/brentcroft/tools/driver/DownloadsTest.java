@@ -5,11 +5,15 @@ import org.junit.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.concurrent.CompletableFuture;
 
 import static com.brentcroft.tools.el.ELFunctions.textToFile;
 import static java.lang.String.format;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.fail;
 
 public class DownloadsTest
@@ -102,4 +106,40 @@ public class DownloadsTest
         int numRemoved = downloads.clear();
         assertEquals(numFiles, numRemoved);
     }
+
+    @Test()
+    public void detectsRenamedDownloadByPattern() throws Exception
+    {
+        Downloads downloads = new Downloads();
+        downloads.setDirectory( downloadsDirectory );
+        downloads.clear();
+
+        CompletableFuture< Path > detected = downloads.detectAsync( "glob:report-*.csv", 5000 );
+
+        Path partial = new File( downloadsDirectory, "report-1.csv.crdownload" ).toPath();
+        Files.write( partial, "a,b".getBytes() );
+        Thread.sleep( 300 );
+        assertFalse( detected.isDone() );
+
+        Files.move( partial, new File( downloadsDirectory, "report-1.csv" ).toPath() );
+        assertEquals( "report-1.csv", detected.get().getFileName().toString() );
+        downloads.clear();
+    }
+
+    @Test()
+    public void ignoresTempFiles() throws IOException
+    {
+        Downloads downloads = new Downloads();
+        downloads.setDirectory( downloadsDirectory );
+        downloads.clear();
+        createFile( "data.xyz.part" );
+        try {
+            downloads.detect( "regex:data\\.xyz.*", 500 );
+            fail("Expected exception!");
+        } catch (IllegalArgumentException e) {
+            System.out.println( e );
+        } finally {
+            downloads.clear();
+        }
+    }
 }
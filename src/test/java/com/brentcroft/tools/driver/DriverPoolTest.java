@@ -0,0 +1,135 @@
+package com.brentcroft.tools.driver;
+
+import com.brentcroft.tools.driver.fake.FakeWebDriver;
+import org.junit.After;
+import org.junit.Test;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chromium.HasCdp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class DriverPoolTest
+{
+    private final DriverPool pool = DriverPool.instance();
+    private final DriverPool.Settings settings = new DriverPool.Settings( 1, 10, 60000 );
+
+    @After
+    public void shutdown()
+    {
+        pool.shutdown();
+    }
+
+    @Test
+    public void clearsTheStorageOfEveryVisitedOrigin()
+    {
+        FakeWebDriver driver = new FakeWebDriver()
+                .register( "http://one.test/page", "<p>One</p>" )
+                .register( "http://two.test/page", "<p>Two</p>" );
+
+        WebDriver leased = pool.acquire( "two-origins", settings, () -> driver );
+        assertSame( driver, leased );
+
+        pool.visited( driver, "http://one.test/page" );
+        driver.get( "http://one.test/page" );
+        driver.localStorage().put( "user", "one" );
+
+        pool.visited( driver, "http://two.test/page" );
+        driver.get( "http://two.test/page" );
+        driver.localStorage().put( "user", "two" );
+
+        pool.release( driver );
+        assertSame( driver, pool.acquire( "two-origins", settings, FakeWebDriver::new ) );
+        assertEquals( "about:blank", driver.getCurrentUrl() );
+
+        driver.get( "http://one.test/page" );
+        assertTrue( driver.localStorage().isEmpty() );
+        driver.get( "http://two.test/page" );
+        assertTrue( driver.localStorage().isEmpty() );
+
+        pool.release( driver );
+    }
+
+    @Test
+    public void clearsTheStorageOfOriginsLeftOpenInWindows()
+    {
+        FakeWebDriver driver = new FakeWebDriver().register( "http://one.test/page", "<p>One</p>" );
+
+        pool.acquire( "open-window", settings, () -> driver );
+        driver.get( "http://one.test/page" );
+        driver.localStorage().put( "user", "one" );
+
+        pool.release( driver );
+        pool.acquire( "open-window", settings, FakeWebDriver::new );
+
+        driver.get( "http://one.test/page" );
+        assertTrue( driver.localStorage().isEmpty() );
+
+        pool.release( driver );
+    }
+
+    private static class CdpDriver extends FakeWebDriver implements HasCdp
+    {
+        private final List< String > commands = new ArrayList<>();
+
+        @Override
+        public Map< String, Object > executeCdpCommand( String commandName, Map< String, Object > parameters )
+        {
+            commands.add( commandName + " " + parameters );
+            return Collections.emptyMap();
+        }
+    }
+
+    @Test
+    public void removesScriptsAddedToNewDocumentsByALease()
+    {
+        CdpDriver driver = new CdpDriver();
+
+        pool.acquire( "new-document", settings, () -> driver );
+        pool.addedScript( driver, "7" );
+        pool.release( driver );
+        assertTrue( driver.commands.toString(), driver.commands.contains( "Page.removeScriptToEvaluateOnNewDocument {identifier=7}" ) );
+
+        driver.commands.clear();
+        pool.acquire( "new-document", settings, FakeWebDriver::new );
+        pool.release( driver );
+        assertFalse( driver.commands.toString(), driver.commands.stream().anyMatch( c -> c.startsWith( "Page.removeScript" ) ) );
+    }
+
+    @Test
+    public void releasesWhatItMadeOnceItQuitsIt()
+    {
+        AtomicInteger released = new AtomicInteger();
+
+        FakeWebDriver once = new FakeWebDriver();
+        pool.acquire( "release-hook", new DriverPool.Settings( 1, 1, 60000 ), () -> once, () -> released::incrementAndGet );
+        pool.release( once );
+        assertEquals( 1, released.get() );
+
+        FakeWebDriver reused = new FakeWebDriver();
+        pool.acquire( "release-hook", settings, () -> reused, () -> released::incrementAndGet );
+        pool.release( reused );
+        assertEquals( 1, released.get() );
+
+        assertSame( reused, pool.acquire( "release-hook", settings, FakeWebDriver::new, () -> {
+            throw new AssertionError( "made again" );
+        } ) );
+        pool.release( reused );
+        pool.shutdown();
+        assertEquals( 2, released.get() );
+    }
+
+        @Test
+    public void findsTheOriginOfAUrl()
+    {
+        assertEquals( "http://one.test", DriverPool.origin( "http://one.test/page?q=1" ) );
+        assertEquals( "https://two.test:8443", DriverPool.origin( "https://two.test:8443/" ) );
+        assertNull( DriverPool.origin( "about:blank" ) );
+        assertNull( DriverPool.origin( "data:text/html,<p/>" ) );
+    }
+}
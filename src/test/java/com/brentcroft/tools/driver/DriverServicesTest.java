@@ -0,0 +1,165 @@
+package com.brentcroft.tools.driver;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Test;
+import org.openqa.selenium.remote.service.DriverService;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+public class DriverServicesTest
+{
+    private final DriverServices services = DriverServices.instance();
+
+    /**
+     * A driver service without a driver process: it's running from start() until stop().
+     */
+    static class FakeService extends DriverService
+    {
+        private final Runnable onStart;
+        private volatile boolean running;
+
+        FakeService( int port, Runnable onStart ) throws IOException
+        {
+            super( new File( "fake-driver" ), port, Duration.ofSeconds( 1 ), Collections.emptyList(), Collections.emptyMap() );
+            this.onStart = onStart;
+        }
+
+        FakeService() throws IOException
+        {
+            this( 4444, () -> {
+            } );
+        }
+
+        @Override
+        public void start()
+        {
+            onStart.run();
+            running = true;
+        }
+
+        @Override
+        public boolean isRunning()
+        {
+            return running;
+        }
+
+        @Override
+        public void stop()
+        {
+            running = false;
+        }
+    }
+
+    @After
+    public void shutdown()
+    {
+        services.shutdown();
+    }
+
+    @Test
+    public void startsEachServiceWithoutHoldingUpTheOthers() throws Exception
+    {
+        CountDownLatch starting = new CountDownLatch( 1 );
+        CountDownLatch started = new CountDownLatch( 1 );
+        FakeService slow = new FakeService( 4444, () -> {
+            starting.countDown();
+            try
+            {
+                started.await( 5, TimeUnit.SECONDS );
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+            }
+        } );
+        FakeService quick = new FakeService();
+        ExecutorService executor = Executors.newFixedThreadPool( 2 );
+        try
+        {
+            Future< DriverService > first = executor.submit( () -> services.acquire( "fake:slow", "slow-driver", () -> slow ) );
+            assertTrue( starting.await( 5, TimeUnit.SECONDS ) );
+            Future< DriverService > second = executor.submit( () -> services.acquire( "fake:slow", "slow-driver", () -> {
+                throw new AssertionError( "started twice" );
+            } ) );
+
+            assertSame( quick, services.acquire( "fake:quick", "quick-driver", () -> quick ) );
+            assertFalse( second.isDone() );
+
+            started.countDown();
+            assertSame( slow, first.get( 5, TimeUnit.SECONDS ) );
+            assertSame( slow, second.get( 5, TimeUnit.SECONDS ) );
+        }
+        finally
+        {
+            started.countDown();
+            executor.shutdownNow();
+        }
+        services.release( slow );
+        services.release( slow );
+        services.release( quick );
+    }
+
+    @Test
+    public void startsAgainAfterAFailedStart() throws IOException
+    {
+        FakeService failing = new FakeService( 4444, () -> {
+            throw new IllegalStateException( "no driver" );
+        } );
+        try
+        {
+            services.acquire( "fake:failing", "failing-driver", () -> failing );
+            fail( "Expected exception!" );
+        }
+        catch ( IllegalStateException e )
+        {
+            assertEquals( "no driver", e.getMessage() );
+        }
+
+        FakeService working = new FakeService();
+        assertSame( working, services.acquire( "fake:failing", "failing-driver", () -> working ) );
+        services.release( working );
+    }
+
+    @Test
+    public void deletesAHungSessionOfAServiceInUse() throws IOException
+    {
+        List< String > requests = new CopyOnWriteArrayList<>();
+        HttpServer server = HttpServer.create( new InetSocketAddress( "localhost", 0 ), 0 );
+        server.createContext( "/", exchange -> {
+            requests.add( exchange.getRequestMethod() + " " + exchange.getRequestURI() );
+            exchange.sendResponseHeaders( 200, - 1 );
+            exchange.close();
+        } );
+        server.start();
+        try
+        {
+            FakeService service = new FakeService( server.getAddress().getPort(), () -> {
+            } );
+            services.acquire( "fake:shared", "shared-driver", () -> service );
+            services.acquire( "fake:shared", "shared-driver", () -> service );
+
+            assertTrue( services.kill( service, "hung" ) );
+            assertEquals( Collections.singletonList( "DELETE /session/hung" ), requests );
+            assertTrue( service.isRunning() );
+
+            // without the session there's nothing else to do
+            assertFalse( services.kill( service, null ) );
+
+            services.release( service );
+            services.release( service );
+        }
+        finally
+        {
+            server.stop( 0 );
+        }
+    }
+}
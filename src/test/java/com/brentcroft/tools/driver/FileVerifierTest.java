@@ -0,0 +1,127 @@
+package com.brentcroft.tools.driver;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertEquals;
+
+public class FileVerifierTest
+{
+    private Path directory;
+
+    @Before
+    public void prepareDirectory() throws IOException
+    {
+        directory = Files.createDirectories( Paths.get( "target", "verified" ) );
+    }
+
+    @Test
+    public void checksumsKnownContent() throws IOException
+    {
+        Path file = Files.write( directory.resolve( "check.bin" ), "123456789".getBytes() );
+        FileVerifier verifier = new FileVerifier( file );
+
+        assertEquals( "cbf43926", verifier.crc32() );
+        assertEquals( "15e2b0d3c33891ebb0f1ef609ec419420c20e320ce94c65fbc8c3312448eb225", verifier.sha256() );
+    }
+
+    @Test
+    public void countsLinesAndRecords() throws IOException
+    {
+        Path file = Files.write(
+                directory.resolve( "records.csv" ),
+                "id,text\r\n1,\"two\nlines\"\r\n2,plain\r\n".getBytes() );
+
+        Map< String, Object > summary = new FileVerifier( file ).summary();
+
+        assertEquals( 4L, summary.get( "lines" ) );
+        assertEquals( 3L, summary.get( "records" ) );
+        assertEquals( 2L, new FileVerifier( file ).search( "^\\d," ).get( "count" ) );
+    }
+
+    private static String repeat( char c, int count )
+    {
+        char[] chars = new char[ count ];
+        Arrays.fill( chars, c );
+        return new String( chars );
+    }
+
+    @Test
+    public void countsAcrossBlockBoundaries() throws IOException
+    {
+        String header = "id,text\r\n";
+        String opening = "1,\"";
+        // the line end inside the quoted value is the first byte of the second block
+        String padding = repeat( 'x', FileVerifier.BLOCK_SIZE - header.length() - opening.length() );
+        // and the next line end is split between the second and third blocks
+        String tail = "more\"\r\n2,";
+        String filler = repeat( 'y', FileVerifier.BLOCK_SIZE - tail.length() - 2 );
+        Path file = Files.write(
+                directory.resolve( "blocks.csv" ),
+                ( header + opening + padding + "\n" + tail + filler + "\r\n3,last" ).getBytes( StandardCharsets.US_ASCII ) );
+
+        assertEquals( 2L * FileVerifier.BLOCK_SIZE + 7, Files.size( file ) );
+
+        FileVerifier verifier = new FileVerifier( file );
+        assertEquals( 5L, verifier.lines() );
+        assertEquals( 4L, verifier.records() );
+
+        Map< String, Object > found = verifier.search( "^\\d," );
+        assertEquals( 3L, found.get( "count" ) );
+        assertEquals( 2L, found.get( "truncated" ) );
+        assertEquals( 4L, verifier.search( "^2," ).get( "firstLine" ) );
+        assertEquals( 5L, verifier.search( "^3,last$" ).get( "firstLine" ) );
+    }
+
+    @Test
+    public void searchesLongLinesOnlyAsFarAsTheCap() throws IOException
+    {
+        Path file = Files.write(
+                directory.resolve( "long.txt" ),
+                ( "needle" + repeat( 'a', 3 * FileVerifier.BLOCK_SIZE ) + "hidden\nsecond" ).getBytes( StandardCharsets.US_ASCII ) );
+
+        FileVerifier verifier = new FileVerifier( file );
+        Map< String, Object > found = verifier.search( "needle" );
+
+        assertEquals( 1L, found.get( "count" ) );
+        assertEquals( 1L, found.get( "firstLine" ) );
+        assertEquals( 1L, found.get( "truncated" ) );
+        assertEquals( FileVerifier.MAX_LINE_CHARS, ( ( String ) found.get( "first" ) ).length() );
+        assertEquals( 0L, verifier.search( "hidden" ).get( "count" ) );
+        assertEquals( 2L, verifier.search( "^second$" ).get( "firstLine" ) );
+        assertEquals( 2L, verifier.lines() );
+    }
+
+    @Test
+    public void listsZipEntries() throws IOException
+    {
+        Path file = directory.resolve( "entries.zip" );
+        try ( OutputStream out = Files.newOutputStream( file ); ZipOutputStream zip = new ZipOutputStream( out ) )
+        {
+            zip.putNextEntry( new ZipEntry( "a.txt" ) );
+            zip.write( "hello".getBytes() );
+            zip.closeEntry();
+            zip.putNextEntry( new ZipEntry( "b.txt" ) );
+            zip.closeEntry();
+        }
+
+        Downloads downloads = new Downloads();
+        downloads.setDirectory( directory.toFile() );
+        Map< String, Object > summary = downloads.verify( "entries.zip" );
+
+        assertEquals( 2, summary.get( "entries" ) );
+        assertEquals( 5L, summary.get( "uncompressedSize" ) );
+        assertEquals( "a.txt", downloads.zipEntries( "entries.zip" ).get( 0 ).get( "name" ) );
+    }
+}
@@ -0,0 +1,69 @@
+package com.brentcroft.tools.driver;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class HistogramMetricsTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void recordsPerOperationAndPath()
+    {
+        HistogramMetrics metrics = new HistogramMetrics();
+        for ( int i = 1; i <= 100; i++ )
+        {
+            metrics.record( "click", "root.button", i * 1_000_000L );
+        }
+        metrics.record( "click", "root.link", 500_000_000L );
+
+        List< Map< String, Object > > rows = metrics.query( "click" );
+
+        assertEquals( 3, rows.size() );
+        assertEquals( "*", rows.get( 0 ).get( "path" ) );
+        assertEquals( 101L, rows.get( 0 ).get( "count" ) );
+        assertEquals( 500.0, rows.get( 0 ).get( "maxMillis" ) );
+
+        Map< String, Object > button = rows.get( 1 );
+        assertEquals( "root.button", button.get( "path" ) );
+        double p50 = ( Double ) button.get( "p50Millis" );
+        assertTrue( "p50: " + p50, p50 >= 50 && p50 <= 100 );
+        assertTrue( metrics.query( "getText" ).isEmpty() );
+    }
+
+    @Test
+    public void exportsJsonAndCsv() throws IOException
+    {
+        HistogramMetrics metrics = new HistogramMetrics();
+        metrics.time( "find", "root.\"quoted\"", () -> {
+        } );
+
+        Path directory = folder.getRoot().toPath();
+        metrics.export( directory, "metrics" );
+
+        List< String > csv = Files.readAllLines( directory.resolve( "metrics.csv" ), StandardCharsets.UTF_8 );
+        assertEquals( 3, csv.size() );
+        assertTrue( csv.get( 0 ).startsWith( "operation,path,count" ) );
+
+        String json = new String( Files.readAllBytes( directory.resolve( "metrics.json" ) ), StandardCharsets.UTF_8 );
+        assertTrue( json.contains( "\"path\": \"root.\\\"quoted\\\"\"" ) );
+    }
+
+    @Test
+    public void noneRecordsNothing()
+    {
+        assertEquals( "x", MetricsRegistry.NONE.time( "find", "root", () -> "x" ) );
+        assertTrue( MetricsRegistry.NONE.rows().isEmpty() );
+    }
+}
@@ -0,0 +1,46 @@
+package com.brentcroft.tools.driver;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class LruCacheTest
+{
+    @Test
+    public void computesOncePerKey()
+    {
+        LruCache< String, Integer > cache = new LruCache<>( 4 );
+        AtomicInteger computed = new AtomicInteger();
+
+        assertEquals( Integer.valueOf( 1 ), cache.get( "a", computed::incrementAndGet ) );
+        assertEquals( Integer.valueOf( 1 ), cache.get( "a", computed::incrementAndGet ) );
+
+        assertEquals( 1, computed.get() );
+        assertEquals( 1L, cache.getStats().get( "hits" ) );
+        assertEquals( 1L, cache.getStats().get( "misses" ) );
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed()
+    {
+        LruCache< String, String > cache = new LruCache<>( 2 );
+
+        cache.get( "a", () -> "A" );
+        cache.get( "b", () -> "B" );
+        cache.get( "a", () -> "A" );
+        cache.get( "c", () -> "C" );
+
+        assertEquals( 2, cache.size() );
+        assertEquals( 1L, cache.getStats().get( "evictions" ) );
+        assertEquals( "A", cache.get( "a", () -> "A2" ) );
+        assertEquals( "B2", cache.get( "b", () -> "B2" ) );
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void rejectsEmptyCache()
+    {
+        new LruCache<>( 0 );
+    }
+}
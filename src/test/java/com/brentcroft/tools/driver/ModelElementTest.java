@@ -0,0 +1,117 @@
+package com.brentcroft.tools.driver;
+
+import com.brentcroft.tools.driver.fake.FakeWebDriver;
+import org.junit.Before;
+import org.junit.Test;
+import org.openqa.selenium.By;
+
+import static org.junit.Assert.*;
+
+public class ModelElementTest
+{
+    private static final String PAGE = String.join( "\n",
+            "<p id='top'>Top</p>",
+            "<input id='agree' type='checkbox'>",
+            "<ul><li class='item'>One</li><li class='item'>Two</li></ul>",
+            "<my-widget id='widget'><template shadowrootmode='open'><input class='inner' type='checkbox'><span class='label'>Inside</span></template></my-widget>",
+            "<iframe id='frame' srcdoc=\"<input id='framed' type='checkbox'><p id='note'>In a frame</p>\"></iframe>" );
+
+    private final FakeWebDriver driver = new FakeWebDriver().register( "http://fake/page", PAGE );
+    private final Browser browser = new Browser();
+    private final PageModel site = browser.getPageModel();
+
+    @Before
+    public void openFakePage()
+    {
+        driver.get( "http://fake/page" );
+        browser.setWebDriver( driver );
+        browser.setImplicitWait( 0 );
+        site.appendFromJson( String.join( "\n",
+                "{",
+                "  'top': { '$id': 'top' },",
+                "  'agree': { '$id': 'agree', '$settle': 'ready', '$retry': 'attempts=3, delay=0' },",
+                "  'items': { '$cssSelector': 'li.item' },",
+                "  'missing': { '$id': 'missing' },",
+                "  'widget': {",
+                "    '$id': 'widget', '$shadow': true,",
+                "    'inner': { '$cssSelector': 'input.inner', '$settle': 'ready' },",
+                "    'label': { '$cssSelector': 'span.label' }",
+                "  },",
+                "  'frame': {",
+                "    '$frame': \"//iframe[@id='frame']\",",
+                "    'framed': { '$id': 'framed', '$settle': 'ready' },",
+                "    'note': { '$id': 'note' }",
+                "  }",
+                "}" ) );
+    }
+
+    private ModelItem item( String path )
+    {
+        ModelItem item = site;
+        for ( String key : path.split( "\\." ) )
+        {
+            item = ( ModelItem ) item.get( key );
+        }
+        return item;
+    }
+
+    @Test
+    public void actsInFramesAndComesBackOut()
+    {
+        item( "frame.framed" ).click();
+
+        assertTrue( item( "frame.framed" ).isSelected() );
+        assertEquals( "Top", item( "top" ).getText() );
+        assertEquals( "In a frame", item( "frame.note" ).getText() );
+    }
+
+    @Test
+    public void actsInShadowRoots()
+    {
+        item( "widget.inner" ).click();
+
+        assertTrue( item( "widget.inner" ).isSelected() );
+        assertEquals( "Inside", item( "widget.label" ).getText() );
+    }
+
+    @Test
+    public void probesEverywhereWithoutWaiting()
+    {
+        assertTrue( item( "top" ).exists() );
+        assertTrue( item( "frame.note" ).exists() );
+        assertTrue( item( "widget.label" ).exists() );
+        assertEquals( 2, item( "items" ).count() );
+
+        long started = System.currentTimeMillis();
+        assertTrue( item( "missing" ).notExists() );
+        assertFalse( item( "missing" ).existsWithin( 100 ) );
+        assertTrue( System.currentTimeMillis() - started < 2000 );
+    }
+
+    @Test
+    public void retriesStaleElements()
+    {
+        driver.rerenderAfter( 1 );
+        item( "agree" ).click();
+
+        assertTrue( driver.findElement( By.id( "agree" ) ).isSelected() );
+    }
+
+    @Test
+    public void givesUpOnStaleElementsAfterItsAttempts()
+    {
+        item( "agree" ).put( "$retry", "attempts=1" );
+        driver.rerenderAfter( 1 );
+        try
+        {
+            item( "agree" ).click();
+            fail( "expected VolatileElementException" );
+        }
+        catch ( VolatileElementException e )
+        {
+            assertEquals( 1, e.getVolatileRetries() );
+            assertTrue( e.getMessage(), e.getMessage().startsWith( "Stale element [" ) );
+        }
+        assertFalse( driver.findElement( By.id( "agree" ) ).isSelected() );
+    }
+}
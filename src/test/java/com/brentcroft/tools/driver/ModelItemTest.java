@@ -0,0 +1,182 @@
+package com.brentcroft.tools.driver;
+
+import com.brentcroft.tools.driver.fake.FakeWebDriver;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openqa.selenium.SearchContext;
+import org.openqa.selenium.WebDriver;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class ModelItemTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final PageModel pageModel = new PageModel(
+            "{ 'panel': { '$frame': '//iframe', 'button': { '$id': 'go' } }, 'other': { '$id': 'other' } }" );
+
+    @Test
+    public void keepsResolvedPathWhenUnrelatedItemsChange()
+    {
+        ModelItem button = ( ModelItem ) ( ( ModelItem ) pageModel.get( "panel" ) ).get( "button" );
+        ModelItem other = ( ModelItem ) pageModel.get( "other" );
+        IPath ipath = button.getIPath();
+
+        other.put( "$id", "changed" );
+        other.put( "child", Collections.singletonMap( "$id", "child" ) );
+
+        assertSame( ipath, button.getIPath() );
+    }
+
+    @Test
+    public void resolvesAgainWhenAnAncestorChanges()
+    {
+        ModelItem panel = ( ModelItem ) pageModel.get( "panel" );
+        ModelItem button = ( ModelItem ) panel.get( "button" );
+        IPath ipath = button.getIPath();
+
+        panel.put( "$frame", "//iframe[@id='other']" );
+
+        assertNotSame( ipath, button.getIPath() );
+        assertEquals( "//iframe[@id='other']", button.getIPath().innerFrame() );
+    }
+
+    private static WebDriver widgetDriver()
+    {
+        FakeWebDriver driver = new FakeWebDriver().register(
+                "http://fake/widget",
+                "<my-widget id='widget'><template shadowrootmode='open'><button class='inner'>Inside</button></template></my-widget>" );
+        driver.get( "http://fake/widget" );
+        return driver;
+    }
+
+    @Test
+    public void resolvesShadowRootsAgainForANewDriver()
+    {
+        Browser browser = new Browser();
+        PageModel site = browser.getPageModel();
+        site.appendFromJson( "{ 'widget': { '$id': 'widget', '$shadow': true, 'inner': { '$cssSelector': 'button.inner' } } }" );
+        ModelItem widget = ( ModelItem ) site.get( "widget" );
+        ModelItem inner = ( ModelItem ) widget.get( "inner" );
+
+        browser.setWebDriver( widgetDriver() );
+        assertEquals( "Inside", inner.getText() );
+        SearchContext first = widget.getShadowRoot( browser.getWebDriver() );
+        assertSame( first, widget.getShadowRoot( browser.getWebDriver() ) );
+
+        // a pooled or replaced driver, on the same epoch
+        browser.setWebDriver( widgetDriver() );
+        SearchContext second = widget.getShadowRoot( browser.getWebDriver() );
+        assertNotSame( first, second );
+
+        browser.quitDriver();
+        browser.setWebDriver( widgetDriver() );
+        assertNotSame( second, widget.getShadowRoot( browser.getWebDriver() ) );
+        assertEquals( "Inside", inner.getText() );
+    }
+
+    @Test
+    public void keepsShadowRootsInFramesAcrossFrameSwitches()
+    {
+        FakeWebDriver driver = new FakeWebDriver().register(
+                "http://fake/framed",
+                "<p id='top'>Top</p><iframe srcdoc=\"<my-widget id='widget'><template shadowrootmode='open'><button class='inner'>Inside</button></template></my-widget>\"></iframe>" );
+        driver.get( "http://fake/framed" );
+
+        Browser browser = new Browser();
+        PageModel site = browser.getPageModel();
+        site.appendFromJson( "{ 'top': { '$id': 'top' }, 'frame': { '$frame': '//iframe', 'widget': { '$id': 'widget', '$shadow': true, 'inner': { '$cssSelector': 'button.inner' } } } }" );
+        ModelItem top = ( ModelItem ) site.get( "top" );
+        ModelItem widget = ( ModelItem ) ( ( ModelItem ) site.get( "frame" ) ).get( "widget" );
+        ModelItem inner = ( ModelItem ) widget.get( "inner" );
+        browser.setWebDriver( driver );
+
+        assertEquals( "Inside", inner.getText() );
+        SearchContext root = widget.getShadowRoot( driver );
+
+        assertEquals( "Top", top.getText() );
+        assertEquals( "Inside", inner.getText() );
+        assertSame( root, widget.getShadowRoot( driver ) );
+    }
+
+    @Test
+    public void reusesCompiledStepsAcrossEvaluations()
+    {
+        String steps = "$self.compiledOnce = " + System.nanoTime();
+
+        pageModel.steps( steps );
+        long hits = ( Long ) ModelItem.getCompiledSteps().getStats().get( "hits" );
+        pageModel.steps( steps );
+
+        assertEquals( hits + 1, ( long ) ( Long ) ModelItem.getCompiledSteps().getStats().get( "hits" ) );
+    }
+
+    private static void write( Path file, String content ) throws IOException
+    {
+        Files.createDirectories( file.getParent() );
+        Files.write( file, content.getBytes( StandardCharsets.UTF_8 ) );
+    }
+
+    private ModelItem lazyPanel() throws IOException
+    {
+        Path root = folder.getRoot().toPath();
+        write( root.resolve( "site.json" ), "{ 'section': { '$json': 'sub/section.json' } }" );
+        write( root.resolve( "sub/section.json" ), "{ 'panel': { '$lazy': 'panel.json', '$id': 'panel', '$shadow': true } }" );
+        write( root.resolve( "sub/panel.json" ), "{ 'button': { '$id': 'button' } }" );
+        write( root.resolve( "panel.json" ), "{ 'button': { '$id': 'decoy' } }" );
+
+        PageModel site = new PageModel();
+        site.setCurrentDirectory( root );
+        site.loadFromFile( "site.json" );
+        return ( ModelItem ) ( ( ModelItem ) site.get( "section" ) ).get( "panel" );
+    }
+
+    @Test
+    public void keepsLazyItemsPendingForLocatorsAndSettings() throws IOException
+    {
+        ModelItem panel = lazyPanel();
+
+        assertEquals( "panel", panel.getIPath().id() );
+        assertTrue( panel.hasShadowRoot() );
+        assertNull( panel.get( "$xpath" ) );
+        assertTrue( panel.isLazyPending() );
+    }
+
+    @Test
+    public void loadsLazyFilesFromTheDirectoryThatDeclaredThem() throws IOException
+    {
+        ModelItem panel = lazyPanel();
+        ModelItem button = ( ModelItem ) panel.get( "button" );
+
+        assertFalse( panel.isLazyPending() );
+        assertEquals( "button", button.get( "$id" ) );
+    }
+
+    @Test
+    public void otherThreadsWaitForALazyLoad() throws Exception
+    {
+        ModelItem panel = lazyPanel();
+        Object[] seen = new Object[ 1 ];
+        Thread other = new Thread( () -> seen[ 0 ] = panel.get( "button" ) );
+
+        synchronized ( panel )
+        {
+            other.start();
+            other.join( 200 );
+            // blocked on the load lock, not answered from a half loaded item
+            assertTrue( other.isAlive() );
+        }
+        other.join();
+
+        assertNotNull( seen[ 0 ] );
+        assertFalse( panel.isLazyPending() );
+    }
+}
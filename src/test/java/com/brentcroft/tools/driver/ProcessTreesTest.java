@@ -0,0 +1,60 @@
+package com.brentcroft.tools.driver;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ProcessTreesTest
+{
+    @Test
+    public void matchesWholeArgumentsOnly()
+    {
+        String driver = "/opt/drivers/chromedriver --port=44441 --verbose";
+
+        assertFalse( ProcessTrees.matches( driver, "chromedriver", "--port=4444" ) );
+        assertTrue( ProcessTrees.matches( driver, "chromedriver", "--port=44441" ) );
+        assertFalse( ProcessTrees.matches( driver, "msedgedriver", "--port=44441" ) );
+        assertFalse( ProcessTrees.matches( driver, "driver", "--port=44441" ) );
+    }
+
+    @Test
+    public void matchesUserDataDirectoriesByPath()
+    {
+        String browser = "/opt/google/chrome/chrome --user-data-dir=/tmp/profile-123 --no-first-run";
+
+        assertFalse( ProcessTrees.matches( browser, null, "--user-data-dir=/tmp/profile-12" ) );
+        assertTrue( ProcessTrees.matches( browser, null, "--user-data-dir=/tmp/profile-123" ) );
+        assertTrue( ProcessTrees.matches( browser, null, "--user-data-dir=/tmp/./profile-123/" ) );
+        assertFalse( ProcessTrees.matches( browser, null, "--user-data-dir=/tmp" ) );
+    }
+
+    @Test
+    public void splitsQuotedArguments()
+    {
+        String browser = "\"C:\\Program Files\\chrome.exe\" \"--user-data-dir=C:\\my profiles\\one\"  --headless";
+
+        assertEquals(
+                Arrays.asList( "C:\\Program Files\\chrome.exe", "--user-data-dir=C:\\my profiles\\one", "--headless" ),
+                ProcessTrees.arguments( browser ) );
+        assertTrue( ProcessTrees.matches( browser, null, "--user-data-dir=C:\\my profiles\\one", "--headless" ) );
+        assertFalse( ProcessTrees.matches( browser, null, "--user-data-dir=C:\\my", "--headless" ) );
+    }
+
+    @Test
+    public void picksOnlyDescendants()
+    {
+        Map< String, String > parents = new HashMap<>();
+        parents.put( "20", "10" );
+        parents.put( "30", "20" );
+        parents.put( "40", "1" );
+        parents.put( "1", "0" );
+
+        assertTrue( ProcessTrees.descends( "30", "10", parents ) );
+        assertFalse( ProcessTrees.descends( "40", "10", parents ) );
+        assertFalse( ProcessTrees.descends( "10", "10", parents ) );
+    }
+}
@@ -0,0 +1,194 @@
+package com.brentcroft.tools.driver;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ProfileTemplatesTest
+{
+    private final Path template = Paths.get( "target", "profile-template" ).toAbsolutePath();
+
+    @Before
+    public void removeTemplate() throws IOException
+    {
+        if ( Files.exists( template ) )
+        {
+            try ( Stream< Path > files = Files.walk( template ) )
+            {
+                files.sorted( Comparator.reverseOrder() ).forEach( file -> file.toFile().delete() );
+            }
+        }
+    }
+
+    private static void write( Path file, String text )
+    {
+        try
+        {
+            Files.createDirectories( file.getParent() );
+            Files.write( file, text.getBytes( StandardCharsets.UTF_8 ) );
+        }
+        catch ( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+    }
+
+    private static boolean isEmpty( Path directory ) throws IOException
+    {
+        try ( Stream< Path > files = Files.list( directory ) )
+        {
+            return ! files.findAny().isPresent();
+        }
+    }
+
+    @Test
+    public void buildsTheTemplateOnceThenCopiesIt() throws IOException
+    {
+        ProfileTemplates templates = new ProfileTemplates();
+        AtomicInteger warmUps = new AtomicInteger();
+        Consumer< Path > warmUp = built -> {
+            warmUps.incrementAndGet();
+            write( built.resolve( "Default/Preferences" ), "{}" );
+            write( built.resolve( "SingletonCookie" ), "1" );
+        };
+
+        Path copy = templates.newProfile( template, warmUp );
+        assertTrue( Files.exists( template.resolve( ProfileTemplates.READY ) ) );
+        assertNotEquals( template, copy );
+        assertEquals( "{}", new String( Files.readAllBytes( copy.resolve( "Default/Preferences" ) ), StandardCharsets.UTF_8 ) );
+        assertFalse( Files.exists( copy.resolve( "SingletonCookie" ) ) );
+        assertFalse( Files.exists( copy.resolve( ProfileTemplates.READY ) ) );
+
+        Path another = templates.newProfile( template, warmUp );
+        assertNotEquals( copy, another );
+        assertEquals( 1, warmUps.get() );
+
+        templates.release( copy );
+        templates.release( another );
+        assertFalse( Files.exists( copy ) );
+        assertFalse( Files.exists( another ) );
+        assertTrue( Files.exists( template.resolve( "Default/Preferences" ) ) );
+    }
+
+    @Test
+    public void givesAnEmptyProfileWhileTheTemplateIsBuilt() throws Exception
+    {
+        ProfileTemplates templates = new ProfileTemplates();
+        CountDownLatch building = new CountDownLatch( 1 );
+        CountDownLatch built = new CountDownLatch( 1 );
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try
+        {
+            Future< Path > first = executor.submit( () -> templates.newProfile( template, dir -> {
+                write( dir.resolve( "Default/Preferences" ), "{}" );
+                building.countDown();
+                try
+                {
+                    built.await( 5, TimeUnit.SECONDS );
+                }
+                catch ( InterruptedException e )
+                {
+                    Thread.currentThread().interrupt();
+                }
+            } ) );
+            assertTrue( building.await( 5, TimeUnit.SECONDS ) );
+
+            Path empty = templates.newProfile( template, dir -> fail( "built twice" ) );
+            assertTrue( isEmpty( empty ) );
+            templates.release( empty );
+            assertFalse( Files.exists( empty ) );
+
+            built.countDown();
+            Path copy = first.get( 5, TimeUnit.SECONDS );
+            assertTrue( Files.exists( copy.resolve( "Default/Preferences" ) ) );
+            templates.release( copy );
+        }
+        finally
+        {
+            built.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void buildsAgainAfterAFailedWarmUp() throws IOException
+    {
+        ProfileTemplates templates = new ProfileTemplates();
+        try
+        {
+            templates.newProfile( template, dir -> {
+                write( dir.resolve( "Default/Preferences" ), "{ 'half': 'built' }" );
+                throw new IllegalStateException( "no browser" );
+            } );
+            fail( "Expected exception!" );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            assertEquals( "no browser", e.getCause().getMessage() );
+        }
+        assertFalse( Files.exists( template.resolve( ProfileTemplates.READY ) ) );
+
+        Path copy = templates.newProfile( template, dir -> write( dir.resolve( "Default/Preferences" ), "{}" ) );
+        assertTrue( Files.exists( template.resolve( ProfileTemplates.READY ) ) );
+        assertEquals( "{}", new String( Files.readAllBytes( copy.resolve( "Default/Preferences" ) ), StandardCharsets.UTF_8 ) );
+        templates.release( copy );
+    }
+
+    @Test
+    public void abandonsACopyWhoseSessionNeverStarted() throws IOException
+    {
+        ProfileTemplates templates = new ProfileTemplates();
+        Path copy = templates.newProfile( template, dir -> write( dir.resolve( "Default/Preferences" ), "{}" ) );
+
+        templates.abandon( copy );
+        assertFalse( Files.exists( copy ) );
+        assertTrue( Files.exists( template.resolve( ProfileTemplates.READY ) ) );
+
+        // a template that isn't being built is left alone
+        templates.abandon( template );
+        assertTrue( Files.exists( template.resolve( ProfileTemplates.READY ) ) );
+    }
+
+    @Test
+    public void copiesNoCookiesNorWebStorage() throws IOException
+    {
+        // e.g. a template built by a real session
+        write( template.resolve( ProfileTemplates.READY ), "" );
+        write( template.resolve( "Default/Preferences" ), "{}" );
+        write( template.resolve( "Default/Cookies" ), "session=1" );
+        write( template.resolve( "Default/Cookies-journal" ), "" );
+        write( template.resolve( "Default/Network/Cookies" ), "session=1" );
+        write( template.resolve( "Default/Local Storage/leveldb/000003.log" ), "user" );
+        write( template.resolve( "Default/Session Storage/000003.log" ), "user" );
+        write( template.resolve( "Default/IndexedDB/https_site_0.indexeddb.leveldb/000003.log" ), "user" );
+
+        ProfileTemplates templates = new ProfileTemplates();
+        Path copy = templates.newProfile( template, dir -> fail( "already built" ) );
+
+        assertTrue( Files.exists( copy.resolve( "Default/Preferences" ) ) );
+        assertTrue( Files.isDirectory( copy.resolve( "Default/Network" ) ) );
+        for ( String removed : new String[]{ "Default/Cookies", "Default/Cookies-journal", "Default/Network/Cookies",
+                "Default/Local Storage", "Default/Session Storage", "Default/IndexedDB" } )
+        {
+            assertFalse( removed, Files.exists( copy.resolve( removed ) ) );
+        }
+        templates.release( copy );
+    }
+}
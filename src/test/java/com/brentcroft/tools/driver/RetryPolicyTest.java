@@ -0,0 +1,78 @@
+package com.brentcroft.tools.driver;
+
+import org.junit.Test;
+import org.openqa.selenium.ElementClickInterceptedException;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.StaleElementReferenceException;
+
+import static org.junit.Assert.*;
+
+public class RetryPolicyTest
+{
+    @Test
+    public void defaultRetriesStaleElementsOnly()
+    {
+        RetryPolicy policy = RetryPolicy.DEFAULT;
+
+        assertEquals( ModelElement.VOLATILE_RETRIES, policy.getMaxAttempts() );
+        assertTrue( policy.isRetryable( new StaleElementReferenceException( "stale" ) ) );
+        assertFalse( policy.isRetryable( new ElementClickInterceptedException( "intercepted" ) ) );
+        assertFalse( policy.isRetryable( new NoSuchElementException( "missing" ) ) );
+        assertTrue( policy.delayBefore( 1 ) < 0 );
+    }
+
+    @Test
+    public void parsesPolicy()
+    {
+        RetryPolicy policy = RetryPolicy.parse( "attempts=8, delay=50, multiplier=2, maxDelay=300, budget=1000, on=stale|intercepted" );
+
+        assertEquals( 8, policy.getMaxAttempts() );
+        assertTrue( policy.isRetryable( new ElementClickInterceptedException( "intercepted" ) ) );
+
+        assertEquals( 50, policy.delayBefore( 1 ) );
+        assertEquals( 100, policy.delayBefore( 2 ) );
+        assertEquals( 200, policy.delayBefore( 3 ) );
+        assertEquals( 300, policy.delayBefore( 4 ) );
+
+        assertFalse( policy.isExhausted( 1, 0, 50 ) );
+        assertTrue( policy.isExhausted( 8, 0, 50 ) );
+        assertTrue( policy.isExhausted( 2, 990, 50 ) );
+
+        assertSame( policy, RetryPolicy.parse( "attempts=8, delay=50, multiplier=2, maxDelay=300, budget=1000, on=stale|intercepted" ) );
+    }
+
+    @Test
+    public void appliesJitterWithinBounds()
+    {
+        RetryPolicy policy = RetryPolicy.parse( "delay=100, jitter=0.5" );
+
+        for ( int i = 0; i < 100; i++ )
+        {
+            long delay = policy.delayBefore( 1 );
+            assertTrue( "delay: " + delay, delay >= 50 && delay <= 150 );
+        }
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void rejectsUnknownRetryable()
+    {
+        RetryPolicy.parse( "on=stale|sometimes" );
+    }
+
+    @Test
+    public void reportsWhatTheElementGaveUpOn()
+    {
+        ModelItem button = ( ModelItem ) new PageModel( "{ 'button': { '$id': 'go' } }" ).get( "button" );
+
+        String stale = new VolatileElementException( button, 3, new StaleElementReferenceException( "gone" ) ).getMessage();
+        assertTrue( stale, stale.startsWith( "Stale element [" ) );
+        assertTrue( stale, stale.endsWith( "after 3 retries: gone" ) );
+
+        String intercepted = new VolatileElementException( button, 2, new ElementClickInterceptedException( "covered by <div class='overlay'>" ) ).getMessage();
+        assertTrue( intercepted, intercepted.startsWith( "Click intercepted on element [" ) );
+        assertTrue( intercepted, intercepted.endsWith( "after 2 retries: covered by <div class='overlay'>" ) );
+
+        String interrupted = new VolatileElementException( button, 1, new InterruptedException() ).getMessage();
+        assertTrue( interrupted, interrupted.startsWith( "Interrupted retrying element [" ) );
+    }
+}
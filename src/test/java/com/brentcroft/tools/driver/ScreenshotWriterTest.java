@@ -0,0 +1,76 @@
+package com.brentcroft.tools.driver;
+
+import org.junit.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.Assert.*;
+
+public class ScreenshotWriterTest
+{
+    private static byte[] png( int width, int height ) throws IOException
+    {
+        BufferedImage image = new BufferedImage( width, height, BufferedImage.TYPE_INT_ARGB );
+        for ( int x = 0; x < width; x++ )
+        {
+            for ( int y = 0; y < height; y++ )
+            {
+                image.setRGB( x, y, 0xFF000000 | ( x * y ) );
+            }
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ImageIO.write( image, "png", bytes );
+        return bytes.toByteArray();
+    }
+
+    @Test
+    public void writesScaledJpegsInBackground() throws IOException
+    {
+        ScreenshotWriter writer = new ScreenshotWriter( 2 );
+        writer.setDirectory( Paths.get( "target", "screenshot-writer" ).toString() );
+        writer.setScale( 0.5 );
+
+        byte[] png = png( 200, 100 );
+        Path[] targets = new Path[ 5 ];
+        for ( int i = 0; i < targets.length; i++ )
+        {
+            targets[ i ] = writer.submit( "step " + i, png );
+        }
+        writer.close();
+
+        for ( Path target : targets )
+        {
+            assertTrue( target.toString().endsWith( ".jpg" ) );
+            byte[] written = Files.readAllBytes( target );
+            assertEquals( ( byte ) 0xFF, written[ 0 ] );
+            assertEquals( ( byte ) 0xD8, written[ 1 ] );
+            assertEquals( 100, ImageIO.read( target.toFile() ).getWidth() );
+        }
+    }
+
+    @Test
+    public void writesPngUnchanged() throws IOException
+    {
+        ScreenshotWriter writer = new ScreenshotWriter();
+        writer.setDirectory( Paths.get( "target", "screenshot-writer" ).toString() );
+        writer.setFormat( "png" );
+
+        byte[] png = png( 20, 10 );
+        Path target = writer.submit( "raw", png );
+        writer.flush();
+
+        assertArrayEquals( png, Files.readAllBytes( target ) );
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void rejectsUnknownFormats()
+    {
+        new ScreenshotWriter().setFormat( "nope" );
+    }
+}
@@ -0,0 +1,111 @@
+package com.brentcroft.tools.driver;
+
+import com.brentcroft.tools.driver.fake.FakeWebDriver;
+import org.junit.Before;
+import org.junit.Test;
+import org.openqa.selenium.By;
+import org.openqa.selenium.ScriptTimeoutException;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriverException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SettleTest
+{
+    private final List< Boolean > checkedWhenTracked = new ArrayList<>();
+    private Object settled = true;
+
+    private final FakeWebDriver driver = new FakeWebDriver()
+    {
+        @Override
+        public Object executeScript( String script, Object... args )
+        {
+            if ( ScriptId.TRACK_NETWORK.equals( ScriptId.of( script ) ) )
+            {
+                checkedWhenTracked.add( findElement( By.id( "box" ) ).isSelected() );
+            }
+            return super.executeScript( script, args );
+        }
+
+        @Override
+        public Object executeAsyncScript( String script, Object... args )
+        {
+            if ( settled instanceof WebDriverException )
+            {
+                throw ( WebDriverException ) settled;
+            }
+            return settled;
+        }
+    }.register( "http://fake/form", "<input type='checkbox' id='box'>" );
+
+    private final Browser browser = new Browser();
+    private final PageModel site = browser.getPageModel();
+
+    @Before
+    public void openFakePage()
+    {
+        driver.get( "http://fake/form" );
+        browser.setWebDriver( driver );
+    }
+
+    private ModelItem box( String settle )
+    {
+        site.appendFromJson( "{ 'box': { '$id': 'box', '$settle': '" + settle + "' } }" );
+        return ( ModelItem ) site.get( "box" );
+    }
+
+    @Test
+    public void parsesStrict()
+    {
+        assertTrue( Settle.parse( "ready, strict" ).isStrict() );
+        assertFalse( Settle.parse( "ready" ).isStrict() );
+    }
+
+    @Test
+    public void tracksNetworkFromBeforeTheAction()
+    {
+        box( "network" ).click();
+
+        assertEquals( 1, checkedWhenTracked.size() );
+        assertFalse( checkedWhenTracked.get( 0 ) );
+        assertTrue( driver.findElement( By.id( "box" ) ).isSelected() );
+    }
+
+    @Test
+    public void carriesOnWhenNotSettled()
+    {
+        settled = false;
+        box( "network" ).click();
+
+        settled = new ScriptTimeoutException( "timeout" );
+        box( "network" ).click();
+
+        assertFalse( driver.findElement( By.id( "box" ) ).isSelected() );
+    }
+
+    @Test( expected = TimeoutException.class )
+    public void failsWhenStrictAndNotSettled()
+    {
+        settled = false;
+        box( "network, strict" ).click();
+    }
+
+    @Test( expected = TimeoutException.class )
+    public void failsWhenStrictAndTheScriptTimesOut()
+    {
+        settled = new ScriptTimeoutException( "timeout" );
+        box( "ready, strict" ).click();
+    }
+
+    @Test
+    public void carriesOnWhenTheActionUnloadsThePage()
+    {
+        settled = new WebDriverException( "document unloaded while waiting for result" );
+        box( "ready, strict" ).click();
+
+        assertTrue( driver.findElement( By.id( "box" ) ).isSelected() );
+    }
+}
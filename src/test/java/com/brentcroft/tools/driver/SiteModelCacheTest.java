@@ -0,0 +1,155 @@
+package com.brentcroft.tools.driver;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class SiteModelCacheTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Before
+    public void clearCache()
+    {
+        SiteModelCache.instance().clear();
+    }
+
+    private PageModel load( Path directory, String siteFile )
+    {
+        PageModel pageModel = new PageModel();
+        pageModel.put( "$siteCache", "true" );
+        pageModel.setCurrentDirectory( directory );
+        return pageModel.loadFromFile( siteFile );
+    }
+
+    private static void write( Path file, String content ) throws IOException
+    {
+        Files.write( file, content.getBytes( StandardCharsets.UTF_8 ) );
+    }
+
+    @Test
+    public void isOffUnlessAskedFor()
+    {
+        PageModel pageModel = new PageModel();
+        pageModel.setCurrentDirectory( Paths.get( "src/test/resources/sites" ) );
+        pageModel.loadFromFile( "brentcroft-games.json" );
+
+        assertFalse( pageModel.isSiteCache() );
+        assertEquals( 0, SiteModelCache.instance().size() );
+    }
+
+    @Test
+    public void copiesCachedModel()
+    {
+        Path sites = Paths.get( "src/test/resources/sites" );
+        PageModel first = load( sites, "brentcroft-games.json" );
+        PageModel second = load( sites, "brentcroft-games.json" );
+
+        assertEquals( 1, SiteModelCache.instance().size() );
+
+        ModelItem firstButton = ( ModelItem ) first.get( "newGameButton" );
+        ModelItem secondButton = ( ModelItem ) second.get( "newGameButton" );
+
+        assertNotSame( firstButton, secondButton );
+        assertSame( second, secondButton.getParent() );
+        assertEquals( firstButton.get( "$xpath" ), secondButton.get( "$xpath" ) );
+        assertEquals( first.get( "$driverModel" ), second.get( "$driverModel" ) );
+    }
+
+    @Test
+    public void reloadsChangedFile() throws IOException
+    {
+        Path site = folder.getRoot().toPath().resolve( "site.json" );
+        Files.write( site, "{ 'button': { '$id': 'one' } }".getBytes( StandardCharsets.UTF_8 ) );
+
+        PageModel first = load( folder.getRoot().toPath(), "site.json" );
+        assertEquals( "one", ( ( Map< ?, ? > ) first.get( "button" ) ).get( "$id" ) );
+
+        Files.write( site, "{ 'button': { '$id': 'three' } }".getBytes( StandardCharsets.UTF_8 ) );
+
+        PageModel second = load( folder.getRoot().toPath(), "site.json" );
+        assertEquals( "three", ( ( Map< ?, ? > ) second.get( "button" ) ).get( "$id" ) );
+    }
+
+    @Test
+    public void reloadsChangedInclude() throws IOException
+    {
+        Path root = folder.getRoot().toPath();
+        write( root.resolve( "site.json" ), "{ 'section': { '$json': 'section.json' } }" );
+        write( root.resolve( "section.json" ), "{ 'button': { '$id': 'one' } }" );
+
+        PageModel first = load( root, "site.json" );
+        assertEquals( "one", ( ( Map< ?, ? > ) ( ( Map< ?, ? > ) first.get( "section" ) ).get( "button" ) ).get( "$id" ) );
+
+        write( root.resolve( "section.json" ), "{ 'button': { '$id': 'three' } }" );
+
+        PageModel second = load( root, "site.json" );
+        assertEquals( "three", ( ( Map< ?, ? > ) ( ( Map< ?, ? > ) second.get( "section" ) ).get( "button" ) ).get( "$id" ) );
+    }
+
+    @Test
+    @SuppressWarnings( "unchecked" )
+    public void copiesContainerValues() throws IOException
+    {
+        Path root = folder.getRoot().toPath();
+        write( root.resolve( "site.json" ), "{ 'grid': [ [ 'a' ], [ 'b' ] ] }" );
+
+        PageModel first = load( root, "site.json" );
+        ( ( List< Object > ) ( ( List< ? > ) first.get( "grid" ) ).get( 0 ) ).add( "changed" );
+
+        PageModel second = load( root, "site.json" );
+        assertEquals( 1, SiteModelCache.instance().size() );
+        assertEquals( Collections.singletonList( "a" ), ( ( List< ? > ) second.get( "grid" ) ).get( 0 ) );
+    }
+
+    @Test
+    public void buildsAgainForOtherSettings() throws IOException
+    {
+        Path root = folder.getRoot().toPath();
+        write( root.resolve( "site.json" ), "{ 'button': { '$id': 'one' } }" );
+
+        load( root, "site.json" );
+        PageModel other = new PageModel();
+        other.put( "$siteCache", "true" );
+        other.put( "$delay", "2" );
+        other.setCurrentDirectory( root );
+        other.loadFromFile( "site.json" );
+
+        assertEquals( "2", other.get( "$delay" ) );
+        assertEquals( "one", ( ( Map< ?, ? > ) other.get( "button" ) ).get( "$id" ) );
+    }
+
+    @Test
+    public void keepsLazySectionsPending() throws IOException
+    {
+        Path root = folder.getRoot().toPath();
+        Files.write( root.resolve( "site.json" ), "{ 'section': { '$lazy': 'section.json', '$id': 'section' } }".getBytes( StandardCharsets.UTF_8 ) );
+        Files.write( root.resolve( "section.json" ), "{ 'button': { '$id': 'button' } }".getBytes( StandardCharsets.UTF_8 ) );
+
+        PageModel pageModel = load( root, "site.json" );
+        ModelItem section = ( ModelItem ) pageModel.get( "section" );
+
+        assertTrue( section.isLazyPending() );
+        assertEquals( "section", section.get( "$id" ) );
+        assertTrue( section.isLazyPending() );
+
+        ModelItem button = ( ModelItem ) section.get( "button" );
+
+        assertFalse( section.isLazyPending() );
+        assertSame( section, button.getParent() );
+        assertEquals( "button", button.get( "$id" ) );
+    }
+}
@@ -0,0 +1,100 @@
+package com.brentcroft.tools.driver;
+
+import com.brentcroft.tools.driver.fake.FakeWebDriver;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class SubtreeReaderTest
+{
+    private static final String PAGE = String.join( "\n",
+            "<ul id='list'><li class='item'>One</li><li class='item'>Two</li></ul>",
+            "<input id='name' value='initial' title='Name'>",
+            "<my-widget id='widget'><template shadowrootmode='open'><button class='inner'>Inside</button></template></my-widget>",
+            "<iframe id='frame' srcdoc=\"<p id='framed'>In a frame</p>\"></iframe>",
+            "<my-vault id='vault'><template shadowrootmode='closed'><span class='secret'>Hidden</span><span class='secret'>Also</span></template></my-vault>" );
+
+    private final Browser browser = new Browser();
+    private final PageModel site = browser.getPageModel();
+
+    @Before
+    public void openFakePage()
+    {
+        FakeWebDriver driver = new FakeWebDriver().register( "http://fake/page", PAGE );
+        driver.get( "http://fake/page" );
+        browser.setWebDriver( driver );
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private static Map< String, Object > child( Map< String, Object > parent, String key )
+    {
+        return ( Map< String, Object > ) parent.get( key );
+    }
+
+    @Test
+    public void readsTheWholeSubtree()
+    {
+        site.appendFromJson( String.join( "\n",
+                "{",
+                "  'second': { '$cssSelector': 'li.item', '$index': '2' },",
+                "  'name': { '$id': 'name' },",
+                "  'missing': { '$id': 'missing' },",
+                "  'group': {",
+                "    'widget': { '$id': 'widget', '$shadow': true, 'inner': { '$cssSelector': 'button.inner' } }",
+                "  },",
+                "  'frame': { '$frame': \"//iframe[@id='frame']\", 'framed': { '$id': 'framed' } }",
+                "}" ) );
+
+        Map< String, Object > result = site.readAll( Collections.singletonList( "title" ) );
+
+        Map< String, Object > second = child( result, "second" );
+        assertEquals( true, second.get( SubtreeReader.EXISTS ) );
+        assertEquals( 2, second.get( SubtreeReader.COUNT ) );
+        assertEquals( "Two", second.get( SubtreeReader.TEXT ) );
+
+        assertEquals( "Name", child( child( result, "name" ), SubtreeReader.ATTRIBUTES ).get( "title" ) );
+
+        Map< String, Object > missing = child( result, "missing" );
+        assertEquals( false, missing.get( SubtreeReader.EXISTS ) );
+        assertNull( missing.get( SubtreeReader.TEXT ) );
+
+        // containers without a locator are read through
+        Map< String, Object > group = child( result, "group" );
+        assertFalse( group.containsKey( SubtreeReader.EXISTS ) );
+        assertEquals( "Inside", child( child( group, "widget" ), "inner" ).get( SubtreeReader.TEXT ) );
+        assertEquals( "In a frame", child( child( result, "frame" ), "framed" ).get( SubtreeReader.TEXT ) );
+    }
+
+    @Test
+    public void looksUpItemsUnderAClosedShadowRootOneByOne()
+    {
+        site.appendFromJson( String.join( "\n",
+                "{",
+                "  'vault': {",
+                "    '$id': 'vault', '$shadow': true,",
+                "    'secret': { '$cssSelector': 'span.secret' },",
+                "    'missing': { '$cssSelector': 'span.missing' }",
+                "  }",
+                "}" ) );
+
+        Map< String, Object > vault = child( site.readAll(), "vault" );
+
+        // the script can't see a closed root, but selenium can
+        Map< String, Object > secret = child( vault, "secret" );
+        assertEquals( true, secret.get( SubtreeReader.EXISTS ) );
+        assertEquals( 2, secret.get( SubtreeReader.COUNT ) );
+        assertEquals( "Hidden", secret.get( SubtreeReader.TEXT ) );
+        assertEquals( false, child( vault, "missing" ).get( SubtreeReader.EXISTS ) );
+    }
+
+    @Test( expected = NumberFormatException.class )
+    public void failsOnABadIndex()
+    {
+        site.appendFromJson( "{ 'name': { '$id': 'name', '$index': 'two' } }" );
+        site.readAll();
+    }
+}
@@ -0,0 +1,32 @@
+package com.brentcroft.tools.driver.fake;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class CssToXPathTest
+{
+    @Test
+    public void convertsCompoundsAndCombinators()
+    {
+        assertEquals( ".//*[@id = 'a']", CssToXPath.convert( "#a" ) );
+        assertEquals( ".//ul/li[@data-x = 'y']", CssToXPath.convert( "ul > li[data-x='y']" ) );
+        assertEquals( ".//li/following-sibling::*[1]/self::li", CssToXPath.convert( "li + li" ) );
+        assertEquals( ".//p | .//*[@id = 'i']", CssToXPath.convert( "p, #i" ) );
+        assertEquals( ".//option[not( @selected )]", CssToXPath.convert( "option:not([selected])" ) );
+    }
+
+    @Test
+    public void quotesLiterals()
+    {
+        assertEquals( "'a'", CssToXPath.literal( "a" ) );
+        assertEquals( "\"it's\"", CssToXPath.literal( "it's" ) );
+        assertEquals( "concat('it', \"'\", 's \"x\"')", CssToXPath.literal( "it's \"x\"" ) );
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void rejectsUnsupportedSelectors()
+    {
+        CssToXPath.convert( "a::before" );
+    }
+}
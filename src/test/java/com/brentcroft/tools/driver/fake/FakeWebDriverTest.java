@@ -0,0 +1,108 @@
+package com.brentcroft.tools.driver.fake;
+
+import com.brentcroft.tools.driver.ElementSnapshot;
+import org.junit.Before;
+import org.junit.Test;
+import org.openqa.selenium.*;
+import org.openqa.selenium.support.ui.Select;
+
+import static org.junit.Assert.*;
+
+public class FakeWebDriverTest
+{
+    private static final String PAGE = String.join( "\n",
+            "<html><head><title>Fake Page</title></head><body>",
+            "<div id='main' class='panel'>",
+            "  <p>Hello <b>world</b></p>",
+            "  <input id='name' type='text' value='initial'>",
+            "  <input id='agree' type='checkbox'>",
+            "  <select id='size'><option value='s'>Small<option value='l'>Large</select>",
+            "  <span id='hidden' style='display: none'>secret</span>",
+            "  <a id='next' href='/next'>Next</a>",
+            "</div>",
+            "<my-widget id='widget'><template shadowrootmode='open'><button class='inner'>Inside</button></template></my-widget>",
+            "<iframe id='frame' srcdoc='<p id=&quot;framed&quot;>In a frame</p>'></iframe>",
+            "</body></html>" );
+
+    private FakeWebDriver driver;
+
+    @Before
+    public void setUp()
+    {
+        driver = new FakeWebDriver()
+                .register( "http://fake/page", PAGE )
+                .register( "http://fake/next", "<title>Next Page</title><p id='arrived'>arrived</p>" );
+        driver.get( "http://fake/page" );
+    }
+
+    @Test
+    public void findsElementsAndText()
+    {
+        assertEquals( "Fake Page", driver.getTitle() );
+        assertEquals( "Hello world", driver.findElement( By.cssSelector( "#main > p" ) ).getText() );
+        assertEquals( "Hello world", driver.findElement( By.xpath( "//div[@id='main']/p" ) ).getText() );
+        assertEquals( 1, driver.findElements( By.className( "panel" ) ).size() );
+        assertFalse( driver.findElement( By.id( "hidden" ) ).isDisplayed() );
+        assertEquals( "", driver.findElement( By.id( "hidden" ) ).getText() );
+        assertTrue( driver.findElements( By.id( "missing" ) ).isEmpty() );
+    }
+
+    @Test
+    public void typesSelectsAndClicks()
+    {
+        WebElement name = driver.findElement( By.id( "name" ) );
+        name.sendKeys( Keys.chord( Keys.CONTROL, "a" ), Keys.DELETE );
+        name.sendKeys( "typed" );
+        assertEquals( "typed", name.getAttribute( "value" ) );
+
+        WebElement agree = driver.findElement( By.id( "agree" ) );
+        agree.click();
+        assertTrue( agree.isSelected() );
+
+        new Select( driver.findElement( By.id( "size" ) ) ).selectByVisibleText( "Large" );
+        assertEquals( "l", driver.findElement( By.id( "size" ) ).getAttribute( "value" ) );
+
+        driver.findElement( By.linkText( "Next" ) ).click();
+        assertEquals( "http://fake/next", driver.getCurrentUrl() );
+        assertEquals( "arrived", driver.findElement( By.id( "arrived" ) ).getText() );
+    }
+
+    @Test
+    public void searchesShadowRootsAndFrames()
+    {
+        SearchContext shadowRoot = driver.findElement( By.id( "widget" ) ).getShadowRoot();
+        assertEquals( "Inside", shadowRoot.findElement( By.cssSelector( "button.inner" ) ).getText() );
+
+        driver.switchTo().frame( driver.findElement( By.id( "frame" ) ) );
+        assertEquals( "In a frame", driver.findElement( By.id( "framed" ) ).getText() );
+
+        driver.switchTo().defaultContent();
+        assertEquals( 1, driver.findElements( By.id( "main" ) ).size() );
+    }
+
+    @Test( expected = StaleElementReferenceException.class )
+    public void elementsGoStaleOnRerender()
+    {
+        WebElement main = driver.findElement( By.id( "main" ) );
+        driver.rerender();
+        main.getText();
+    }
+
+    @Test
+    public void runsTheDriverScripts()
+    {
+        WebElement name = driver.findElement( By.id( "name" ) );
+        ElementSnapshot snapshot = ElementSnapshot.of( driver, name, "id", "type" );
+
+        assertEquals( "input", snapshot.getTagName() );
+        assertEquals( "initial", snapshot.getValue() );
+        assertEquals( "text", snapshot.getAttributes().get( "type" ) );
+        assertTrue( snapshot.isDisplayed() );
+    }
+
+    @Test( expected = JavascriptException.class )
+    public void rejectsOtherScripts()
+    {
+        driver.executeScript( "return window.innerWidth;" );
+    }
+}
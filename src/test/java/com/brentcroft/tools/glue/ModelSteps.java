@@ -6,8 +6,6 @@ import io.cucumber.java.After;
 import io.cucumber.java.AfterAll;
 import io.cucumber.java.en.Given;
 
-import static java.lang.String.format;
-
 public class ModelSteps
 {
     private final Browser browser = Browsers
@@ -23,7 +21,7 @@ public class ModelSteps
     @AfterAll
     public static void close_browsers_completely()
     {
-        Browsers.instance().closeCompletely();
+        Browsers.closeAllCompletely();
     }
 
     @Given( "browser {string}" )
@@ -75,18 +73,7 @@ public class ModelSteps
     @Given( "site {string} is open" )
     public void site_is_open( String siteFile )
     {
-        if ( siteFile.endsWith( ".json" ) )
-        {
-            browser.getPageModel().appendFromJson( format( "{'$json': '%s'}", siteFile ) );
-        }
-        else if ( siteFile.endsWith( ".xml" ) )
-        {
-            browser.getPageModel().appendFromJson( format( "{'$xml': '%s'}", siteFile ) );
-        }
-        else
-        {
-            throw new IllegalArgumentException( format( "Site file does not have a JSON or XML extension: %s", siteFile ) );
-        }
+        browser.getPageModel().loadFromFile( siteFile );
         browser.open();
     }
 